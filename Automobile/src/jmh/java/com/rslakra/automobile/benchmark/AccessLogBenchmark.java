@@ -0,0 +1,155 @@
+package com.rslakra.automobile.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.rslakra.automobile.service.log.AccessLog;
+import com.rslakra.automobile.service.security.interceptor.AccessLogInterceptor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.OutputStream;
+import java.util.Enumeration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what logging costs the request thread, per request: the <code>LoggerInterceptor</code> it replaced, which
+ * formatted two lines per request on the request thread, and the {@link AccessLogInterceptor} logging all, a tenth or
+ * none of the requests. Both write to a discarding stream, so only the work of the requests is measured.
+ *
+ * @author Rohtash Lakra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@Threads(4)
+public class AccessLogBenchmark {
+
+    private static final Logger LEGACY_LOGGER = LoggerFactory.getLogger("legacy");
+
+    @Param({"legacy", "all", "tenth", "disabled"})
+    private String mode;
+
+    private AccessLog accessLog;
+    private AccessLogInterceptor accessLogInterceptor;
+    private OutputStreamAppender<ILoggingEvent> appender;
+
+    @Setup
+    public void setUp() {
+        final LoggerContext loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        final PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(loggerContext);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n");
+        encoder.start();
+        appender = new OutputStreamAppender<>();
+        appender.setContext(loggerContext);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        // the legacy logger at the level com.rslakra has in logback.xml
+        final ch.qos.logback.classic.Logger legacyLogger = loggerContext.getLogger("legacy");
+        legacyLogger.setLevel(Level.DEBUG);
+        legacyLogger.setAdditive(false);
+        legacyLogger.addAppender(appender);
+        final ch.qos.logback.classic.Logger accessLogger = loggerContext.getLogger(AccessLog.LOGGER_NAME);
+        accessLogger.setLevel("disabled".equals(mode) ? Level.OFF : Level.INFO);
+        accessLogger.setAdditive(false);
+        accessLogger.detachAndStopAllAppenders();
+        accessLogger.addAppender(appender);
+
+        accessLog = new AccessLog(new SimpleMeterRegistry(), ("tenth".equals(mode) ? 0.1d : 1.0d), 8192);
+        accessLogInterceptor = new AccessLogInterceptor(accessLog);
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        accessLog.shutdown();
+        appender.stop();
+    }
+
+    @Benchmark
+    public int logRequest() throws Exception {
+        final MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/automobile/appointments");
+        servletRequest.setRemoteAddr("10.0.0.1");
+        servletRequest.addParameter("make", "Honda");
+        servletRequest.addParameter("model", "Civic");
+        servletRequest.addParameter("password", "secret");
+        final MockHttpServletResponse servletResponse = new MockHttpServletResponse();
+        if ("legacy".equals(mode)) {
+            preHandle(servletRequest);
+            LEGACY_LOGGER.info("postHandle(), servletRequest: {}", servletRequest);
+            LEGACY_LOGGER.debug("+afterCompletion({}, {}, {}, {})", servletRequest, servletResponse, null, null);
+            LEGACY_LOGGER.debug("-afterCompletion()");
+        } else {
+            accessLogInterceptor.preHandle(servletRequest, servletResponse, null);
+            accessLogInterceptor.afterCompletion(servletRequest, servletResponse, null, null);
+        }
+
+        return servletResponse.getStatus();
+    }
+
+    /**
+     * The <code>preHandle</code> of the replaced <code>LoggerInterceptor</code>.
+     *
+     * @param servletRequest
+     */
+    private void preHandle(final MockHttpServletRequest servletRequest) {
+        servletRequest.setAttribute("hashCode", Objects.hashCode(servletRequest));
+        LEGACY_LOGGER.info("preHandle(), servletRequest:{}, method: {}, requestURI: {}, parameters: {}", servletRequest,
+                           servletRequest.getMethod(), servletRequest.getRequestURI(), getParameters(servletRequest));
+    }
+
+    /**
+     * @param servletRequest
+     * @return
+     */
+    private String getParameters(final MockHttpServletRequest servletRequest) {
+        LEGACY_LOGGER.debug("+getParameters({})", servletRequest);
+        final StringBuffer paramBuilder = new StringBuffer();
+        final Enumeration<String> parameterNames = servletRequest.getParameterNames();
+        LEGACY_LOGGER.debug("parameterNames: {}", parameterNames);
+        paramBuilder.append("?");
+        while (parameterNames.hasMoreElements()) {
+            if (paramBuilder.length() > 1) {
+                paramBuilder.append("&");
+            }
+
+            final String passString = parameterNames.nextElement();
+            paramBuilder.append(passString).append("=");
+            if (passString.contains("password") || passString.contains("answer") || passString.contains("pwd")) {
+                paramBuilder.append("*****");
+            } else {
+                paramBuilder.append(servletRequest.getParameter(passString));
+            }
+        }
+
+        final String ipAddress = servletRequest.getRemoteAddr();
+        LEGACY_LOGGER.debug("xForwardedFor: {}, ipAddress: {}", null, ipAddress);
+        paramBuilder.append("&ip=").append(ipAddress);
+        LEGACY_LOGGER.debug("-getParameters(), params: {}", paramBuilder);
+        return paramBuilder.toString();
+    }
+}
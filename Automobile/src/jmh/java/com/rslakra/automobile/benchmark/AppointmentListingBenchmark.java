@@ -0,0 +1,73 @@
+package com.rslakra.automobile.benchmark;
+
+import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.repositories.UserRepository;
+import com.rslakra.automobile.service.AppointmentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures <code>AppointmentServiceImpl.getAppointmentsForCurrentUser</code> against a seeded in-memory H2, for a
+ * regular user (their own appointments) and an admin (every appointment).
+ *
+ * @author Rohtash Lakra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentListingBenchmark {
+
+    private static final int USERS = 100;
+    private static final int APPOINTMENTS_PER_USER = 50;
+
+    @Param({"user", "admin"})
+    private String role;
+
+    private ConfigurableApplicationContext context;
+    private AppointmentService appointmentService;
+    private Authentication authentication;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("appointmentListing");
+        BenchmarkContext.seedAppointments(context, USERS, APPOINTMENTS_PER_USER);
+        appointmentService = context.getBean(AppointmentService.class);
+        final String email = ("admin".equals(role) ? BenchmarkContext.ADMIN_EMAIL : BenchmarkContext.userEmail(1));
+        final AutoUser autoUser = context.getBean(UserRepository.class).findByEmail(email).orElseThrow();
+        authentication = new UsernamePasswordAuthenticationToken(autoUser, null, autoUser.getAuthorities());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Appointment> getAppointmentsForCurrentUser() {
+        // the security context is thread bound, set it on the benchmark thread
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return appointmentService.getAppointmentsForCurrentUser();
+    }
+}
@@ -0,0 +1,38 @@
+package com.rslakra.automobile.benchmark;
+
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link AppointmentStatus#fromString(String)} for the first and last constants, a lower case value and an
+ * unknown value.
+ *
+ * @author Rohtash Lakra
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AppointmentStatusBenchmark {
+
+    @Param({"PENDING", "CANCELLED", "in_progress", "unknown"})
+    private String status;
+
+    @Benchmark
+    public AppointmentStatus fromString() {
+        return AppointmentStatus.fromString(status);
+    }
+}
@@ -0,0 +1,75 @@
+package com.rslakra.automobile.benchmark;
+
+import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.repositories.UserRepository;
+import com.rslakra.automobile.dto.AppointmentSummary;
+import com.rslakra.automobile.service.AppointmentService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the admin listing of 10k appointments as managed entities against the <code>AppointmentSummary</code>
+ * projection. The latency is per listing and <code>gc.alloc.rate.norm</code> is the memory allocated per 10k rows.
+ *
+ * @author Rohtash Lakra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AppointmentSummaryBenchmark {
+
+    private static final int USERS = 200;
+    private static final int APPOINTMENTS_PER_USER = 50;
+
+    private ConfigurableApplicationContext context;
+    private AppointmentService appointmentService;
+    private Authentication authentication;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("appointmentSummary");
+        BenchmarkContext.seedAppointments(context, USERS, APPOINTMENTS_PER_USER);
+        appointmentService = context.getBean(AppointmentService.class);
+        final AutoUser autoUser = context.getBean(UserRepository.class).findByEmail(BenchmarkContext.ADMIN_EMAIL)
+            .orElseThrow();
+        authentication = new UsernamePasswordAuthenticationToken(autoUser, null, autoUser.getAuthorities());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Appointment> entities() {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return appointmentService.getAppointmentsForCurrentUser();
+    }
+
+    @Benchmark
+    public List<AppointmentSummary> summaries() {
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+        return appointmentService.getAppointmentSummariesForCurrentUser();
+    }
+}
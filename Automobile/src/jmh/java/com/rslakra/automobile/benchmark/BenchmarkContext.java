@@ -0,0 +1,90 @@
+package com.rslakra.automobile.benchmark;
+
+import com.rslakra.automobile.AutomobileApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static com.rslakra.automobile.SeedData.AUDIT_COLUMNS;
+import static com.rslakra.automobile.SeedData.auditValues;
+
+/**
+ * Boots the application against a private in-memory H2 database for the benchmarks.
+ *
+ * @author Rohtash Lakra
+ */
+public final class BenchmarkContext {
+
+    public static final String ADMIN_EMAIL = "admin@benchmark.com";
+    public static final int SERVICE_TYPES = 5;
+
+    private static final String AUDIT_VALUES = auditValues("benchmark");
+
+    private BenchmarkContext() {
+        throw new UnsupportedOperationException("Object creation not allowed!");
+    }
+
+    /**
+     * Starts the application on a random port.
+     *
+     * @param name of the in-memory database
+     * @param properties overriding the benchmark defaults, as <code>key=value</code>
+     * @return
+     */
+    public static ConfigurableApplicationContext start(String name, String... properties) {
+        return new SpringApplicationBuilder(AutomobileApplication.class)
+            .properties("server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+                        "spring.datasource.hikari.maximumPoolSize=16",
+                        "spring.liquibase.drop-first=true",
+                        "spring.jpa.show-sql=false",
+                        "spring.h2.console.enabled=false",
+                        "logging.level.root=WARN")
+            .properties(properties)
+            .run();
+    }
+
+    /**
+     * Returns the email of the n-th seeded user.
+     *
+     * @param user
+     * @return
+     */
+    public static String userEmail(int user) {
+        return "user" + user + "@benchmark.com";
+    }
+
+    /**
+     * Seeds an admin, the given number of users with their appointments, each linked to two of the
+     * <code>SERVICE_TYPES</code> service types.
+     *
+     * @param context
+     * @param users
+     * @param appointmentsPerUser
+     */
+    public static void seedAppointments(ConfigurableApplicationContext context, int users, int appointmentsPerUser) {
+        final JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO users (id, email, password, first_name, last_name, status, role, "
+                            + AUDIT_COLUMNS + ") VALUES (NEXT VALUE FOR hibernate_sequence, ?, 'password', "
+                            + "'Admin', 'Benchmark', 'ACTIVE', 'ADMIN', " + AUDIT_VALUES + ")", ADMIN_EMAIL);
+        jdbcTemplate.update("INSERT INTO users (id, email, password, first_name, last_name, status, role, "
+                            + AUDIT_COLUMNS + ") SELECT NEXT VALUE FOR hibernate_sequence, 'user' || x || "
+                            + "'@benchmark.com', 'password', 'User', 'Benchmark' || x, 'ACTIVE', 'USER', "
+                            + AUDIT_VALUES + " FROM SYSTEM_RANGE(1, ?)", users);
+        jdbcTemplate.update("INSERT INTO service_types (id, name, status, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE "
+                            + "FOR hibernate_sequence, 'Benchmark Service ' || x, 'ACTIVE', " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(1, " + SERVICE_TYPES + ")");
+        jdbcTemplate.update("INSERT INTO appointments (id, user_id, make, model, \"year\", status, appointment_on, "
+                            + "start_time, end_time, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE FOR "
+                            + "hibernate_sequence, u.id, 'Make', 'Model', 2020, 'CONFIRMED', "
+                            + "DATEADD(DAY, r.x, TIMESTAMP '2030-01-01 00:00:00'), "
+                            + "DATEADD(HOUR, MOD(r.x, 7), TIME '09:00:00'), DATEADD(HOUR, MOD(r.x, 7) + 1, "
+                            + "TIME '09:00:00'), " + AUDIT_VALUES + " FROM users u CROSS JOIN SYSTEM_RANGE(1, ?) r "
+                            + "WHERE u.role = 'USER' AND u.email LIKE '%@benchmark.com'", appointmentsPerUser);
+        jdbcTemplate.update("INSERT INTO appointment_services (appointment_id, service_type_id) SELECT a.id, s.id "
+                            + "FROM appointments a JOIN service_types s ON s.name IN ('Benchmark Service ' || "
+                            + "(MOD(a.id, " + SERVICE_TYPES + ") + 1), 'Benchmark Service ' || "
+                            + "(MOD(a.id + 1, " + SERVICE_TYPES + ") + 1))");
+        jdbcTemplate.execute("ANALYZE");
+    }
+}
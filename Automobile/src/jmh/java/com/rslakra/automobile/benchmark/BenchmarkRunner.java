@@ -0,0 +1,43 @@
+package com.rslakra.automobile.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks matching the given patterns (all of them by default) with the GC profiler attached, so the
+ * allocation rate (<code>gc.alloc.rate.norm</code>, bytes per operation) is reported next to every score. The results
+ * are also written to <code>target/jmh-result.json</code>.
+ *
+ * @author Rohtash Lakra
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+        throw new UnsupportedOperationException("Object creation not allowed!");
+    }
+
+    /**
+     * @param args the benchmark name patterns
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        final OptionsBuilder optionsBuilder = new OptionsBuilder();
+        if (args.length == 0) {
+            optionsBuilder.include("com\\.rslakra\\.automobile\\..*Benchmark");
+        }
+        for (String pattern : args) {
+            optionsBuilder.include(pattern);
+        }
+
+        final Options options = optionsBuilder
+            .addProfiler(GCProfiler.class)
+            .resultFormat(ResultFormatType.JSON)
+            .result("target/jmh-result.json")
+            .build();
+        new Runner(options).run();
+    }
+}
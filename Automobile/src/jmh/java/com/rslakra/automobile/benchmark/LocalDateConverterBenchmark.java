@@ -0,0 +1,44 @@
+package com.rslakra.automobile.benchmark;
+
+import com.rslakra.automobile.domain.entities.converter.LocalDateConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link LocalDateConverter} conversions, run for every date column read or written.
+ *
+ * @author Rohtash Lakra
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocalDateConverterBenchmark {
+
+    private final LocalDateConverter converter = new LocalDateConverter();
+    private final LocalDate localDate = LocalDate.of(2030, 1, 7);
+    private final Date date = Date.valueOf(localDate);
+
+    @Benchmark
+    public Date convertToDatabaseColumn() {
+        return converter.convertToDatabaseColumn(localDate);
+    }
+
+    @Benchmark
+    public LocalDate convertToEntityAttribute() {
+        return converter.convertToEntityAttribute(date);
+    }
+}
@@ -0,0 +1,129 @@
+package com.rslakra.automobile.benchmark;
+
+import com.rslakra.automobile.service.ScheduleService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Loads the <code>/schedules</code> and <code>/appointments</code> pages over HTTP from more client threads than
+ * Tomcat's default pool of 200, with requests executed on platform threads and on virtual threads
+ * (<code>spring.threads.virtual.enabled</code>). Compare the throughput and the <code>p0.99</code> of the sample time
+ * between the two modes.
+ * <p>
+ * The fork traces the virtual threads that get pinned to their carrier on the request paths. The clients run in the
+ * same JVM as the application, and the in-memory H2 answers without any network wait, so the scores are best compared
+ * with each other rather than with production numbers.
+ *
+ * @author Rohtash Lakra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(256)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.tracePinnedThreads=short")
+public class RequestModeBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+    private static final Pattern CSRF_TOKEN = Pattern.compile("name=\"_csrf\"\\s+value=\"([^\"]+)\"");
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"/schedules", "/appointments"})
+    private String path;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest pageRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context = BenchmarkContext.start("requestMode", "spring.threads.virtual.enabled=" + virtualThreads);
+        BenchmarkContext.seedAppointments(context, 50, 20);
+        context.getBean(ScheduleService.class).generateDefaultSchedules(LocalDate.now(), LocalDate.now().plusWeeks(2));
+        context.getBean(JdbcTemplate.class).update("UPDATE users SET password = ? WHERE email = ?",
+                                                   context.getBean(PasswordEncoder.class).encode(PASSWORD),
+                                                   BenchmarkContext.userEmail(1));
+
+        final String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+                               + context.getEnvironment().getProperty("server.servlet.contextPath", "");
+        httpClient = HttpClient.newBuilder().cookieHandler(new CookieManager())
+            .followRedirects(HttpClient.Redirect.NEVER).build();
+        login(baseUrl);
+        pageRequest = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+    }
+
+    /**
+     * Logs the first user in, so the session cookie authenticates all the page requests.
+     *
+     * @param baseUrl
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private void login(String baseUrl) throws IOException, InterruptedException {
+        final String loginPage = httpClient.send(HttpRequest.newBuilder(URI.create(baseUrl + "/login")).GET().build(),
+                                                 HttpResponse.BodyHandlers.ofString()).body();
+        final Matcher matcher = CSRF_TOKEN.matcher(loginPage);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No CSRF token on the login page!");
+        }
+
+        final String form = "userName=" + URLEncoder.encode(BenchmarkContext.userEmail(1), StandardCharsets.UTF_8)
+                            + "&password=" + PASSWORD + "&_csrf=" + URLEncoder.encode(matcher.group(1),
+                                                                                    StandardCharsets.UTF_8);
+        final HttpResponse<Void> response = httpClient.send(
+            HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(form)).build(),
+            HttpResponse.BodyHandlers.discarding());
+        final String location = response.headers().firstValue("Location").orElse("");
+        if (response.statusCode() != 302 || location.contains("error")) {
+            throw new IllegalStateException("Login failed: " + response.statusCode() + " " + location);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        httpClient.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int getPage() throws IOException, InterruptedException {
+        final HttpResponse<Void> response = httpClient.send(pageRequest, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException(path + " answered " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+}
@@ -0,0 +1,68 @@
+package com.rslakra.automobile.benchmark;
+
+import com.rslakra.automobile.domain.entities.Schedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the in-memory capacity bookkeeping of {@link Schedule}.
+ *
+ * @author Rohtash Lakra
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScheduleBenchmark {
+
+    private Schedule schedule;
+
+    @Setup
+    public void setUp() {
+        schedule = new Schedule(LocalDate.of(2030, 1, 7), LocalTime.of(9, 0), LocalTime.of(10, 0));
+        schedule.setMaxAppointments(2);
+        schedule.setCurrentAppointments(0);
+    }
+
+    /**
+     * A book followed by a release, so the schedule never runs out of capacity.
+     *
+     * @return
+     */
+    @Benchmark
+    public boolean bookAndReleaseSchedule() {
+        schedule.bookSchedule();
+        schedule.releaseSchedule();
+        return schedule.hasAvailability();
+    }
+
+    /**
+     * Books into a full schedule, the rejected path.
+     *
+     * @return
+     */
+    @Benchmark
+    public boolean bookFullSchedule() {
+        schedule.bookSchedule();
+        schedule.bookSchedule();
+        schedule.bookSchedule();
+        final boolean available = schedule.hasAvailability();
+        schedule.releaseSchedule();
+        schedule.releaseSchedule();
+        return available;
+    }
+}
@@ -0,0 +1,126 @@
+package com.rslakra.automobile.benchmark;
+
+import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.domain.repositories.ScheduleRepository;
+import com.rslakra.automobile.service.ScheduleService;
+import com.rslakra.automobile.service.event.SchedulesGeneratedEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the slots generated per second by the per-entity <code>save</code> loop <code>generateDefaultSchedules</code>
+ * used to run, with the batched generation, over a two year range.
+ *
+ * @author Rohtash Lakra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(ScheduleGenerationBenchmark.SLOTS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ScheduleGenerationBenchmark {
+
+    // 104 weeks from a Monday, 5 weekdays with 7 slots each
+    static final int SLOTS = 104 * 5 * 7;
+    private static final LocalDate START_DATE = LocalDate.of(2030, 1, 7);
+    private static final LocalDate END_DATE = START_DATE.plusWeeks(104).minusDays(1);
+
+    @Param({"legacy", "batched"})
+    private String mode;
+
+    private ConfigurableApplicationContext context;
+    private ScheduleService scheduleService;
+    private ScheduleRepository scheduleRepository;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("scheduleGeneration");
+        scheduleService = context.getBean(ScheduleService.class);
+        scheduleRepository = context.getBean(ScheduleRepository.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteGenerated() {
+        jdbcTemplate.update("DELETE FROM schedules WHERE schedule_date BETWEEN ? AND ?", START_DATE, END_DATE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int generateDefaultSchedules() {
+        if ("legacy".equals(mode)) {
+            return transactionTemplate.execute(status -> generateOneByOne());
+        }
+
+        return scheduleService.generateDefaultSchedules(START_DATE, END_DATE);
+    }
+
+    /**
+     * The previous implementation, one <code>save</code> per slot, all kept in a list.
+     *
+     * @return
+     */
+    private int generateOneByOne() {
+        List<Schedule> generatedSchedules = new ArrayList<>();
+        LocalTime[] defaultTimes = {
+            LocalTime.of(9, 0),
+            LocalTime.of(10, 0),
+            LocalTime.of(11, 0),
+            LocalTime.of(13, 0),
+            LocalTime.of(14, 0),
+            LocalTime.of(15, 0),
+            LocalTime.of(16, 0)
+        };
+
+        LocalDate currentDate = START_DATE;
+        while (!currentDate.isAfter(END_DATE)) {
+            if (currentDate.getDayOfWeek().getValue() < 6) {
+                for (LocalTime startTime : defaultTimes) {
+                    Schedule schedule = new Schedule();
+                    schedule.setScheduleDate(currentDate);
+                    schedule.setStartTime(startTime);
+                    schedule.setEndTime(startTime.plusHours(1));
+                    schedule.setAvailable(true);
+                    schedule.setMaxAppointments(2);
+                    schedule.setCurrentAppointments(0);
+                    generatedSchedules.add(scheduleRepository.save(schedule));
+                }
+            }
+            currentDate = currentDate.plusDays(1);
+        }
+
+        // same index rebuild as the batched path, so only the write path differs
+        context.publishEvent(new SchedulesGeneratedEvent(START_DATE, END_DATE, generatedSchedules.size()));
+        return generatedSchedules.size();
+    }
+}
@@ -0,0 +1,75 @@
+package com.rslakra.automobile.service.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the BCrypt password check of {@link UserDetailsAuthenticationProvider#additionalAuthenticationChecks}. It
+ * lives in the provider's package to reach the protected method.
+ *
+ * @author Rohtash Lakra
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordCheckBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    // 10 is the BCryptPasswordEncoder default the application runs with
+    @Param({"10"})
+    private int strength;
+
+    private UserDetailsAuthenticationProvider authenticationProvider;
+    private UserDetails userDetails;
+    private UsernamePasswordAuthenticationToken validToken;
+    private UsernamePasswordAuthenticationToken invalidToken;
+
+    @Setup
+    public void setUp() {
+        final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(strength);
+        authenticationProvider = new UserDetailsAuthenticationProvider(passwordEncoder, username -> {
+            throw new UsernameNotFoundException(username);
+        });
+        userDetails = User.withUsername("user@benchmark.com").password(passwordEncoder.encode(PASSWORD))
+            .roles("USER").build();
+        validToken = new UsernamePasswordAuthenticationToken(userDetails.getUsername(), PASSWORD);
+        invalidToken = new UsernamePasswordAuthenticationToken(userDetails.getUsername(), "wrong-password");
+    }
+
+    @Benchmark
+    public UserDetails validPassword() {
+        authenticationProvider.additionalAuthenticationChecks(userDetails, validToken);
+        return userDetails;
+    }
+
+    @Benchmark
+    public boolean invalidPassword() {
+        try {
+            authenticationProvider.additionalAuthenticationChecks(userDetails, invalidToken);
+            return true;
+        } catch (BadCredentialsException ex) {
+            return false;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.rslakra.automobile.config;
 
+import com.rslakra.automobile.service.security.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -13,11 +16,24 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class PasswordEncoderConfiguration {
 
     /**
+     * Hashes with BCrypt at the configured cost, on the hashing threads of a {@link BoundedPasswordEncoder}.
+     *
+     * @param meterRegistry
+     * @param strength
+     * @param threads
+     * @param queueSize
+     * @param queueTimeoutMillis
      * @return
      */
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    @Bean(destroyMethod = "shutdown")
+    public PasswordEncoder passwordEncoder(MeterRegistry meterRegistry,
+                                           @Value("${passwords.strength:10}") int strength,
+                                           @Value("${passwords.hashing.threads:4}") int threads,
+                                           @Value("${passwords.hashing.queueSize:100}") int queueSize,
+                                           @Value("${passwords.hashing.queueTimeoutMillis:1000}")
+                                           long queueTimeoutMillis) {
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(strength), threads, queueSize, queueTimeoutMillis,
+                                          meterRegistry);
     }
 
 }
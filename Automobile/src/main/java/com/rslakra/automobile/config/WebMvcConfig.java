@@ -1,8 +1,13 @@
 package com.rslakra.automobile.config;
 
-import com.rslakra.automobile.service.security.interceptor.LoggerInterceptor;
+import com.rslakra.automobile.service.log.AccessLog;
+import com.rslakra.automobile.service.metrics.LatencyRecorder;
+import com.rslakra.automobile.service.security.SessionActivityRegistry;
+import com.rslakra.automobile.service.security.interceptor.AccessLogInterceptor;
+import com.rslakra.automobile.service.security.interceptor.LatencyInterceptor;
 import com.rslakra.automobile.service.security.interceptor.SessionTimerInterceptor;
 import com.rslakra.automobile.service.security.interceptor.UserInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -10,17 +15,34 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
 
-    public WebMvcConfig() {
+    private final AccessLog accessLog;
+    private final LatencyRecorder latencyRecorder;
+    private final SessionActivityRegistry sessionActivityRegistry;
+
+    /**
+     * @param accessLog
+     * @param latencyRecorder
+     * @param sessionActivityRegistry
+     */
+    @Autowired
+    public WebMvcConfig(AccessLog accessLog, LatencyRecorder latencyRecorder,
+                        SessionActivityRegistry sessionActivityRegistry) {
         super();
+        this.accessLog = accessLog;
+        this.latencyRecorder = latencyRecorder;
+        this.sessionActivityRegistry = sessionActivityRegistry;
     }
 
     @Override
     public void addInterceptors(final InterceptorRegistry registry) {
-        registry.addInterceptor(new LoggerInterceptor())
+        // first, so its latency covers the other interceptors
+        registry.addInterceptor(new LatencyInterceptor(latencyRecorder))
+            .excludePathPatterns("/h2/**");
+        registry.addInterceptor(new AccessLogInterceptor(accessLog))
             .excludePathPatterns("/h2/**");
         registry.addInterceptor(new UserInterceptor())
             .excludePathPatterns("/h2/**");
-        registry.addInterceptor(new SessionTimerInterceptor())
+        registry.addInterceptor(new SessionTimerInterceptor(sessionActivityRegistry))
             .excludePathPatterns("/h2/**");
     }
 }
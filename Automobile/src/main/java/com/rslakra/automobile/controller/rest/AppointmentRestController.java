@@ -1,21 +1,35 @@
 package com.rslakra.automobile.controller.rest;
 
+import com.rslakra.appsuite.core.BeanUtils;
 import com.rslakra.appsuite.core.Payload;
+import com.rslakra.appsuite.spring.exception.AuthenticationException;
 import com.rslakra.appsuite.spring.controller.rest.AbstractRestController;
-import com.rslakra.appsuite.spring.filter.DefaultFilter;
 import com.rslakra.appsuite.spring.filter.Filter;
 import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.dto.AppointmentSummary;
+import com.rslakra.automobile.dto.BatchReport;
+import com.rslakra.automobile.dto.ImportReport;
 import com.rslakra.automobile.filter.AppointmentFilter;
 import com.rslakra.automobile.service.AppointmentService;
+import com.rslakra.automobile.service.file.AppointmentExporter;
+import com.rslakra.automobile.service.file.AppointmentImporter;
+import com.rslakra.automobile.service.file.FileFormat;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -26,9 +40,11 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.util.Arrays;
-import java.util.Collections;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -44,25 +60,49 @@ public class AppointmentRestController extends AbstractRestController<Appointmen
     private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentRestController.class);
 
     private final AppointmentService appointmentService;
+    private final AppointmentExporter appointmentExporter;
+    private final AppointmentImporter appointmentImporter;
+    private final DataSize maxImportSize;
 
     /**
      * @param appointmentService
+     * @param appointmentExporter
+     * @param appointmentImporter
+     * @param maxImportSize
      */
     @Autowired
-    public AppointmentRestController(AppointmentService appointmentService) {
-        LOGGER.debug("AppointmentRestController({})", appointmentService);
+    public AppointmentRestController(AppointmentService appointmentService, AppointmentExporter appointmentExporter,
+                                     AppointmentImporter appointmentImporter,
+                                     @Value("${appointments.import.maxSize:1GB}") DataSize maxImportSize) {
+        LOGGER.debug("AppointmentRestController({}, {}, {}, {})", appointmentService, appointmentExporter,
+                     appointmentImporter, maxImportSize);
         this.appointmentService = appointmentService;
+        this.appointmentExporter = appointmentExporter;
+        this.appointmentImporter = appointmentImporter;
+        this.maxImportSize = maxImportSize;
     }
 
     /**
      * @return
      */
-    @GetMapping
     @Override
     public List<Appointment> getAll() {
         return appointmentService.getAll();
     }
 
+    /**
+     * Returns the summaries of the appointments the current user can see, all of them for admins.
+     *
+     * @return
+     */
+    @GetMapping
+    public List<AppointmentSummary> getSummaries() {
+        LOGGER.debug("+getSummaries()");
+        List<AppointmentSummary> appointments = appointmentService.getAppointmentSummariesForCurrentUser();
+        LOGGER.debug("-getSummaries(), appointments count: {}", appointments.size());
+        return appointments;
+    }
+
     /**
      * @param filter
      * @return
@@ -83,6 +123,8 @@ public class AppointmentRestController extends AbstractRestController<Appointmen
     }
 
     /**
+     * Returns the appointments matching the {@link AppointmentFilter} parameters; an unknown parameter is rejected.
+     *
      * @param allParams
      * @return
      */
@@ -90,24 +132,15 @@ public class AppointmentRestController extends AbstractRestController<Appointmen
     @Override
     public List<Appointment> getByFilter(@RequestParam Map<String, Object> allParams) {
         LOGGER.debug("+getByFilter({})", allParams);
-        List<Appointment> appointments = Collections.emptyList();
-        AppointmentFilter filter = new AppointmentFilter(allParams);
-        if (filter.hasKeys(DefaultFilter.ID, DefaultFilter.NAME)) {
-            // Use both ID and NAME from the filter
-            appointments = appointmentService.getByFilter(filter);
-        } else if (filter.hasKey(DefaultFilter.ID)) {
-            appointments = Arrays.asList(appointmentService.getById(filter.getValue(DefaultFilter.ID, Long.class)));
-        } else if (filter.hasKey(DefaultFilter.NAME)) {
-// roles = Arrays.asList(appointmentService.getByName(filter.getValue(Filter.NAME)));
-        } else {
-            appointments = appointmentService.getByFilter(filter);
-        }
-
-        LOGGER.debug("-getByFilter(), appointments: {}", appointments);
+        final List<Appointment> appointments = appointmentService.getByFilter(new AppointmentFilter(allParams));
+        LOGGER.debug("-getByFilter(), appointments: {}", appointments.size());
         return appointments;
     }
 
     /**
+     * Returns a page of the appointments matching the {@link AppointmentFilter} parameters, with the
+     * <code>page</code>, <code>size</code> and <code>sort</code> parameters.
+     *
      * @param allParams
      * @param pageable
      * @return
@@ -115,7 +148,7 @@ public class AppointmentRestController extends AbstractRestController<Appointmen
     @GetMapping("/pageable")
     @Override
     public Page<Appointment> getByFilter(@RequestParam Map<String, Object> allParams, Pageable pageable) {
-        return appointmentService.getByFilter(null, pageable);
+        return appointmentService.getByFilter(new AppointmentFilter(allParams), pageable);
     }
 
     /**
@@ -135,15 +168,29 @@ public class AppointmentRestController extends AbstractRestController<Appointmen
      * @param appointments
      * @return
      */
-    @PostMapping("/batch")
     @Override
-    public ResponseEntity<List<Appointment>> create(@RequestBody List<Appointment> appointments) {
+    public ResponseEntity<List<Appointment>> create(List<Appointment> appointments) {
         ResponseEntity<List<Appointment>> responseEntity = null;
         appointments = appointmentService.create(appointments);
         responseEntity = ResponseEntity.ok(appointments);
         return responseEntity;
     }
 
+    /**
+     * Creates the appointments in one transaction, and reports the id or the error of each of them in the order they
+     * were sent.
+     *
+     * @param appointments
+     * @return
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BatchReport> createBatch(@RequestBody List<Appointment> appointments) {
+        LOGGER.debug("+createBatch({})", (appointments == null ? null : appointments.size()));
+        final BatchReport batchReport = appointmentService.createAll(appointments);
+        LOGGER.debug("-createBatch(), batchReport: {}", batchReport);
+        return ResponseEntity.ok(batchReport);
+    }
+
     /**
      * @param appointment
      * @return
@@ -161,15 +208,29 @@ public class AppointmentRestController extends AbstractRestController<Appointmen
      * @param appointments
      * @return
      */
-    @PutMapping("/batch")
     @Override
-    public ResponseEntity<List<Appointment>> update(@RequestBody List<Appointment> appointments) {
+    public ResponseEntity<List<Appointment>> update(List<Appointment> appointments) {
         ResponseEntity<List<Appointment>> responseEntity = null;
         appointments = appointmentService.update(appointments);
         responseEntity = ResponseEntity.ok(appointments);
         return responseEntity;
     }
 
+    /**
+     * Updates the appointments in one transaction, and reports the id or the error of each of them in the order they
+     * were sent. Every appointment must carry the <code>version</code> it was read with.
+     *
+     * @param appointments
+     * @return
+     */
+    @PutMapping("/batch")
+    public ResponseEntity<BatchReport> updateBatch(@RequestBody List<Appointment> appointments) {
+        LOGGER.debug("+updateBatch({})", (appointments == null ? null : appointments.size()));
+        final BatchReport batchReport = appointmentService.updateAll(appointments);
+        LOGGER.debug("-updateBatch(), batchReport: {}", batchReport);
+        return ResponseEntity.ok(batchReport);
+    }
+
     /**
      * @param idOptional
      * @return
@@ -192,23 +253,112 @@ public class AppointmentRestController extends AbstractRestController<Appointmen
     }
 
     /**
+     * Deletes the appointments with the given ids in one transaction, and reports the outcome of each of them in the
+     * order they were sent.
+     *
+     * @param ids
+     * @return
+     */
+    @DeleteMapping("/batch")
+    public ResponseEntity<BatchReport> deleteBatch(@RequestBody List<Long> ids) {
+        LOGGER.debug("+deleteBatch({})", (ids == null ? null : ids.size()));
+        final BatchReport batchReport = appointmentService.deleteAll(ids);
+        LOGGER.debug("-deleteBatch(), batchReport: {}", batchReport);
+        return ResponseEntity.ok(batchReport);
+    }
+
+    /**
+     * The appointments are imported by {@link #importFile(MultipartFile, String)}, which reports every rejected row.
+     *
      * @param file
      * @return
      */
-    @PostMapping("/upload")
     @Override
-    public ResponseEntity<Payload> upload(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<Payload> upload(MultipartFile file) {
         return null;
     }
 
     /**
+     * Imports the appointments of a CSV or NDJSON file, in the layout of the exported ones, as new appointments. The
+     * file is the body of the request, not a multipart upload, so it's parsed while it's received instead of being
+     * spooled first, and the small multipart limits of the other routes still hold. The format is given by
+     * <code>fileType</code>, or else by the content type. The user and the declared size are checked before any of the
+     * body is read.
+     *
+     * @param request
+     * @param fileType
+     * @return the number of imported rows, and the errors of the rejected ones
+     * @throws IOException
+     */
+    @PostMapping(value = "/upload", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportReport> importFile(HttpServletRequest request,
+                                                   @RequestParam(value = "fileType", required = false) String fileType)
+        throws IOException {
+        LOGGER.debug("+importFile({}, {})", request.getContentType(), fileType);
+        final AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        final long contentLength = request.getContentLengthLong();
+        if (contentLength < 0) {
+            throw new ResponseStatusException(HttpStatus.LENGTH_REQUIRED, "The size of the file is required!");
+        } else if (contentLength > maxImportSize.toBytes()) {
+            throw new ResponseStatusException(HttpStatus.CONTENT_TOO_LARGE,
+                                              "The file is larger than the limit of " + maxImportSize);
+        }
+
+        final FileFormat fileFormat = (BeanUtils.isEmpty(fileType)
+                                       ? FileFormat.of(MediaType.parseMediaType(request.getContentType()))
+                                       : FileFormat.of(fileType));
+        final ImportReport importReport;
+        try (InputStream inputStream = request.getInputStream()) {
+            importReport = appointmentImporter.importFile(autoUser, fileFormat, inputStream);
+        }
+
+        LOGGER.debug("-importFile(), importReport: {}", importReport);
+        return ResponseEntity.ok(importReport);
+    }
+
+    /**
+     * The appointments are streamed by {@link #export(String)} instead of being loaded into a resource.
+     *
      * @param fileType
      * @return
      */
-    @PostMapping("/download")
     @Override
-    public ResponseEntity<Resource> download(@RequestParam("fileType") String fileType) {
+    public ResponseEntity<Resource> download(String fileType) {
         return null;
     }
 
+    /**
+     * Streams the appointments the current user can see as a CSV or NDJSON (<code>fileType</code>) attachment. The
+     * response is written with chunked encoding from an async thread while the appointments are read, so it starts
+     * right away and never holds the whole export in memory.
+     *
+     * @param fileType
+     * @return
+     */
+    @PostMapping(value = "/download", produces = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam("fileType") String fileType) {
+        LOGGER.debug("+export({})", fileType);
+        final FileFormat fileFormat = FileFormat.of(fileType);
+        // the body is written from another thread, so the user is resolved here
+        final AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        final StreamingResponseBody responseBody = outputStream -> {
+            final long count = appointmentExporter.export(autoUser, fileFormat, outputStream);
+            LOGGER.debug("-export(), exported: {}", count);
+        };
+        return ResponseEntity.ok()
+            .contentType(fileFormat.getMediaType())
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.attachment().filename("appointments." + fileFormat.getExtension()).build()
+                        .toString())
+            .body(responseBody);
+    }
+
 }
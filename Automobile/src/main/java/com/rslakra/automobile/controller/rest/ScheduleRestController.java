@@ -0,0 +1,64 @@
+package com.rslakra.automobile.controller.rest;
+
+import com.rslakra.automobile.dto.SchedulePage;
+import com.rslakra.automobile.service.ScheduleService;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.LocalDate;
+
+/**
+ * @author Rohtash Lakra
+ */
+@RestController
+@RequestMapping(value = "${restPrefix}/schedules", produces = MediaType.APPLICATION_JSON_VALUE)
+public class ScheduleRestController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleRestController.class);
+
+    private final ScheduleService scheduleService;
+
+    /**
+     * @param scheduleService
+     */
+    @Autowired
+    public ScheduleRestController(ScheduleService scheduleService) {
+        LOGGER.debug("ScheduleRestController({})", scheduleService);
+        this.scheduleService = scheduleService;
+    }
+
+    /**
+     * Returns a keyset page of the schedules within the date window. Admins get all the schedules, everyone else only
+     * the ones that can be booked. The <code>nextCursor</code> of the response is passed as <code>after</code> to read
+     * the next page.
+     *
+     * @param fromDate
+     * @param toDate
+     * @param after
+     * @param size
+     * @param auth
+     * @return
+     */
+    @GetMapping
+    public SchedulePage getSchedulePage(
+            @RequestParam(value = "fromDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+            @RequestParam(value = "toDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", required = false) Integer size,
+            Authentication auth) {
+        LOGGER.debug("+getSchedulePage({}, {}, {}, {})", fromDate, toDate, after, size);
+        final boolean admin = ContextUtils.isAdmin(auth);
+        SchedulePage schedulePage = scheduleService.getSchedulePage(!admin, fromDate, toDate, after, size);
+        LOGGER.debug("-getSchedulePage(), schedulePage: {}", schedulePage);
+        return schedulePage;
+    }
+}
@@ -2,15 +2,18 @@ package com.rslakra.automobile.controller.web;
 
 import com.rslakra.appsuite.core.enums.RoleType;
 import com.rslakra.appsuite.spring.controller.web.AbstractWebController;
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
 import com.rslakra.appsuite.spring.filter.Filter;
 import com.rslakra.appsuite.spring.parser.Parser;
 import com.rslakra.automobile.service.AppointmentService;
 import com.rslakra.automobile.service.ScheduleService;
 import com.rslakra.automobile.service.ServiceTypeService;
+import com.rslakra.automobile.service.WaitlistService;
 import com.rslakra.automobile.domain.entities.Appointment;
 import com.rslakra.automobile.domain.entities.AppointmentStatus;
 import com.rslakra.automobile.domain.entities.Schedule;
 import com.rslakra.automobile.domain.entities.ServiceType;
+import com.rslakra.automobile.dto.AppointmentSummary;
 import com.rslakra.automobile.service.security.AuthUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,7 +30,6 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -43,19 +45,23 @@ public class AppointmentController extends AbstractWebController<Appointment, Lo
     private final AppointmentService appointmentService;
     private final ServiceTypeService serviceTypeService;
     private final ScheduleService scheduleService;
+    private final WaitlistService waitlistService;
 
     /**
      * @param appointmentService
      * @param serviceTypeService
      * @param scheduleService
+     * @param waitlistService
      */
     @Autowired
     public AppointmentController(AppointmentService appointmentService, ServiceTypeService serviceTypeService,
-                                 ScheduleService scheduleService) {
-        LOGGER.debug("AppointmentController({}, {}, {})", appointmentService, serviceTypeService, scheduleService);
+                                 ScheduleService scheduleService, WaitlistService waitlistService) {
+        LOGGER.debug("AppointmentController({}, {}, {}, {})", appointmentService, serviceTypeService, scheduleService,
+                     waitlistService);
         this.appointmentService = appointmentService;
         this.serviceTypeService = serviceTypeService;
         this.scheduleService = scheduleService;
+        this.waitlistService = waitlistService;
     }
 
     /**
@@ -148,8 +154,8 @@ public class AppointmentController extends AbstractWebController<Appointment, Lo
         
         Schedule schedule = scheduleService.getById(scheduleId);
         
-        // Check if schedule is still available
-        if (!schedule.hasAvailability()) {
+        // Check if schedule is still available, a fully booked one can be waited for
+        if (!schedule.isAvailable() && schedule.hasCapacity()) {
             LOGGER.debug("-newAppointment(), schedule not available - redirecting to schedules");
             return "redirect:/schedules?error=notAvailable";
         }
@@ -158,6 +164,9 @@ public class AppointmentController extends AbstractWebController<Appointment, Lo
         appointment.setAppointmentOn(schedule.getScheduleDate());
         model.addAttribute("selectedSchedule", schedule);
         model.addAttribute("appointment", appointment);
+        if (!schedule.hasAvailability()) {
+            model.addAttribute("waitlistLength", waitlistService.getWaitlistLength(scheduleId));
+        }
         
         LOGGER.debug("-newAppointment(), model: {}", model);
         return "appointment";
@@ -215,9 +224,7 @@ public class AppointmentController extends AbstractWebController<Appointment, Lo
     @GetMapping("/cancel/{id}")
     public String cancelAppointment(@PathVariable("id") Long id) {
         LOGGER.debug("+cancelAppointment({})", id);
-        Appointment appointment = appointmentService.getById(id);
-        appointment.setStatus(AppointmentStatus.CANCELLED);
-        appointmentService.update(appointment);
+        appointmentService.cancel(id);
         LOGGER.debug("-cancelAppointment()");
         return "redirect:/appointments";
     }
@@ -258,30 +265,60 @@ public class AppointmentController extends AbstractWebController<Appointment, Lo
                        @RequestParam(value = "services", required = false) List<Long> serviceIds,
                        @RequestParam(value = "scheduleId", required = false) Long scheduleId) {
         LOGGER.debug("+save({}, serviceIds={}, scheduleId={})", appointment, serviceIds, scheduleId);
-        // Convert service IDs to ServiceType entities
-        if (serviceIds != null && !serviceIds.isEmpty()) {
-            List<ServiceType> services = new ArrayList<>();
-            for (Long id : serviceIds) {
-                services.add(serviceTypeService.getById(id));
+        setServices(appointment, serviceIds);
+        if (scheduleId == null) {
+            appointment = appointmentService.create(appointment);
+        } else {
+            // Book the schedule at its time along with the appointment
+            try {
+                appointment = appointmentService.book(appointment, scheduleId);
+            } catch (InvalidRequestException ex) {
+                LOGGER.debug("-save(), schedule not available - redirecting to schedules");
+                return "redirect:/schedules?error=notAvailable";
             }
-            appointment.setServices(services);
-        }
-        // Set time and schedule if scheduleId was provided
-        if (scheduleId != null) {
-            Schedule schedule = scheduleService.getById(scheduleId);
-            appointment.setSchedule(schedule);
-            appointment.setStartTime(schedule.getStartTime());
-            appointment.setEndTime(schedule.getEndTime());
-            // Book the schedule
-            scheduleService.bookSchedule(scheduleId);
         }
-        
-        appointment = appointmentService.create(appointment);
-        
+
         LOGGER.debug("-save(), appointment: {}", appointment);
         return "redirect:/appointments";
     }
 
+    /**
+     * Joins the waitlist of a fully booked schedule, or books it if it has freed up in the meantime.
+     *
+     * @param appointment
+     * @param serviceIds - list of service type IDs from form
+     * @param scheduleId
+     * @return
+     */
+    @PostMapping(value = "/waitlist")
+    public String joinWaitlist(@ModelAttribute Appointment appointment,
+                               @RequestParam(value = "services", required = false) List<Long> serviceIds,
+                               @RequestParam(value = "scheduleId") Long scheduleId) {
+        LOGGER.debug("+joinWaitlist({}, serviceIds={}, scheduleId={})", appointment, serviceIds, scheduleId);
+        setServices(appointment, serviceIds);
+        try {
+            appointment = waitlistService.join(scheduleId, appointment);
+        } catch (InvalidRequestException ex) {
+            LOGGER.debug("-joinWaitlist(), {}", ex.getMessage());
+            return "redirect:/schedules?error=waitlistFull";
+        }
+
+        LOGGER.debug("-joinWaitlist(), appointment: {}", appointment);
+        return "redirect:/appointments";
+    }
+
+    /**
+     * Converts the service IDs to ServiceType entities with a single lookup, failing if any of them doesn't exist.
+     *
+     * @param appointment
+     * @param serviceIds
+     */
+    private void setServices(Appointment appointment, List<Long> serviceIds) {
+        if (serviceIds != null && !serviceIds.isEmpty()) {
+            appointment.setServices(serviceTypeService.getByIds(serviceIds));
+        }
+    }
+
     /**
      * Returns appointments for the current user, or all appointments for admin.
      * Sorted by date and time in ascending order.
@@ -294,7 +331,7 @@ public class AppointmentController extends AbstractWebController<Appointment, Lo
     @Override
     public String getAll(Model model) {
         LOGGER.debug("+getAll({})", model);
-        List<Appointment> appointments = appointmentService.getAppointmentsForCurrentUser();
+        List<AppointmentSummary> appointments = appointmentService.getAppointmentSummariesForCurrentUser();
         model.addAttribute("appointments", appointments);
         LOGGER.debug("-getAll(), appointments count: {}", appointments.size());
         return "appointments";
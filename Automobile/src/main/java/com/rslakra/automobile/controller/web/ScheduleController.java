@@ -1,12 +1,16 @@
 package com.rslakra.automobile.controller.web;
 
 import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.dto.SchedulePage;
 import com.rslakra.automobile.service.ScheduleService;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import com.rslakra.automobile.service.stream.ScheduleEventStream;
 import jakarta.annotation.security.RolesAllowed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -16,9 +20,9 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
-import java.util.List;
 
 /**
  * Controller for managing schedules.
@@ -32,10 +36,12 @@ public class ScheduleController {
     private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleController.class);
 
     private final ScheduleService scheduleService;
+    private final ScheduleEventStream scheduleEventStream;
 
     @Autowired
-    public ScheduleController(ScheduleService scheduleService) {
+    public ScheduleController(ScheduleService scheduleService, ScheduleEventStream scheduleEventStream) {
         this.scheduleService = scheduleService;
+        this.scheduleEventStream = scheduleEventStream;
     }
 
     /**
@@ -46,38 +52,49 @@ public class ScheduleController {
      */
     @ModelAttribute("isAdmin")
     public boolean isAdmin(Authentication auth) {
-        if (auth == null) {
-            return false;
-        }
-        return auth.getAuthorities().stream()
-            .anyMatch(a -> a.getAuthority().equals("ADMIN") || a.getAuthority().equals("ROLE_ADMIN"));
+        return ContextUtils.isAdmin(auth);
     }
 
     /**
-     * Display available schedules page.
+     * Display a page of the schedules within the date window.
      * Admin sees all schedules; users see only available schedules.
      *
+     * @param fromDate
+     * @param toDate
+     * @param after
+     * @param size
      * @param model
      * @param auth
      * @return
      */
     @GetMapping({"", "/"})
-    public String schedulesPage(Model model, Authentication auth) {
-        LOGGER.debug("+schedulesPage()");
-        List<Schedule> schedules;
-        
-        if (isAdmin(auth)) {
-            schedules = scheduleService.getAllSchedules();
-        } else {
-            schedules = scheduleService.getAvailableSchedules();
-        }
-        
-        model.addAttribute("schedules", schedules);
+    public String schedulesPage(
+            @RequestParam(value = "fromDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate fromDate,
+            @RequestParam(value = "toDate", required = false) @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate toDate,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "size", required = false) Integer size,
+            Model model, Authentication auth) {
+        LOGGER.debug("+schedulesPage({}, {}, {}, {})", fromDate, toDate, after, size);
+        SchedulePage schedulePage = scheduleService.getSchedulePage(!isAdmin(auth), fromDate, toDate, after, size);
+        model.addAttribute("schedulePage", schedulePage);
+        model.addAttribute("schedules", schedulePage.getSchedules());
         model.addAttribute("schedule", new Schedule());
-        LOGGER.debug("-schedulesPage(), schedules: {}", schedules.size());
+        LOGGER.debug("-schedulesPage(), schedulePage: {}", schedulePage);
         return "schedules";
     }
 
+    /**
+     * Streams the availability changes of the schedules as Server-Sent Events, so the schedules page updates itself
+     * instead of being refreshed.
+     *
+     * @return
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream() {
+        LOGGER.debug("stream()");
+        return scheduleEventStream.subscribe();
+    }
+
     /**
      * Admin: Create a new schedule.
      *
@@ -106,8 +123,8 @@ public class ScheduleController {
             @RequestParam("startDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate startDate,
             @RequestParam("endDate") @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate endDate) {
         LOGGER.debug("+generateSchedules({}, {})", startDate, endDate);
-        scheduleService.generateDefaultSchedules(startDate, endDate);
-        LOGGER.debug("-generateSchedules()");
+        int generated = scheduleService.generateDefaultSchedules(startDate, endDate);
+        LOGGER.debug("-generateSchedules(), generated: {}", generated);
         return "redirect:/schedules";
     }
 
@@ -136,9 +153,7 @@ public class ScheduleController {
     @RolesAllowed("ROLE_ADMIN")
     public String toggleAvailability(@PathVariable("id") Long id) {
         LOGGER.debug("+toggleAvailability({})", id);
-        Schedule schedule = scheduleService.getById(id);
-        schedule.setAvailable(!schedule.isAvailable());
-        scheduleService.update(schedule);
+        scheduleService.toggleAvailability(id);
         LOGGER.debug("-toggleAvailability()");
         return "redirect:/schedules";
     }
@@ -24,9 +24,15 @@ import jakarta.persistence.JoinColumn;
 import jakarta.persistence.JoinTable;
 import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 /**
+ * The <code>user</code> and <code>services</code> associations are lazy; the listings fetch them together with the
+ * appointments through the <code>Appointment.userAndServices</code> graph.
+ *
  * @author Rohtash Lakra
  * @since 09-16-2019 1:38:47 PM
  */
@@ -34,10 +40,16 @@ import jakarta.persistence.Table;
 @Setter
 @NoArgsConstructor
 @Entity
+@NamedEntityGraph(name = Appointment.USER_AND_SERVICES, attributeNodes = {
+    @NamedAttributeNode("user"),
+    @NamedAttributeNode("services")
+})
 @Table(name = "appointments")
 public class Appointment extends AbstractEntity<Long> {
 
-    @ManyToOne(fetch = FetchType.EAGER)
+    public static final String USER_AND_SERVICES = "Appointment.userAndServices";
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private AutoUser user;
 
@@ -61,7 +73,7 @@ public class Appointment extends AbstractEntity<Long> {
     @JoinColumn(name = "schedule_id")
     private Schedule schedule;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "appointment_services",
         joinColumns = @JoinColumn(name = "appointment_id"),
@@ -73,6 +85,10 @@ public class Appointment extends AbstractEntity<Long> {
     @Column(name = "status")
     private AppointmentStatus status;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     /**
      * @param serviceType
      */
@@ -11,7 +11,8 @@ public enum AppointmentStatus {
     CONFIRMED("Confirmed"),
     IN_PROGRESS("In Progress"),
     COMPLETED("Completed"),
-    CANCELLED("Cancelled");
+    CANCELLED("Cancelled"),
+    WAITLISTED("Waitlisted");
 
     private final String displayName;
 
@@ -23,6 +24,15 @@ public enum AppointmentStatus {
         return displayName;
     }
 
+    /**
+     * Returns true if an appointment in this status takes one of its schedule's appointments.
+     *
+     * @return
+     */
+    public boolean holdsCapacity() {
+        return (this == PENDING || this == CONFIRMED || this == IN_PROGRESS);
+    }
+
     /**
      * Returns the enum value from string, or PENDING if not found.
      *
@@ -5,6 +5,7 @@ import com.rslakra.appsuite.spring.persistence.entity.NamedEntity;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
@@ -46,6 +47,10 @@ public class Schedule extends NamedEntity<Long> {
     @Column(name = "current_appointments")
     private Integer currentAppointments = 0;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
     /**
      * Constructor with date and times.
      *
@@ -68,6 +73,15 @@ public class Schedule extends NamedEntity<Long> {
         return available && (currentAppointments < maxAppointments);
     }
 
+    /**
+     * Returns true if the schedule isn't fully booked, whether it's available or not.
+     *
+     * @return
+     */
+    public boolean hasCapacity() {
+        return currentAppointments < maxAppointments;
+    }
+
     /**
      * Books an appointment in this schedule.
      */
@@ -107,6 +121,7 @@ public class Schedule extends NamedEntity<Long> {
             .add("startTime", startTime)
             .add("endTime", endTime)
             .add("available", available)
+            .add("version", version)
             .toString();
     }
 }
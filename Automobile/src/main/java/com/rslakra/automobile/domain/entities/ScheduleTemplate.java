@@ -0,0 +1,61 @@
+package com.rslakra.automobile.domain.entities;
+
+import com.rslakra.appsuite.core.ToString;
+import com.rslakra.appsuite.spring.persistence.entity.AbstractEntity;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * A weekly template slot, the schedules are generated from. A day of the week without any template is closed.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "schedule_templates")
+public class ScheduleTemplate extends AbstractEntity<Long> {
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "day_of_week", nullable = false)
+    private DayOfWeek dayOfWeek;
+
+    @Column(name = "start_time", nullable = false)
+    private LocalTime startTime;
+
+    @Column(name = "duration_minutes", nullable = false)
+    private int durationMinutes = 60;
+
+    @Column(name = "max_appointments", nullable = false)
+    private int maxAppointments = 1;
+
+    /**
+     * Returns the end time of the slot.
+     *
+     * @return
+     */
+    public LocalTime getEndTime() {
+        return startTime.plusMinutes(durationMinutes);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.of(ScheduleTemplate.class)
+            .add("id", getId())
+            .add("dayOfWeek", dayOfWeek)
+            .add("startTime", startTime)
+            .add("durationMinutes", durationMinutes)
+            .add("maxAppointments", maxAppointments)
+            .toString();
+    }
+}
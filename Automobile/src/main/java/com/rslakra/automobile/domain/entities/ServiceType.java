@@ -11,6 +11,7 @@ import lombok.Setter;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 /**
  * @author Rohtash Lakra
@@ -26,4 +27,8 @@ public class ServiceType extends NamedEntity<Long> {
     @Column(name = "status")
     private String status;
 
+    @Version
+    @Column(name = "version", nullable = false)
+    private long version;
+
 }
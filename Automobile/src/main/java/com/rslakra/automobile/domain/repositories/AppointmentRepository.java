@@ -1,18 +1,71 @@
 package com.rslakra.automobile.domain.repositories;
 
 import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
 import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.dto.AppointmentRecord;
+import com.rslakra.automobile.dto.AppointmentSummary;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
+ * The listing methods fetch the <code>user</code> and <code>services</code> of the appointments in the same query
+ * through the <code>Appointment.userAndServices</code> graph, so rendering or serializing them doesn't cost a query
+ * per appointment.
+ *
  * @author Rohtash Lakra
  * @since 09-16-2019 1:39:44 PM
  */
 @Repository
-public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
+public interface AppointmentRepository extends JpaRepository<Appointment, Long>, JpaSpecificationExecutor<Appointment> {
+
+    String RECORDS_QUERY = "SELECT new com.rslakra.automobile.dto.AppointmentRecord(a.id, u.email, a.vehicle.make, "
+                           + "a.vehicle.model, a.vehicle.year, a.status, a.appointmentOn, a.startTime, a.endTime, "
+                           + "s.name) FROM Appointment a JOIN a.user u LEFT JOIN a.services s ";
+
+    /**
+     * Returns the appointment with its user and services.
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    @EntityGraph(Appointment.USER_AND_SERVICES)
+    Optional<Appointment> findById(Long id);
+
+    /**
+     * Returns all appointments with their users and services.
+     *
+     * @return
+     */
+    @Override
+    @EntityGraph(Appointment.USER_AND_SERVICES)
+    List<Appointment> findAll();
+
+    /**
+     * Returns the appointments matching the specification, with their users and services.
+     *
+     * @param specification
+     * @param sort
+     * @return
+     */
+    @Override
+    @EntityGraph(Appointment.USER_AND_SERVICES)
+    List<Appointment> findAll(Specification<Appointment> specification, Sort sort);
 
     /**
      * Returns the appointments of the given user.
@@ -28,6 +81,7 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
      * @param user
      * @return
      */
+    @EntityGraph(Appointment.USER_AND_SERVICES)
     List<Appointment> findByUserOrderByAppointmentOnAscStartTimeAsc(AutoUser user);
 
     /**
@@ -35,6 +89,119 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
      *
      * @return
      */
+    @EntityGraph(Appointment.USER_AND_SERVICES)
     List<Appointment> findAllByOrderByAppointmentOnAscStartTimeAsc();
-}
 
+    /**
+     * Returns the summaries of the given user's appointments, sorted by date and start time ascending. The services of
+     * the summaries are read with <code>findServiceNamesByUser</code>.
+     *
+     * @param user
+     * @return
+     */
+    @Query("SELECT new com.rslakra.automobile.dto.AppointmentSummary(a.id, a.appointmentOn, a.startTime, a.endTime, "
+           + "a.status, u.id, u.email) FROM Appointment a JOIN a.user u WHERE a.user = :user "
+           + "ORDER BY a.appointmentOn, a.startTime")
+    List<AppointmentSummary> findSummariesByUser(@Param("user") AutoUser user);
+
+    /**
+     * Returns the summaries of all appointments sorted by date and start time ascending (for admin). The services of
+     * the summaries are read with <code>findAllServiceNames</code>.
+     *
+     * @return
+     */
+    @Query("SELECT new com.rslakra.automobile.dto.AppointmentSummary(a.id, a.appointmentOn, a.startTime, a.endTime, "
+           + "a.status, u.id, u.email) FROM Appointment a LEFT JOIN a.user u ORDER BY a.appointmentOn, a.startTime")
+    List<AppointmentSummary> findAllSummaries();
+
+    /**
+     * Returns the service names of the given user's appointments.
+     *
+     * @param user
+     * @return
+     */
+    @Query("SELECT a.id AS appointmentId, s.name AS name FROM Appointment a JOIN a.services s WHERE a.user = :user "
+           + "ORDER BY s.name")
+    List<ServiceName> findServiceNamesByUser(@Param("user") AutoUser user);
+
+    /**
+     * Returns the service names of all appointments.
+     *
+     * @return
+     */
+    @Query("SELECT a.id AS appointmentId, s.name AS name FROM Appointment a JOIN a.services s ORDER BY s.name")
+    List<ServiceName> findAllServiceNames();
+
+    /**
+     * Streams the records of all appointments, one row per service, in the order of their ids, so the rows of an
+     * appointment are adjacent. The rows are DTOs that the persistence context never tracks, and the driver fetches
+     * them in pages of the fetch size, so reading stays in constant memory. Must be consumed in a transaction, and
+     * closed.
+     *
+     * @return
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(RECORDS_QUERY + "ORDER BY a.id")
+    Stream<AppointmentRecord> streamAllRecords();
+
+    /**
+     * Streams the records of the given user's appointments like <code>streamAllRecords</code>.
+     *
+     * @param user
+     * @return
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query(RECORDS_QUERY + "WHERE a.user = :user ORDER BY a.id")
+    Stream<AppointmentRecord> streamRecordsByUser(@Param("user") AutoUser user);
+
+    /**
+     * Returns the oldest appointment of the schedule in the given status.
+     *
+     * @param scheduleId
+     * @param status
+     * @return
+     */
+    Optional<Appointment> findFirstByScheduleIdAndStatusOrderByIdAsc(Long scheduleId, AppointmentStatus status);
+
+    /**
+     * Returns an appointment of the user for the schedule in the given status.
+     *
+     * @param scheduleId
+     * @param userId
+     * @param status
+     * @return
+     */
+    Optional<Appointment> findFirstByScheduleIdAndUserIdAndStatus(Long scheduleId, Long userId,
+                                                                  AppointmentStatus status);
+
+    /**
+     * Returns the number of appointments of the schedule in the given status.
+     *
+     * @param scheduleId
+     * @param status
+     * @return
+     */
+    long countByScheduleIdAndStatus(Long scheduleId, AppointmentStatus status);
+
+    /**
+     * Moves the appointment to the <code>to</code> status, only if it's still in the <code>from</code> status.
+     *
+     * @param id
+     * @param from
+     * @param to
+     * @return the number of updated rows
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Appointment a SET a.status = :to, a.version = a.version + 1 WHERE a.id = :id AND a.status = :from")
+    int updateStatus(@Param("id") Long id, @Param("from") AppointmentStatus from, @Param("to") AppointmentStatus to);
+
+    /**
+     * The projection of a service of an appointment to its name.
+     */
+    interface ServiceName {
+
+        Long getAppointmentId();
+
+        String getName();
+    }
+}
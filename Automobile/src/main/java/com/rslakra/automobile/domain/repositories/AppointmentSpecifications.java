@@ -0,0 +1,149 @@
+package com.rslakra.automobile.domain.repositories;
+
+import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import com.rslakra.automobile.domain.entities.ServiceType;
+import com.rslakra.automobile.filter.AppointmentFilter;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+
+/**
+ * The predicates of the appointment searches, run by the database through
+ * <code>AppointmentRepository.findAll(Specification, ...)</code>. They compare the columns as they are stored, so the
+ * indexes on the appointments can be used.
+ *
+ * @author Rohtash Lakra
+ */
+public enum AppointmentSpecifications {
+    INSTANCE;
+
+    /**
+     * Returns the conjunction of the criteria of the filter; an empty filter matches all the appointments.
+     *
+     * @param filter
+     * @return
+     */
+    public static Specification<Appointment> of(AppointmentFilter filter) {
+        Specification<Appointment> specification = (root, query, builder) -> builder.conjunction();
+        if (filter == null) {
+            return specification;
+        }
+
+        if (filter.getId() != null) {
+            specification = specification.and(hasId(filter.getId()));
+        }
+        if (filter.getStatus() != null) {
+            specification = specification.and(hasStatus(filter.getStatus()));
+        }
+        if (filter.getFrom() != null) {
+            specification = specification.and(onOrAfter(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            specification = specification.and(onOrBefore(filter.getTo()));
+        }
+        if (filter.getUserId() != null) {
+            specification = specification.and(ofUser(filter.getUserId()));
+        }
+        if (filter.getServiceTypeId() != null) {
+            specification = specification.and(withServiceType(filter.getServiceTypeId()));
+        }
+        if (filter.getMake() != null) {
+            specification = specification.and(hasMake(filter.getMake()));
+        }
+        if (filter.getModel() != null) {
+            specification = specification.and(hasModel(filter.getModel()));
+        }
+        if (filter.getYear() != null) {
+            specification = specification.and(hasYear(filter.getYear()));
+        }
+
+        return specification;
+    }
+
+    /**
+     * @param id
+     * @return
+     */
+    public static Specification<Appointment> hasId(Long id) {
+        return (root, query, builder) -> builder.equal(root.get("id"), id);
+    }
+
+    /**
+     * @param status
+     * @return
+     */
+    public static Specification<Appointment> hasStatus(AppointmentStatus status) {
+        return (root, query, builder) -> builder.equal(root.get("status"), status);
+    }
+
+    /**
+     * @param date
+     * @return
+     */
+    public static Specification<Appointment> onOrAfter(LocalDate date) {
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("appointmentOn"), date);
+    }
+
+    /**
+     * @param date
+     * @return
+     */
+    public static Specification<Appointment> onOrBefore(LocalDate date) {
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("appointmentOn"), date);
+    }
+
+    /**
+     * Compares the <code>user_id</code> column, without joining the users.
+     *
+     * @param userId
+     * @return
+     */
+    public static Specification<Appointment> ofUser(Long userId) {
+        return (root, query, builder) -> builder.equal(root.get("user").get("id"), userId);
+    }
+
+    /**
+     * Checks the service type with a correlated <code>EXISTS</code>, so an appointment is never repeated by the join
+     * and the pages stay exact.
+     *
+     * @param serviceTypeId
+     * @return
+     */
+    public static Specification<Appointment> withServiceType(Long serviceTypeId) {
+        return (root, query, builder) -> {
+            final Subquery<Long> subquery = query.subquery(Long.class);
+            final Root<Appointment> appointment = subquery.correlate(root);
+            final Join<Appointment, ServiceType> services = appointment.join("services");
+            subquery.select(services.get("id")).where(builder.equal(services.get("id"), serviceTypeId));
+            return builder.exists(subquery);
+        };
+    }
+
+    /**
+     * @param make
+     * @return
+     */
+    public static Specification<Appointment> hasMake(String make) {
+        return (root, query, builder) -> builder.equal(root.get("vehicle").get("make"), make);
+    }
+
+    /**
+     * @param model
+     * @return
+     */
+    public static Specification<Appointment> hasModel(String model) {
+        return (root, query, builder) -> builder.equal(root.get("vehicle").get("model"), model);
+    }
+
+    /**
+     * @param year
+     * @return
+     */
+    public static Specification<Appointment> hasYear(Short year) {
+        return (root, query, builder) -> builder.equal(root.get("vehicle").get("year"), year);
+    }
+}
@@ -1,13 +1,20 @@
 package com.rslakra.automobile.domain.repositories;
 
 import com.rslakra.automobile.domain.entities.Schedule;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.Optional;
+
+import jakarta.persistence.LockModeType;
 
 /**
  * Repository for Schedule entity.
@@ -49,5 +56,80 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
      */
     @Query("SELECT s FROM Schedule s WHERE s.scheduleDate >= :fromDate ORDER BY s.scheduleDate, s.startTime")
     List<Schedule> findAllFromDate(@Param("fromDate") LocalDate fromDate);
-}
 
+    /**
+     * Find the schedules of the date window that come after the given <code>(scheduleDate, startTime, id)</code>
+     * position, in that order. Only the first page of the <code>pageable</code> is read, and no count query is run.
+     *
+     * @param afterDate
+     * @param afterTime
+     * @param afterId
+     * @param toDate
+     * @param pageable
+     * @return
+     */
+    @Query("SELECT s FROM Schedule s WHERE s.scheduleDate >= :afterDate AND s.scheduleDate <= :toDate "
+           + "AND (s.scheduleDate > :afterDate OR s.startTime > :afterTime "
+           + "OR (s.startTime = :afterTime AND s.id > :afterId)) "
+           + "ORDER BY s.scheduleDate, s.startTime, s.id")
+    List<Schedule> findPageAfter(@Param("afterDate") LocalDate afterDate, @Param("afterTime") LocalTime afterTime,
+                                 @Param("afterId") Long afterId, @Param("toDate") LocalDate toDate,
+                                 Pageable pageable);
+
+    /**
+     * Find the date and start time of every schedule in the date range, without loading the schedules.
+     *
+     * @param startDate
+     * @param endDate
+     * @return
+     */
+    List<SlotKey> findByScheduleDateBetween(LocalDate startDate, LocalDate endDate);
+
+    /**
+     * Find the schedule and lock its row until the transaction ends.
+     *
+     * @param id
+     * @return
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM Schedule s WHERE s.id = :id")
+    Optional<Schedule> findByIdForUpdate(@Param("id") Long id);
+
+    /**
+     * Reserves one appointment of the schedule's capacity with a single conditional update, for the waitlist, which
+     * joins or promotes an appointment only if a slot is left. The row is only changed while the schedule is available
+     * and below <code>maxAppointments</code>, so it can never be overbooked; bookings lock the row with
+     * <code>findByIdForUpdate</code> instead.
+     *
+     * @param id
+     * @return the number of updated rows (0 when the schedule is missing, disabled or fully booked)
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Schedule s SET s.currentAppointments = s.currentAppointments + 1, "
+           + "s.available = CASE WHEN s.currentAppointments + 1 < s.maxAppointments THEN true ELSE false END, "
+           + "s.version = s.version + 1 "
+           + "WHERE s.id = :id AND s.available = true AND s.currentAppointments < s.maxAppointments")
+    int reserveSlot(@Param("id") Long id);
+
+    /**
+     * Releases one booked appointment of the schedule with a single conditional update.
+     *
+     * @param id
+     * @return the number of updated rows (0 when the schedule is missing or has no bookings)
+     */
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("UPDATE Schedule s SET s.currentAppointments = s.currentAppointments - 1, s.available = true, "
+           + "s.version = s.version + 1 "
+           + "WHERE s.id = :id AND s.currentAppointments > 0")
+    int releaseSlot(@Param("id") Long id);
+
+    /**
+     * The projection of a schedule to its date and start time.
+     */
+    interface SlotKey {
+
+        LocalDate getScheduleDate();
+
+        LocalTime getStartTime();
+    }
+}
@@ -0,0 +1,23 @@
+package com.rslakra.automobile.domain.repositories;
+
+import com.rslakra.automobile.domain.entities.ScheduleTemplate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for ScheduleTemplate entity.
+ *
+ * @author Rohtash Lakra
+ */
+@Repository
+public interface ScheduleTemplateRepository extends JpaRepository<ScheduleTemplate, Long> {
+
+    /**
+     * Find all templates, ordered by their start time.
+     *
+     * @return
+     */
+    List<ScheduleTemplate> findAllByOrderByStartTime();
+}
@@ -2,6 +2,8 @@ package com.rslakra.automobile.domain.repositories;
 
 import com.rslakra.automobile.domain.entities.ServiceType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -16,4 +18,13 @@ public interface ServiceTypeRepository extends JpaRepository<ServiceType, Long>
      * @return
      */
     public ServiceType findByName(String name);
+
+    /**
+     * Returns the number of appointments that include the service type.
+     *
+     * @param serviceTypeId
+     * @return
+     */
+    @Query("SELECT COUNT(a) FROM Appointment a JOIN a.services s WHERE s.id = :serviceTypeId")
+    public long countAppointments(@Param("serviceTypeId") Long serviceTypeId);
 }
@@ -2,8 +2,12 @@ package com.rslakra.automobile.domain.repositories;
 
 import com.rslakra.automobile.domain.entities.AutoUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -28,4 +32,23 @@ public interface UserRepository extends JpaRepository<AutoUser, Long> {
      */
     public Optional<AutoUser> findByEmail(String email);
 
+    /**
+     * Returns the ids of the users with the given emails, without loading the users. The emails are compared
+     * case-insensitively, so they must be given in lower case.
+     *
+     * @param emails
+     * @return
+     */
+    @Query("SELECT u.id AS id, u.email AS email FROM AutoUser u WHERE LOWER(u.email) IN :emails")
+    public List<UserId> findIdsByEmails(@Param("emails") Collection<String> emails);
+
+    /**
+     * The projection of a user to its id.
+     */
+    interface UserId {
+
+        Long getId();
+
+        String getEmail();
+    }
 }
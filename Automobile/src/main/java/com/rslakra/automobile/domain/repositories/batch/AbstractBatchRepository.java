@@ -0,0 +1,76 @@
+package com.rslakra.automobile.domain.repositories.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Base class of the repositories that write rows with plain JDBC batches, bypassing the persistence context.
+ * <p>
+ * Ids are taken from the shared <code>hibernate_sequence</code>, so the rows written here never clash with the ones
+ * written through JPA. The sequence increments by 1, so a whole block of ids is fetched with a single query instead of
+ * one round trip per row.
+ *
+ * @author Rohtash Lakra
+ */
+public abstract class AbstractBatchRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractBatchRepository.class);
+
+    // H2 evaluates the sequence once per generated row
+    private static final String NEXT_IDS_SQL = "SELECT NEXT VALUE FOR hibernate_sequence FROM SYSTEM_RANGE(1, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditorAware<String> auditorAware;
+
+    /**
+     * @param jdbcTemplate
+     * @param auditorAware
+     */
+    protected AbstractBatchRepository(JdbcTemplate jdbcTemplate, AuditorAware<String> auditorAware) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditorAware = auditorAware;
+    }
+
+    /**
+     * @return
+     */
+    protected JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Allocates the given number of ids with a single query.
+     *
+     * @param count
+     * @return
+     */
+    protected long[] nextIds(int count) {
+        LOGGER.debug("+nextIds({})", count);
+        final List<Long> ids = jdbcTemplate.queryForList(NEXT_IDS_SQL, Long.class, count);
+        final long[] nextIds = new long[ids.size()];
+        for (int i = 0; i < nextIds.length; i++) {
+            nextIds[i] = ids.get(i);
+        }
+
+        LOGGER.debug("-nextIds(), nextIds: {}", nextIds.length);
+        return nextIds;
+    }
+
+    /**
+     * Returns the values of the audit columns (<code>created_on, created_at, created_by, updated_on, updated_at,
+     * updated_by</code>) for the rows written now, in that order.
+     *
+     * @return
+     */
+    protected Object[] auditValues() {
+        final long now = System.currentTimeMillis();
+        final Timestamp timestamp = new Timestamp(now);
+        final String auditor = auditorAware.getCurrentAuditor().orElse("system");
+        return new Object[]{now, timestamp, auditor, now, timestamp, auditor};
+    }
+}
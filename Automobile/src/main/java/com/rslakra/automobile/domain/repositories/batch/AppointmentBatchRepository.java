@@ -0,0 +1,217 @@
+package com.rslakra.automobile.domain.repositories.batch;
+
+import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import com.rslakra.automobile.domain.entities.ServiceType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes appointments and their services with JDBC batches.
+ *
+ * @author Rohtash Lakra
+ */
+@Repository
+public class AppointmentBatchRepository extends AbstractBatchRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentBatchRepository.class);
+
+    private static final String INSERT_SQL = "INSERT INTO appointments (id, user_id, make, model, \"year\", status, "
+                                             + "appointment_on, start_time, end_time, version, created_on, created_at, "
+                                             + "created_by, updated_on, updated_at, updated_by) "
+                                             + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE appointments SET make = ?, model = ?, \"year\" = ?, status = ?, "
+                                             + "appointment_on = ?, start_time = ?, end_time = ?, "
+                                             + "version = version + 1, updated_on = ?, updated_at = ?, updated_by = ? "
+                                             + "WHERE id = ? AND version = ?";
+    private static final String DELETE_SQL = "DELETE FROM appointments WHERE id = ?";
+    private static final String INSERT_SERVICES_SQL = "INSERT INTO appointment_services (appointment_id, "
+                                                      + "service_type_id) VALUES (?, ?)";
+    private static final String DELETE_SERVICES_SQL = "DELETE FROM appointment_services WHERE appointment_id = ?";
+    private static final String LOCK_STATES_SQL = "SELECT id, version, status, schedule_id, user_id "
+                                                  + "FROM appointments "
+                                                  + "WHERE id IN (%s) FOR UPDATE";
+
+    /**
+     * @param jdbcTemplate
+     * @param auditorAware
+     */
+    @Autowired
+    public AppointmentBatchRepository(JdbcTemplate jdbcTemplate, AuditorAware<String> auditorAware) {
+        super(jdbcTemplate, auditorAware);
+    }
+
+    /**
+     * Allocates the ids of the given number of appointments with a single query.
+     *
+     * @param count
+     * @return
+     */
+    public long[] allocateIds(int count) {
+        return nextIds(count);
+    }
+
+    /**
+     * Inserts the given (new) appointments with one JDBC batch, and their services with a second one. The ids must
+     * have been assigned from {@link #allocateIds(int)}; the appointments are not attached to any persistence context.
+     *
+     * @param appointments
+     * @return the number of inserted appointments
+     */
+    public int insertAll(List<Appointment> appointments) {
+        LOGGER.debug("+insertAll({})", appointments.size());
+        if (appointments.isEmpty()) {
+            return 0;
+        }
+
+        final Object[] auditValues = auditValues();
+        final List<Object[]> batchArgs = new ArrayList<>(appointments.size());
+        final List<Object[]> serviceArgs = new ArrayList<>(appointments.size() * 2);
+        for (Appointment appointment : appointments) {
+            batchArgs.add(new Object[]{
+                appointment.getId(), appointment.getUser().getId(), appointment.getVehicle().getMake(),
+                appointment.getVehicle().getModel(), appointment.getVehicle().getYear(),
+                appointment.getStatus().name(), appointment.getAppointmentOn(), appointment.getStartTime(),
+                appointment.getEndTime(), auditValues[0], auditValues[1], auditValues[2], auditValues[3],
+                auditValues[4], auditValues[5]
+            });
+            for (ServiceType serviceType : appointment.getServices()) {
+                serviceArgs.add(new Object[]{appointment.getId(), serviceType.getId()});
+            }
+        }
+
+        getJdbcTemplate().batchUpdate(INSERT_SQL, batchArgs);
+        if (!serviceArgs.isEmpty()) {
+            getJdbcTemplate().batchUpdate(INSERT_SERVICES_SQL, serviceArgs);
+        }
+        LOGGER.debug("-insertAll(), inserted: {}, services: {}", batchArgs.size(), serviceArgs.size());
+        return batchArgs.size();
+    }
+
+    /**
+     * Reads the state of the given appointments with a single query, and locks their rows until the end of the
+     * transaction, so it stays true while they are updated or deleted.
+     *
+     * @param ids
+     * @return the states of the existing appointments by their ids
+     */
+    public Map<Long, State> lockStates(Collection<Long> ids) {
+        LOGGER.debug("+lockStates({})", ids.size());
+        final Map<Long, State> states = HashMap.newHashMap(ids.size());
+        if (!ids.isEmpty()) {
+            final String sql = String.format(LOCK_STATES_SQL, String.join(", ", Collections.nCopies(ids.size(), "?")));
+            getJdbcTemplate().query(sql, resultSet -> {
+                final Long scheduleId = resultSet.getObject("schedule_id", Long.class);
+                final State state = new State(resultSet.getLong("id"), resultSet.getLong("version"),
+                                              AppointmentStatus.valueOf(resultSet.getString("status")), scheduleId,
+                                              resultSet.getObject("user_id", Long.class));
+                states.put(state.id(), state);
+            }, ids.toArray());
+        }
+
+        LOGGER.debug("-lockStates(), states: {}", states.size());
+        return states;
+    }
+
+    /**
+     * Updates the given appointments with one JDBC batch, each only if it still has the version it was read with,
+     * and replaces the services of the updated ones with two more batches. The schedule and the user of an appointment
+     * are never changed here.
+     *
+     * @param appointments
+     * @return the number of rows updated for each appointment, 0 if its version is stale
+     */
+    public int[] updateAll(List<Appointment> appointments) {
+        LOGGER.debug("+updateAll({})", appointments.size());
+        if (appointments.isEmpty()) {
+            return new int[0];
+        }
+
+        final Object[] auditValues = auditValues();
+        final List<Object[]> batchArgs = new ArrayList<>(appointments.size());
+        for (Appointment appointment : appointments) {
+            batchArgs.add(new Object[]{
+                appointment.getVehicle().getMake(), appointment.getVehicle().getModel(),
+                appointment.getVehicle().getYear(), appointment.getStatus().name(), appointment.getAppointmentOn(),
+                appointment.getStartTime(), appointment.getEndTime(), auditValues[3], auditValues[4], auditValues[5],
+                appointment.getId(), appointment.getVersion()
+            });
+        }
+
+        final int[] updateCounts = getJdbcTemplate().batchUpdate(UPDATE_SQL, batchArgs);
+        final List<Object[]> deleteArgs = new ArrayList<>(appointments.size());
+        final List<Object[]> serviceArgs = new ArrayList<>(appointments.size() * 2);
+        for (int i = 0; i < appointments.size(); i++) {
+            final Appointment appointment = appointments.get(i);
+            if (updateCounts[i] > 0) {
+                deleteArgs.add(new Object[]{appointment.getId()});
+                for (ServiceType serviceType : appointment.getServices()) {
+                    serviceArgs.add(new Object[]{appointment.getId(), serviceType.getId()});
+                }
+            }
+        }
+        if (!deleteArgs.isEmpty()) {
+            getJdbcTemplate().batchUpdate(DELETE_SERVICES_SQL, deleteArgs);
+        }
+        if (!serviceArgs.isEmpty()) {
+            getJdbcTemplate().batchUpdate(INSERT_SERVICES_SQL, serviceArgs);
+        }
+
+        LOGGER.debug("-updateAll(), updated: {}, services: {}", deleteArgs.size(), serviceArgs.size());
+        return updateCounts;
+    }
+
+    /**
+     * Deletes the given appointments and their services, with one JDBC batch each.
+     *
+     * @param ids
+     * @return the number of deleted appointments
+     */
+    public int deleteAll(List<Long> ids) {
+        LOGGER.debug("+deleteAll({})", ids.size());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        final List<Object[]> batchArgs = new ArrayList<>(ids.size());
+        ids.forEach(id -> batchArgs.add(new Object[]{id}));
+        getJdbcTemplate().batchUpdate(DELETE_SERVICES_SQL, batchArgs);
+        int deleted = 0;
+        for (int deleteCount : getJdbcTemplate().batchUpdate(DELETE_SQL, batchArgs)) {
+            deleted += deleteCount;
+        }
+
+        LOGGER.debug("-deleteAll(), deleted: {}", deleted);
+        return deleted;
+    }
+
+    /**
+     * The persisted state of an appointment a batch checks before changing it.
+     *
+     * @param id
+     * @param version
+     * @param status
+     * @param scheduleId
+     * @param userId
+     */
+    public record State(long id, long version, AppointmentStatus status, Long scheduleId, Long userId) {
+
+        /**
+         * @return true if the appointment takes capacity of its schedule
+         */
+        public boolean holdsCapacity() {
+            return (scheduleId != null && status.holdsCapacity());
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.rslakra.automobile.domain.repositories.batch;
+
+import com.rslakra.automobile.domain.entities.Schedule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.BatchUpdateException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes schedules with JDBC batch inserts.
+ *
+ * @author Rohtash Lakra
+ */
+@Repository
+public class ScheduleBatchRepository extends AbstractBatchRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleBatchRepository.class);
+
+    private static final String INSERT_SQL = "INSERT INTO schedules (id, name, schedule_date, start_time, end_time, "
+                                             + "available, max_appointments, current_appointments, version, created_on, "
+                                             + "created_at, created_by, updated_on, updated_at, updated_by) "
+                                             + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?, ?, ?, ?)";
+
+    /**
+     * @param jdbcTemplate
+     * @param auditorAware
+     */
+    @Autowired
+    public ScheduleBatchRepository(JdbcTemplate jdbcTemplate, AuditorAware<String> auditorAware) {
+        super(jdbcTemplate, auditorAware);
+    }
+
+    /**
+     * Inserts the given (new) schedules as a single JDBC batch. The schedules are not attached to any persistence
+     * context and their ids are left unset. A slot that violates <code>uk_schedule_date_start</code> was already
+     * generated by a concurrent generation, and is skipped.
+     *
+     * @param schedules
+     * @return the number of inserted schedules
+     */
+    public int insertAll(List<Schedule> schedules) {
+        LOGGER.debug("+insertAll({})", schedules.size());
+        if (schedules.isEmpty()) {
+            return 0;
+        }
+
+        final long[] ids = nextIds(schedules.size());
+        final Object[] auditValues = auditValues();
+        final List<Object[]> batchArgs = new ArrayList<>(schedules.size());
+        for (int i = 0; i < schedules.size(); i++) {
+            final Schedule schedule = schedules.get(i);
+            batchArgs.add(new Object[]{
+                ids[i], schedule.getName(), schedule.getScheduleDate(), schedule.getStartTime(),
+                schedule.getEndTime(), schedule.isAvailable(), schedule.getMaxAppointments(),
+                schedule.getCurrentAppointments(), auditValues[0], auditValues[1], auditValues[2], auditValues[3],
+                auditValues[4], auditValues[5]
+            });
+        }
+
+        int inserted;
+        try {
+            getJdbcTemplate().batchUpdate(INSERT_SQL, batchArgs);
+            inserted = batchArgs.size();
+        } catch (DuplicateKeyException ex) {
+            inserted = insertMissing(batchArgs, ex);
+        }
+
+        LOGGER.debug("-insertAll(), inserted: {}", inserted);
+        return inserted;
+    }
+
+    /**
+     * Completes a batch that failed on already generated slots. The rows the driver executed are counted from the
+     * update counts of the batch, a failed one being a slot that exists already, and the rows it didn't get to are
+     * inserted one by one, skipping the existing slots.
+     *
+     * @param batchArgs
+     * @param ex
+     * @return the number of inserted schedules
+     */
+    private int insertMissing(List<Object[]> batchArgs, DuplicateKeyException ex) {
+        final int[] updateCounts = ex.getCause() instanceof BatchUpdateException batchUpdateException
+                                   ? batchUpdateException.getUpdateCounts() : new int[0];
+        int inserted = 0;
+        for (int i = 0; i < batchArgs.size(); i++) {
+            if (i < updateCounts.length) {
+                if (updateCounts[i] != Statement.EXECUTE_FAILED) {
+                    inserted++;
+                }
+                continue;
+            }
+
+            try {
+                getJdbcTemplate().update(INSERT_SQL, batchArgs.get(i));
+                inserted++;
+            } catch (DuplicateKeyException duplicate) {
+                LOGGER.debug("insertMissing(), already generated: {} {}", batchArgs.get(i)[2], batchArgs.get(i)[3]);
+            }
+        }
+
+        LOGGER.warn("insertMissing(), skipped already generated: {}", batchArgs.size() - inserted);
+        return inserted;
+    }
+}
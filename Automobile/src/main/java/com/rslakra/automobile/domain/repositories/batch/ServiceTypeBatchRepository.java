@@ -0,0 +1,94 @@
+package com.rslakra.automobile.domain.repositories.batch;
+
+import com.rslakra.automobile.domain.entities.ServiceType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes service types with JDBC batches.
+ *
+ * @author Rohtash Lakra
+ */
+@Repository
+public class ServiceTypeBatchRepository extends AbstractBatchRepository {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceTypeBatchRepository.class);
+
+    private static final String INSERT_SQL = "INSERT INTO service_types (id, name, status, version, created_on, "
+                                             + "created_at, created_by, updated_on, updated_at, updated_by) "
+                                             + "VALUES (?, ?, ?, 0, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE service_types SET name = ?, status = ?, version = version + 1, "
+                                             + "updated_on = ?, updated_at = ?, updated_by = ? "
+                                             + "WHERE id = ? AND version = ?";
+
+    /**
+     * @param jdbcTemplate
+     * @param auditorAware
+     */
+    @Autowired
+    public ServiceTypeBatchRepository(JdbcTemplate jdbcTemplate, AuditorAware<String> auditorAware) {
+        super(jdbcTemplate, auditorAware);
+    }
+
+    /**
+     * Inserts the given (new) service types as a single JDBC batch, and sets their ids.
+     *
+     * @param serviceTypes
+     * @return the number of inserted service types
+     */
+    public int insertAll(List<ServiceType> serviceTypes) {
+        LOGGER.debug("+insertAll({})", serviceTypes.size());
+        if (serviceTypes.isEmpty()) {
+            return 0;
+        }
+
+        final long[] ids = nextIds(serviceTypes.size());
+        final Object[] auditValues = auditValues();
+        final List<Object[]> batchArgs = new ArrayList<>(serviceTypes.size());
+        for (int i = 0; i < serviceTypes.size(); i++) {
+            final ServiceType serviceType = serviceTypes.get(i);
+            serviceType.setId(ids[i]);
+            batchArgs.add(new Object[]{
+                ids[i], serviceType.getName(), serviceType.getStatus(), auditValues[0], auditValues[1],
+                auditValues[2], auditValues[3], auditValues[4], auditValues[5]
+            });
+        }
+
+        getJdbcTemplate().batchUpdate(INSERT_SQL, batchArgs);
+        LOGGER.debug("-insertAll(), inserted: {}", batchArgs.size());
+        return batchArgs.size();
+    }
+
+    /**
+     * Updates the given service types as a single JDBC batch, each only if it still has the version it was read with.
+     *
+     * @param serviceTypes
+     * @return the number of rows updated for each service type, 0 if it's missing or its version is stale
+     */
+    public int[] updateAll(List<ServiceType> serviceTypes) {
+        LOGGER.debug("+updateAll({})", serviceTypes.size());
+        if (serviceTypes.isEmpty()) {
+            return new int[0];
+        }
+
+        final Object[] auditValues = auditValues();
+        final List<Object[]> batchArgs = new ArrayList<>(serviceTypes.size());
+        for (ServiceType serviceType : serviceTypes) {
+            batchArgs.add(new Object[]{
+                serviceType.getName(), serviceType.getStatus(), auditValues[3], auditValues[4], auditValues[5],
+                serviceType.getId(), serviceType.getVersion()
+            });
+        }
+
+        final int[] updateCounts = getJdbcTemplate().batchUpdate(UPDATE_SQL, batchArgs);
+        LOGGER.debug("-updateAll(), updateCounts: {}", updateCounts.length);
+        return updateCounts;
+    }
+}
@@ -0,0 +1,82 @@
+package com.rslakra.automobile.dto;
+
+import com.rslakra.appsuite.core.ToString;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The flat record of an appointment in the exported and imported files. The user and the services are referred to by
+ * their email and names, so the files can be moved between systems.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public final class AppointmentRecord {
+
+    private Long id;
+    private String userEmail;
+    private String make;
+    private String model;
+    private Short year;
+    private AppointmentStatus status;
+    private LocalDate appointmentOn;
+    private LocalTime startTime;
+    private LocalTime endTime;
+    private List<String> services = new ArrayList<>(2);
+
+    /**
+     * Selected in JPQL once per service of the appointment; the rows of the same appointment are merged by the reader.
+     *
+     * @param id
+     * @param userEmail
+     * @param make
+     * @param model
+     * @param year
+     * @param status
+     * @param appointmentOn
+     * @param startTime
+     * @param endTime
+     * @param service
+     */
+    public AppointmentRecord(Long id, String userEmail, String make, String model, Short year,
+                             AppointmentStatus status, LocalDate appointmentOn, LocalTime startTime,
+                             LocalTime endTime, String service) {
+        this.id = id;
+        this.userEmail = userEmail;
+        this.make = make;
+        this.model = model;
+        this.year = year;
+        this.status = status;
+        this.appointmentOn = appointmentOn;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        if (service != null) {
+            services.add(service);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return ToString.of(AppointmentRecord.class)
+            .add("id", id)
+            .add("userEmail", userEmail)
+            .add("make", make)
+            .add("model", model)
+            .add("year", year)
+            .add("status", status)
+            .add("appointmentOn", appointmentOn)
+            .add("startTime", startTime)
+            .add("endTime", endTime)
+            .add("services", services)
+            .toString();
+    }
+}
@@ -0,0 +1,69 @@
+package com.rslakra.automobile.dto;
+
+import com.rslakra.appsuite.core.ToString;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The read-only row of an appointment the list views and the REST listing show. It's selected directly in JPQL, so
+ * it's never tracked by the persistence context and doesn't carry the user or the service entities along.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+public final class AppointmentSummary {
+
+    private final Long id;
+    private final LocalDate appointmentOn;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+    private final AppointmentStatus status;
+    private final Long userId;
+    private final String userEmail;
+    private final List<String> services = new ArrayList<>(2);
+
+    /**
+     * @param id
+     * @param appointmentOn
+     * @param startTime
+     * @param endTime
+     * @param status
+     * @param userId
+     * @param userEmail
+     */
+    public AppointmentSummary(Long id, LocalDate appointmentOn, LocalTime startTime, LocalTime endTime,
+                              AppointmentStatus status, Long userId, String userEmail) {
+        this.id = id;
+        this.appointmentOn = appointmentOn;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.status = status;
+        this.userId = userId;
+        this.userEmail = userEmail;
+    }
+
+    /**
+     * @param serviceName
+     */
+    public void addService(String serviceName) {
+        services.add(serviceName);
+    }
+
+    @Override
+    public String toString() {
+        return ToString.of(AppointmentSummary.class)
+            .add("id", id)
+            .add("appointmentOn", appointmentOn)
+            .add("startTime", startTime)
+            .add("endTime", endTime)
+            .add("status", status)
+            .add("userId", userId)
+            .add("services", services)
+            .toString();
+    }
+}
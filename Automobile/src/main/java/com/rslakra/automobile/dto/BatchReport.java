@@ -0,0 +1,112 @@
+package com.rslakra.automobile.dto;
+
+import com.rslakra.appsuite.core.ToString;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The per-item outcome of a batch request. The items are reported in the order of the request, so a client can match
+ * every failure to the record it sent.
+ *
+ * @author Rohtash Lakra
+ */
+public final class BatchReport {
+
+    private final Item[] items;
+    private int succeeded;
+    private int failed;
+
+    /**
+     * @param size
+     */
+    public BatchReport(int size) {
+        this.items = new Item[size];
+    }
+
+    /**
+     * @param index
+     * @param id
+     */
+    public void succeeded(int index, Long id) {
+        items[index] = new Item(index, id, null);
+        succeeded++;
+    }
+
+    /**
+     * @param index
+     * @param error
+     */
+    public void failed(int index, String error) {
+        items[index] = new Item(index, null, error);
+        failed++;
+    }
+
+    /**
+     * @param index
+     * @return
+     */
+    public boolean isFailed(int index) {
+        return items[index] != null && !items[index].isSucceeded();
+    }
+
+    /**
+     * @return
+     */
+    public List<Item> getItems() {
+        return Arrays.asList(items);
+    }
+
+    /**
+     * @return
+     */
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return
+     */
+    public int getFailed() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.of(BatchReport.class)
+            .add("items", items.length)
+            .add("succeeded", succeeded)
+            .add("failed", failed)
+            .toString();
+    }
+
+    /**
+     * The outcome of one item: the id of the written record, or the reason it was rejected.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class Item {
+
+        private final int index;
+        private final Long id;
+        private final String error;
+
+        /**
+         * @return
+         */
+        public boolean isSucceeded() {
+            return error == null;
+        }
+
+        @Override
+        public String toString() {
+            return ToString.of(Item.class)
+                .add("index", index)
+                .add("id", id)
+                .add("error", error)
+                .toString();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.rslakra.automobile.dto;
+
+import com.rslakra.appsuite.core.ToString;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of a file import: the number of imported and rejected rows, and the reason of each rejection. Files may
+ * have millions of rows, so only the first <code>maxErrors</code> errors are kept, while all of them are counted.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+public final class ImportReport {
+
+    private final List<RowError> errors = new ArrayList<>();
+    private final int maxErrors;
+    private long rows;
+    private long imported;
+    private long failed;
+
+    /**
+     * @param maxErrors
+     */
+    public ImportReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Counts a row read from the file.
+     */
+    public void read() {
+        rows++;
+    }
+
+    /**
+     * @param count
+     */
+    public void imported(int count) {
+        imported += count;
+    }
+
+    /**
+     * @param row the line of the row in the file, starting at 1
+     * @param error
+     */
+    public void failed(long row, String error) {
+        failed++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(row, error));
+        }
+    }
+
+    /**
+     * @return true if some errors were counted but not kept
+     */
+    public boolean isTruncated() {
+        return failed > errors.size();
+    }
+
+    @Override
+    public String toString() {
+        return ToString.of(ImportReport.class)
+            .add("rows", rows)
+            .add("imported", imported)
+            .add("failed", failed)
+            .toString();
+    }
+
+    /**
+     * The reason a row was rejected.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static final class RowError {
+
+        private final long row;
+        private final String error;
+
+        @Override
+        public String toString() {
+            return ToString.of(RowError.class)
+                .add("row", row)
+                .add("error", error)
+                .toString();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.rslakra.automobile.dto;
+
+import com.rslakra.appsuite.core.ToString;
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
+import com.rslakra.automobile.domain.entities.Schedule;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Base64;
+
+/**
+ * The position of a schedule in the <code>(scheduleDate, startTime, id)</code> order, the schedule pages are read
+ * after. It's passed around as an opaque, url-safe token.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+@AllArgsConstructor
+public final class ScheduleCursor {
+
+    private static final String SEPARATOR = ",";
+
+    private final LocalDate scheduleDate;
+    private final LocalTime startTime;
+    private final long id;
+
+    /**
+     * @param schedule
+     * @return
+     */
+    public static ScheduleCursor of(Schedule schedule) {
+        return new ScheduleCursor(schedule.getScheduleDate(), schedule.getStartTime(), schedule.getId());
+    }
+
+    /**
+     * Returns the cursor that comes before every schedule of the given date.
+     *
+     * @param fromDate
+     * @return
+     */
+    public static ScheduleCursor before(LocalDate fromDate) {
+        return new ScheduleCursor(fromDate.minusDays(1), LocalTime.MAX, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param token
+     * @return
+     */
+    public static ScheduleCursor decode(String token) {
+        try {
+            final String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8)
+                .split(SEPARATOR);
+            return new ScheduleCursor(LocalDate.parse(parts[0]), LocalTime.parse(parts[1]), Long.parseLong(parts[2]));
+        } catch (RuntimeException ex) {
+            throw new InvalidRequestException("Invalid schedule cursor: " + token);
+        }
+    }
+
+    /**
+     * @return
+     */
+    public String encode() {
+        final String value = String.join(SEPARATOR, scheduleDate.toString(), startTime.toString(), String.valueOf(id));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns true if the given schedule comes after this cursor.
+     *
+     * @param scheduleDate
+     * @param startTime
+     * @param id
+     * @return
+     */
+    public boolean isBefore(LocalDate scheduleDate, LocalTime startTime, long id) {
+        int result = this.scheduleDate.compareTo(scheduleDate);
+        if (result == 0) {
+            result = this.startTime.compareTo(startTime);
+        }
+        if (result == 0) {
+            result = Long.compare(this.id, id);
+        }
+
+        return result < 0;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.of(ScheduleCursor.class)
+            .add("scheduleDate", scheduleDate)
+            .add("startTime", startTime)
+            .add("id", id)
+            .toString();
+    }
+}
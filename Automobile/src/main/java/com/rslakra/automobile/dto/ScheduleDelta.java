@@ -0,0 +1,43 @@
+package com.rslakra.automobile.dto;
+
+import com.rslakra.appsuite.core.ToString;
+import com.rslakra.automobile.service.event.ScheduleChangedEvent;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * The change of a schedule's availability pushed to the clients of the schedules stream.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+@AllArgsConstructor
+public final class ScheduleDelta {
+
+    private final Long id;
+    private final int remaining;
+    private final boolean available;
+    private final boolean deleted;
+    private final long version;
+
+    /**
+     * @param event
+     * @return
+     */
+    public static ScheduleDelta of(ScheduleChangedEvent event) {
+        return new ScheduleDelta(event.getId(),
+                                 Math.max(0, event.getMaxAppointments() - event.getCurrentAppointments()),
+                                 event.hasAvailability(), event.isDeleted(), event.getVersion());
+    }
+
+    @Override
+    public String toString() {
+        return ToString.of(ScheduleDelta.class)
+            .add("id", id)
+            .add("remaining", remaining)
+            .add("available", available)
+            .add("deleted", deleted)
+            .add("version", version)
+            .toString();
+    }
+}
@@ -0,0 +1,44 @@
+package com.rslakra.automobile.dto;
+
+import com.rslakra.appsuite.core.ToString;
+import com.rslakra.automobile.domain.entities.Schedule;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * A keyset page of schedules within a date window.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+@AllArgsConstructor
+public final class SchedulePage {
+
+    private final List<Schedule> schedules;
+    private final LocalDate fromDate;
+    private final LocalDate toDate;
+    private final int size;
+    // the cursor of the next page, null on the last page
+    private final String nextCursor;
+
+    /**
+     * @return
+     */
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.of(SchedulePage.class)
+            .add("schedules", schedules.size())
+            .add("fromDate", fromDate)
+            .add("toDate", toDate)
+            .add("size", size)
+            .add("nextCursor", nextCursor)
+            .toString();
+    }
+}
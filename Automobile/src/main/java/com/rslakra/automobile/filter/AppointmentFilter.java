@@ -1,20 +1,190 @@
 package com.rslakra.automobile.filter;
 
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
 import com.rslakra.appsuite.spring.filter.DefaultFilter;
 import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
+ * The criteria of an appointment search. The values are checked when the filter is built, so a misspelled key or a
+ * malformed value is rejected instead of silently widening the search.
+ *
  * @author Rohtash Lakra
  * @created 4/26/23 1:05 PM
  */
 public final class AppointmentFilter extends DefaultFilter<Appointment> {
 
+    public static final String STATUS = "status";
+    // inclusive range of the appointment dates, as yyyy-MM-dd
+    public static final String FROM = "from";
+    public static final String TO = "to";
+    public static final String USER_ID = "userId";
+    public static final String SERVICE_TYPE_ID = "serviceTypeId";
+    public static final String MAKE = "make";
+    public static final String MODEL = "model";
+    public static final String YEAR = "year";
+
+    private static final Set<String> KEYS = Set.of(ID, STATUS, FROM, TO, USER_ID, SERVICE_TYPE_ID, MAKE, MODEL, YEAR);
+    // read by the pageable resolver from the same request parameters
+    private static final Set<String> PAGING_KEYS = Set.of("page", "size", "sort");
+
+    private final Map<String, String> values;
+
     /**
      * @param allParams
+     * @throws InvalidRequestException if a key is unknown or a value is malformed
      */
     public AppointmentFilter(Map<String, Object> allParams) {
         super(allParams);
+        final Map<String, String> values = new LinkedHashMap<>();
+        final Set<String> unknownKeys = new TreeSet<>();
+        if (allParams != null) {
+            allParams.forEach((key, value) -> {
+                if (KEYS.contains(key)) {
+                    if (value != null && !value.toString().isBlank()) {
+                        values.put(key, value.toString().trim());
+                    }
+                } else if (!PAGING_KEYS.contains(key)) {
+                    unknownKeys.add(key);
+                }
+            });
+        }
+        if (!unknownKeys.isEmpty()) {
+            throw new InvalidRequestException("Unknown filter keys: " + unknownKeys + ", expected any of: "
+                                              + new TreeSet<>(KEYS));
+        }
+
+        this.values = Collections.unmodifiableMap(values);
+        // fail fast on malformed values
+        getId();
+        getStatus();
+        getFrom();
+        getTo();
+        getUserId();
+        getServiceTypeId();
+        getYear();
+        if (getFrom() != null && getTo() != null && getFrom().isAfter(getTo())) {
+            throw new InvalidRequestException("The date range is empty: " + getFrom() + " to " + getTo());
+        }
+    }
+
+    /**
+     * @return
+     */
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * @return
+     */
+    public Long getId() {
+        return toLong(ID);
+    }
+
+    /**
+     * @return
+     */
+    public AppointmentStatus getStatus() {
+        final String status = values.get(STATUS);
+        try {
+            return (status == null ? null : AppointmentStatus.valueOf(status.toUpperCase(Locale.ROOT)));
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidRequestException("Invalid status: " + status);
+        }
+    }
+
+    /**
+     * @return
+     */
+    public LocalDate getFrom() {
+        return toDate(FROM);
+    }
+
+    /**
+     * @return
+     */
+    public LocalDate getTo() {
+        return toDate(TO);
+    }
+
+    /**
+     * @return
+     */
+    public Long getUserId() {
+        return toLong(USER_ID);
+    }
+
+    /**
+     * @return
+     */
+    public Long getServiceTypeId() {
+        return toLong(SERVICE_TYPE_ID);
+    }
+
+    /**
+     * @return
+     */
+    public String getMake() {
+        return values.get(MAKE);
+    }
+
+    /**
+     * @return
+     */
+    public String getModel() {
+        return values.get(MODEL);
+    }
+
+    /**
+     * @return
+     */
+    public Short getYear() {
+        final String year = values.get(YEAR);
+        try {
+            return (year == null ? null : Short.valueOf(year));
+        } catch (NumberFormatException ex) {
+            throw new InvalidRequestException("Invalid year: " + year);
+        }
+    }
+
+    /**
+     * @param key
+     * @return
+     */
+    private Long toLong(String key) {
+        final String value = values.get(key);
+        try {
+            return (value == null ? null : Long.valueOf(value));
+        } catch (NumberFormatException ex) {
+            throw new InvalidRequestException("Invalid " + key + ": " + value);
+        }
+    }
+
+    /**
+     * @param key
+     * @return
+     */
+    private LocalDate toDate(String key) {
+        final String value = values.get(key);
+        try {
+            return (value == null ? null : LocalDate.parse(value));
+        } catch (DateTimeParseException ex) {
+            throw new InvalidRequestException("Invalid " + key + " date: " + value + ", expected yyyy-MM-dd");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
     }
 }
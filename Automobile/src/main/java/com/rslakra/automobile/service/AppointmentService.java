@@ -2,6 +2,8 @@ package com.rslakra.automobile.service;
 
 import com.rslakra.appsuite.spring.service.AbstractService;
 import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.dto.AppointmentSummary;
+import com.rslakra.automobile.dto.BatchReport;
 
 import java.util.List;
 
@@ -19,5 +21,58 @@ public interface AppointmentService extends AbstractService<Appointment, Long> {
      * @return
      */
     List<Appointment> getAppointmentsForCurrentUser();
-}
 
+    /**
+     * Returns the summaries of the appointments the current user can see, in the order of
+     * <code>getAppointmentsForCurrentUser</code>, without loading the appointment entities.
+     *
+     * @return
+     */
+    List<AppointmentSummary> getAppointmentSummariesForCurrentUser();
+
+    /**
+     * Books the schedule and creates the appointment at its time for the current user, both in one transaction. Throws
+     * <code>InvalidRequestException</code> if the schedule has no availability left.
+     *
+     * @param appointment
+     * @param scheduleId
+     * @return
+     */
+    Appointment book(Appointment appointment, Long scheduleId);
+
+    /**
+     * Cancels the appointment. The schedule capacity it held is released, which promotes the oldest appointment on the
+     * schedule's waitlist.
+     *
+     * @param id
+     * @return
+     */
+    Appointment cancel(Long id);
+
+    /**
+     * Creates the appointments for the current user in one transaction, and reports the outcome of each of them. The
+     * invalid appointments are rejected without failing the others.
+     *
+     * @param appointments
+     * @return
+     */
+    BatchReport createAll(List<Appointment> appointments);
+
+    /**
+     * Updates the appointments in one transaction, each only if it still has the version it was read with, and reports
+     * the outcome of each of them. The capacity that the new statuses give back is released.
+     *
+     * @param appointments
+     * @return
+     */
+    BatchReport updateAll(List<Appointment> appointments);
+
+    /**
+     * Deletes the appointments with the given ids in one transaction, releases the schedule capacity they held, and
+     * reports the outcome of each of them.
+     *
+     * @param ids
+     * @return
+     */
+    BatchReport deleteAll(List<Long> ids);
+}
@@ -1,57 +1,179 @@
 package com.rslakra.automobile.service;
 
 import com.rslakra.automobile.service.security.context.ContextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cglib.core.internal.LoadingCache;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 import jakarta.servlet.http.HttpServletRequest;
 
 /**
+ * Counts the failed logins of each client IP and each username over a sliding window, and blocks them once they reach
+ * <code>maxAttempts</code> failures, before their passwords are ever hashed.
+ * <p>
+ * The window is split into <code>WINDOW_BUCKETS</code> buckets, so a failure stops counting at most one bucket after
+ * the window passed it. The counters live in a concurrent map, which only locks the bin of the key being counted, and
+ * at most <code>maxTracked</code> of them are kept. When the map is full, the expired counters are swept, at most
+ * once a bucket; a live counter is never dropped. If it's still full, the failures of new keys aren't counted until
+ * counters expire, so spraying keys can neither reset the failures of the keys already tracked nor block the keys
+ * that never failed.
+ *
  * @author Rohtash Lakra
  * @created 4/21/23 3:56 PM
  */
 @Service
 public class LoginAttemptService {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoginAttemptService.class);
+
     public static final int MAX_ATTEMPT = 10;
-    private LoadingCache<String, Integer, Integer> cacheAttempts;
+    private static final int WINDOW_BUCKETS = 10;
+    private static final String IP_PREFIX = "ip:";
+    private static final String USERNAME_PREFIX = "user:";
+
+    private final ConcurrentHashMap<String, AttemptCounter> counters = new ConcurrentHashMap<>();
+    private final AtomicLong sweptBucket = new AtomicLong(Long.MIN_VALUE);
+    private final int maxAttempts;
+    private final long bucketNanos;
+    private final int maxTracked;
 
     @Autowired
     private HttpServletRequest servletRequest;
 
-    public LoginAttemptService() {
+    /**
+     * @param maxAttempts
+     * @param windowSeconds
+     * @param maxTracked
+     */
+    public LoginAttemptService(@Value("${users.login.maxAttempts:" + MAX_ATTEMPT + "}") int maxAttempts,
+                               @Value("${users.login.windowSeconds:900}") long windowSeconds,
+                               @Value("${users.login.maxTracked:100000}") int maxTracked) {
         super();
-//        cacheAttempts =
-// CacheBuilder.newBuilder().expireAfterWrite(1, TimeUnit.DAYS).build(new CacheLoader<String, Integer>() {
-//                @Override
-//                public Integer load(final String key) {
-//                    return 0;
-//                }
-// });
+        LOGGER.debug("LoginAttemptService({}, {}, {})", maxAttempts, windowSeconds, maxTracked);
+        this.maxAttempts = maxAttempts;
+        this.bucketNanos = Math.max(1, TimeUnit.SECONDS.toNanos(windowSeconds) / WINDOW_BUCKETS);
+        this.maxTracked = maxTracked;
     }
 
     /**
-     * @param key
+     * Counts a failed login of the username from the client IP of the current request.
+     *
+     * @param username
+     */
+    public void loginFailed(final String username) {
+        final long bucket = currentBucket();
+        final String clientIP = getClientIP();
+        final int ipFailures = add(IP_PREFIX + clientIP, bucket);
+        final int userFailures = (username == null ? 0 : add(toUsernameKey(username), bucket));
+        if (Math.max(ipFailures, userFailures) == maxAttempts) {
+            LOGGER.warn("Blocking the logins of [{}] from [{}] after {} failures", username, clientIP, maxAttempts);
+        }
+    }
+
+    /**
+     * Forgets the failures of the username. The failures of the client IP still count, so an attacker can't clear
+     * them by logging into an account of their own.
+     *
+     * @param username
      */
-    public void loginFailed(final String key) {
-        int attempts;
-//        try {
-// attempts = cacheAttempts.get(key);
-//        } catch (final ExecutionException e) {
-// attempts = 0;
-//        }
-//        attempts++;
-//        cacheAttempts.put(key, attempts);
+    public void loginSucceeded(final String username) {
+        if (username != null) {
+            counters.remove(toUsernameKey(username));
+        }
     }
 
+    /**
+     * Returns true if the client IP of the current request is blocked.
+     *
+     * @return
+     */
     public boolean isBlocked() {
-//        try {
-// return cacheAttempts.get(getClientIP()) >= MAX_ATTEMPT;
-//        } catch (final ExecutionException ex) {
-// return false;
-//        }
-        return false;
+        return isBlocked(null);
+    }
+
+    /**
+     * Returns true if the client IP of the current request or the username is blocked.
+     *
+     * @param username
+     * @return
+     */
+    public boolean isBlocked(final String username) {
+        final long bucket = currentBucket();
+        return (count(IP_PREFIX + getClientIP(), bucket) >= maxAttempts
+                || (username != null && count(toUsernameKey(username), bucket) >= maxAttempts));
+    }
+
+    /**
+     * @param key
+     * @param bucket
+     * @return the failures of the key in the window
+     */
+    private int count(final String key, final long bucket) {
+        final AttemptCounter counter = counters.get(key);
+        return (counter == null ? 0 : counter.count(bucket));
+    }
+
+    /**
+     * @param key
+     * @param bucket
+     * @return the failures of the key in the window, including this one, or 0 if the key can't be tracked
+     */
+    private int add(final String key, final long bucket) {
+        if (counters.size() >= maxTracked && !counters.containsKey(key)) {
+            sweep(bucket);
+            if (counters.size() >= maxTracked) {
+                return 0;
+            }
+        }
+
+        final int[] failures = new int[1];
+        counters.compute(key, (k, counter) -> {
+            final AttemptCounter attemptCounter = (counter == null ? new AttemptCounter() : counter);
+            failures[0] = attemptCounter.add(bucket);
+            return attemptCounter;
+        });
+        return failures[0];
+    }
+
+    /**
+     * Drops the expired counters, unless they were already swept in this bucket, so a flood of new keys costs one scan
+     * of the map per bucket.
+     *
+     * @param bucket
+     */
+    private void sweep(final long bucket) {
+        final long lastBucket = sweptBucket.get();
+        if (lastBucket == bucket || !sweptBucket.compareAndSet(lastBucket, bucket)) {
+            return;
+        }
+
+        counters.keySet().forEach(key -> counters.computeIfPresent(
+            key, (k, counter) -> (counter.isExpired(bucket) ? null : counter)));
+        if (counters.size() >= maxTracked) {
+            LOGGER.warn("Tracking {} login counters, not counting the failures of new keys", counters.size());
+        }
+    }
+
+    /**
+     * @return
+     */
+    private long currentBucket() {
+        return System.nanoTime() / bucketNanos;
+    }
+
+    /**
+     * @param username
+     * @return
+     */
+    private static String toUsernameKey(final String username) {
+        return USERNAME_PREFIX + username.trim().toLowerCase(Locale.ROOT);
     }
 
     private String getClientIP() {
@@ -61,4 +183,51 @@ public class LoginAttemptService {
         }
         return servletRequest.getRemoteAddr();
     }
+
+    /**
+     * The failures of a key in each bucket of the window, kept in a ring of <code>WINDOW_BUCKETS</code> slots.
+     */
+    private static final class AttemptCounter {
+
+        private final long[] buckets = new long[WINDOW_BUCKETS];
+        private final int[] failures = new int[WINDOW_BUCKETS];
+        private long lastBucket;
+
+        /**
+         * @param bucket
+         * @return the failures in the window, including this one
+         */
+        synchronized int add(final long bucket) {
+            final int slot = (int) Math.floorMod(bucket, (long) WINDOW_BUCKETS);
+            if (buckets[slot] != bucket) {
+                buckets[slot] = bucket;
+                failures[slot] = 0;
+            }
+            failures[slot]++;
+            lastBucket = bucket;
+            return count(bucket);
+        }
+
+        /**
+         * @param bucket
+         * @return the failures in the window ending with the bucket
+         */
+        synchronized int count(final long bucket) {
+            int count = 0;
+            for (int i = 0; i < WINDOW_BUCKETS; i++) {
+                if (bucket - buckets[i] < WINDOW_BUCKETS) {
+                    count += failures[i];
+                }
+            }
+            return count;
+        }
+
+        /**
+         * @param bucket
+         * @return
+         */
+        synchronized boolean isExpired(final long bucket) {
+            return (bucket - lastBucket >= WINDOW_BUCKETS);
+        }
+    }
 }
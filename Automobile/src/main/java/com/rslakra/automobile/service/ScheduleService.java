@@ -2,6 +2,7 @@ package com.rslakra.automobile.service;
 
 import com.rslakra.appsuite.spring.service.AbstractService;
 import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.dto.SchedulePage;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -13,6 +14,10 @@ import java.util.List;
  */
 public interface ScheduleService extends AbstractService<Schedule, Long> {
 
+    int DEFAULT_PAGE_SIZE = 50;
+    int MAX_PAGE_SIZE = 200;
+    int DEFAULT_WINDOW_DAYS = 30;
+
     /**
      * Find all available schedules from today onwards.
      *
@@ -27,6 +32,21 @@ public interface ScheduleService extends AbstractService<Schedule, Long> {
      */
     List<Schedule> getAllSchedules();
 
+    /**
+     * Find a keyset page of the schedules between <code>fromDate</code> and <code>toDate</code> (both inclusive),
+     * ordered by date, start time and id. The window defaults to the next <code>DEFAULT_WINDOW_DAYS</code> days from
+     * today; available only pages never start before today.
+     *
+     * @param availableOnly true to only return the schedules that can be booked (served from the availability index)
+     * @param fromDate
+     * @param toDate
+     * @param cursor        the <code>nextCursor</code> of the previous page, null for the first page
+     * @param size          the page size, capped at <code>MAX_PAGE_SIZE</code>
+     * @return
+     */
+    SchedulePage getSchedulePage(boolean availableOnly, LocalDate fromDate, LocalDate toDate, String cursor,
+                                 Integer size);
+
     /**
      * Find schedules for a specific date.
      *
@@ -36,7 +56,7 @@ public interface ScheduleService extends AbstractService<Schedule, Long> {
     List<Schedule> getSchedulesForDate(LocalDate date);
 
     /**
-     * Book a schedule.
+     * Book a schedule, or throw <code>InvalidRequestException</code> if it has no availability left.
      *
      * @param scheduleId
      * @return
@@ -52,12 +72,30 @@ public interface ScheduleService extends AbstractService<Schedule, Long> {
     Schedule releaseSchedule(Long scheduleId);
 
     /**
-     * Generate default schedules for a date range.
+     * Releases the given number of booked appointments of a schedule at once.
+     *
+     * @param scheduleId
+     * @param count
+     * @return
+     */
+    Schedule releaseSchedule(Long scheduleId, int count);
+
+    /**
+     * Toggle the availability of a schedule.
+     *
+     * @param scheduleId
+     * @return
+     */
+    Schedule toggleAvailability(Long scheduleId);
+
+    /**
+     * Generate the missing schedules of a date range from the schedule templates. Schedules that already exist are
+     * kept as they are.
      *
      * @param startDate
      * @param endDate
-     * @return
+     * @return the number of generated schedules
      */
-    List<Schedule> generateDefaultSchedules(LocalDate startDate, LocalDate endDate);
+    int generateDefaultSchedules(LocalDate startDate, LocalDate endDate);
 }
 
@@ -3,10 +3,21 @@ package com.rslakra.automobile.service;
 import com.rslakra.appsuite.spring.service.AbstractService;
 import com.rslakra.automobile.domain.entities.ServiceType;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * @author Rohtash Lakra
  * @created 4/21/23 12:19 PM
  */
 public interface ServiceTypeService extends AbstractService<ServiceType, Long> {
 
+    /**
+     * Returns the service types with the given ids, in the order of the ids and without repeats, or throws
+     * <code>NoRecordFoundException</code> naming the ids that don't exist.
+     *
+     * @param ids
+     * @return
+     */
+    List<ServiceType> getByIds(Collection<Long> ids);
 }
@@ -0,0 +1,39 @@
+package com.rslakra.automobile.service;
+
+import com.rslakra.automobile.domain.entities.Appointment;
+
+/**
+ * Service interface for the per-schedule waitlists. A waiting request is an appointment of the schedule in the
+ * <code>WAITLISTED</code> status; it's promoted to <code>PENDING</code> in the transaction that frees the capacity.
+ *
+ * @author Rohtash Lakra
+ */
+public interface WaitlistService {
+
+    /**
+     * Books the schedule for the current user if it has capacity, otherwise appends the appointment to its waitlist.
+     * Joining a waitlist the user is already on returns the waiting appointment.
+     *
+     * @param scheduleId
+     * @param appointment
+     * @return the appointment, <code>PENDING</code> if booked or <code>WAITLISTED</code>
+     */
+    Appointment join(Long scheduleId, Appointment appointment);
+
+    /**
+     * Books the freed capacity of the schedule for the oldest waiting appointment. Must run in the transaction that
+     * freed the capacity.
+     *
+     * @param scheduleId
+     * @return the promoted appointment or null if nobody is waiting
+     */
+    Appointment promoteNext(Long scheduleId);
+
+    /**
+     * Returns the number of appointments waiting for the schedule.
+     *
+     * @param scheduleId
+     * @return
+     */
+    long getWaitlistLength(Long scheduleId);
+}
@@ -0,0 +1,449 @@
+package com.rslakra.automobile.service.cache;
+
+import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.domain.repositories.ScheduleRepository;
+import com.rslakra.automobile.dto.ScheduleCursor;
+import com.rslakra.automobile.service.event.ScheduleChangedEvent;
+import com.rslakra.automobile.service.event.SchedulesGeneratedEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-process availability index of the schedules, keyed by date.
+ * <p>
+ * Every day holds an immutable, start-time ordered array of its slots with their primitive capacity counters and a
+ * bitset of the slots that can still take an appointment. Readers walk the days without any locking; writers build a
+ * new day entry and swap it in.
+ * <p>
+ * The index is built from the <code>schedules</code> table at startup and kept current by the
+ * {@link ScheduleChangedEvent}s the schedule service publishes after each commit. Events may be delivered out of
+ * commit order, so every change carries the schedule's version and stale ones are ignored, and the deleted schedules
+ * keep a tombstone with their version. Listeners never block: they queue their event and whichever thread holds the
+ * write lock applies the queue. A rebuild applies the events queued while it read the table to the new days before it
+ * swaps them in, so none of them is lost.
+ * <p>
+ * Only today and the days after it are kept: the days that have passed are dropped, with their tombstones, the first
+ * time the index is written on a new day.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+public class ScheduleAvailabilityIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleAvailabilityIndex.class);
+
+    private final ScheduleRepository scheduleRepository;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Queue<ScheduleChangedEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+
+    // read lock-free, replaced as a whole on rebuild
+    private volatile ConcurrentNavigableMap<LocalDate, DaySlots> days = new ConcurrentSkipListMap<>();
+    private volatile boolean loaded;
+
+    // guarded by the writeLock
+    private Map<Long, Slot> slotsById = new HashMap<>();
+    private final Map<Long, Slot> deletedSlots = new HashMap<>();
+    private LocalDate prunedDate;
+
+    /**
+     * @param scheduleRepository
+     */
+    @Autowired
+    public ScheduleAvailabilityIndex(ScheduleRepository scheduleRepository) {
+        LOGGER.debug("ScheduleAvailabilityIndex({})", scheduleRepository);
+        this.scheduleRepository = scheduleRepository;
+    }
+
+    /**
+     * Builds the index, once the application is ready.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        LOGGER.debug("onScheduleChanged({})", event);
+        pendingEvents.offer(event);
+        applyPendingEvents();
+    }
+
+    /**
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSchedulesGenerated(SchedulesGeneratedEvent event) {
+        LOGGER.debug("onSchedulesGenerated({})", event);
+        rebuild();
+    }
+
+    /**
+     * Returns the schedules with availability from the given date onwards, sorted by date and start time. This never
+     * touches the database; the returned schedules are detached copies.
+     *
+     * @param fromDate
+     * @return
+     */
+    public List<Schedule> getAvailableFrom(LocalDate fromDate) {
+        ensureLoaded();
+        final List<Schedule> schedules = new ArrayList<>();
+        for (DaySlots daySlots : days.tailMap(fromDate, true).values()) {
+            daySlots.collectOpenSlots(schedules);
+        }
+
+        return schedules;
+    }
+
+    /**
+     * Returns up to <code>limit</code> schedules with availability that come after the cursor and no later than the
+     * given date, in <code>(scheduleDate, startTime, id)</code> order. Only the days that are needed are visited.
+     *
+     * @param after
+     * @param toDate
+     * @param limit
+     * @return
+     */
+    public List<Schedule> getAvailableAfter(ScheduleCursor after, LocalDate toDate, int limit) {
+        ensureLoaded();
+        final List<Schedule> schedules = new ArrayList<>(limit);
+        if (after.getScheduleDate().isAfter(toDate)) {
+            return schedules;
+        }
+
+        for (DaySlots daySlots : days.subMap(after.getScheduleDate(), true, toDate, true).values()) {
+            daySlots.collectOpenSlotsAfter(after, schedules, limit);
+            if (schedules.size() >= limit) {
+                break;
+            }
+        }
+
+        return schedules;
+    }
+
+    /**
+     * Reloads the index from the <code>schedules</code> table.
+     */
+    public void rebuild() {
+        writeLock.lock();
+        try {
+            rebuildLocked();
+        } finally {
+            writeLock.unlock();
+        }
+        applyPendingEvents();
+    }
+
+    /**
+     * Compares the index against the <code>schedules</code> table and logs every difference.
+     *
+     * @return the number of schedules that differ between the index and the table
+     */
+    public int checkConsistency() {
+        LOGGER.debug("+checkConsistency()");
+        ensureLoaded();
+        final LocalDate today = LocalDate.now();
+        final Map<Long, Slot> indexedSlots = new HashMap<>();
+        for (DaySlots daySlots : days.tailMap(today, true).values()) {
+            for (Slot slot : daySlots.slots) {
+                indexedSlots.put(slot.id(), slot);
+            }
+        }
+
+        int mismatches = 0;
+        for (Schedule schedule : scheduleRepository.findAllFromDate(today)) {
+            final Slot expected = Slot.of(schedule);
+            final Slot indexed = indexedSlots.remove(expected.id());
+            if (!expected.equals(indexed)) {
+                mismatches++;
+                LOGGER.warn("checkConsistency(), expected: {}, indexed: {}", expected, indexed);
+            }
+        }
+
+        for (Slot indexed : indexedSlots.values()) {
+            mismatches++;
+            LOGGER.warn("checkConsistency(), not in table, indexed: {}", indexed);
+        }
+
+        LOGGER.debug("-checkConsistency(), mismatches: {}", mismatches);
+        return mismatches;
+    }
+
+    /**
+     * Builds the index lazily, if a read arrives before the application is ready.
+     */
+    private void ensureLoaded() {
+        if (!loaded) {
+            writeLock.lock();
+            try {
+                if (!loaded) {
+                    rebuildLocked();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            applyPendingEvents();
+        }
+    }
+
+    /**
+     * Must be called with the writeLock held.
+     */
+    private void rebuildLocked() {
+        LOGGER.debug("+rebuildLocked()");
+        final Map<Long, Slot> newSlotsById = new HashMap<>();
+        final Map<LocalDate, List<Slot>> slotsByDate = new TreeMap<>();
+        for (Schedule schedule : scheduleRepository.findAllFromDate(LocalDate.now())) {
+            final Slot slot = Slot.of(schedule);
+            final Slot deleted = deletedSlots.get(slot.id());
+            if (deleted == null || deleted.version() < slot.version()) {
+                newSlotsById.put(slot.id(), slot);
+                slotsByDate.computeIfAbsent(slot.scheduleDate(), date -> new ArrayList<>()).add(slot);
+            }
+        }
+
+        final ConcurrentNavigableMap<LocalDate, DaySlots> newDays = new ConcurrentSkipListMap<>();
+        slotsByDate.forEach((date, slots) -> newDays.put(date, DaySlots.of(slots)));
+        slotsById = newSlotsById;
+        // the changes committed while the table was read
+        applyEvents(newDays);
+        days = newDays;
+        loaded = true;
+        LOGGER.debug("-rebuildLocked(), days: {}, slots: {}", newDays.size(), newSlotsById.size());
+    }
+
+    /**
+     * Applies the queued events. A thread that can't get the writeLock leaves its event to the lock holder, which
+     * re-checks the queue after releasing it. An event published while the same thread rebuilds is left to the rebuild.
+     */
+    private void applyPendingEvents() {
+        if (writeLock.isHeldByCurrentThread()) {
+            return;
+        }
+
+        while (!pendingEvents.isEmpty() && writeLock.tryLock()) {
+            try {
+                applyEvents(days);
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies the queued events to the days, and drops the days that have passed. Must be called with the writeLock
+     * held.
+     *
+     * @param days
+     */
+    private void applyEvents(ConcurrentNavigableMap<LocalDate, DaySlots> days) {
+        final LocalDate today = LocalDate.now();
+        ScheduleChangedEvent event;
+        while ((event = pendingEvents.poll()) != null) {
+            if (event.isDeleted()) {
+                removeSlot(days, Slot.of(event));
+            } else if (!event.getScheduleDate().isBefore(today)) {
+                putSlot(days, Slot.of(event));
+            }
+        }
+
+        if (!today.equals(prunedDate)) {
+            prune(days, today);
+        }
+    }
+
+    /**
+     * Drops the days before today, along with their slots and tombstones.
+     *
+     * @param days
+     * @param today
+     */
+    private void prune(ConcurrentNavigableMap<LocalDate, DaySlots> days, LocalDate today) {
+        final Map<LocalDate, DaySlots> pastDays = days.headMap(today, false);
+        pastDays.values().forEach(daySlots -> Arrays.stream(daySlots.slots).forEach(
+            slot -> slotsById.remove(slot.id(), slot)));
+        pastDays.clear();
+        deletedSlots.values().removeIf(slot -> slot.scheduleDate().isBefore(today));
+        prunedDate = today;
+        LOGGER.debug("prune(), days: {}, slots: {}", days.size(), slotsById.size());
+    }
+
+    /**
+     * @param days
+     * @param slot
+     */
+    private void putSlot(ConcurrentNavigableMap<LocalDate, DaySlots> days, Slot slot) {
+        final Slot deleted = deletedSlots.get(slot.id());
+        if (deleted != null && deleted.version() >= slot.version()) {
+            return;
+        }
+
+        final Slot current = slotsById.get(slot.id());
+        if (current != null) {
+            if (current.version() > slot.version()) {
+                LOGGER.debug("putSlot(), ignoring stale: {}, current: {}", slot, current);
+                return;
+            }
+            removeFromDay(days, current);
+        }
+
+        slotsById.put(slot.id(), slot);
+        final DaySlots daySlots = days.get(slot.scheduleDate());
+        final List<Slot> slots = (daySlots == null ? new ArrayList<>() : daySlots.toList());
+        slots.add(slot);
+        days.put(slot.scheduleDate(), DaySlots.of(slots));
+    }
+
+    /**
+     * @param days
+     * @param deleted
+     */
+    private void removeSlot(ConcurrentNavigableMap<LocalDate, DaySlots> days, Slot deleted) {
+        deletedSlots.merge(deleted.id(), deleted, (slot, other) -> (slot.version() >= other.version() ? slot : other));
+        final Slot current = slotsById.get(deleted.id());
+        if (current != null && current.version() <= deleted.version()) {
+            slotsById.remove(deleted.id());
+            removeFromDay(days, current);
+        }
+    }
+
+    /**
+     * @param days
+     * @param slot
+     */
+    private void removeFromDay(ConcurrentNavigableMap<LocalDate, DaySlots> days, Slot slot) {
+        final DaySlots daySlots = days.get(slot.scheduleDate());
+        if (daySlots != null) {
+            final List<Slot> slots = daySlots.toList();
+            slots.removeIf(other -> other.id() == slot.id());
+            if (slots.isEmpty()) {
+                days.remove(slot.scheduleDate());
+            } else {
+                days.put(slot.scheduleDate(), DaySlots.of(slots));
+            }
+        }
+    }
+
+    /**
+     * An immutable snapshot of a single schedule.
+     */
+    private record Slot(long id, String name, LocalDate scheduleDate, LocalTime startTime, LocalTime endTime,
+                        int maxAppointments, int currentAppointments, boolean available, long version) {
+
+        private static final Comparator<Slot> ORDER = Comparator.comparing(Slot::startTime).thenComparingLong(Slot::id);
+
+        static Slot of(Schedule schedule) {
+            return new Slot(schedule.getId(), schedule.getName(), schedule.getScheduleDate(), schedule.getStartTime(),
+                            schedule.getEndTime(),
+                            (schedule.getMaxAppointments() == null ? 1 : schedule.getMaxAppointments()),
+                            (schedule.getCurrentAppointments() == null ? 0 : schedule.getCurrentAppointments()),
+                            schedule.isAvailable(), schedule.getVersion());
+        }
+
+        static Slot of(ScheduleChangedEvent event) {
+            return new Slot(event.getId(), event.getName(), event.getScheduleDate(), event.getStartTime(),
+                            event.getEndTime(), event.getMaxAppointments(), event.getCurrentAppointments(),
+                            event.isAvailable(), event.getVersion());
+        }
+
+        boolean hasAvailability() {
+            return available && currentAppointments < maxAppointments;
+        }
+
+        Schedule toSchedule() {
+            final Schedule schedule = new Schedule(scheduleDate, startTime, endTime);
+            schedule.setId(id);
+            schedule.setName(name);
+            schedule.setMaxAppointments(maxAppointments);
+            schedule.setCurrentAppointments(currentAppointments);
+            schedule.setAvailable(available);
+            schedule.setVersion(version);
+            return schedule;
+        }
+    }
+
+    /**
+     * The slots of a single day, ordered by start time, with a bitset of the ones that have availability.
+     */
+    private static final class DaySlots {
+
+        private final Slot[] slots;
+        private final BitSet openSlots;
+
+        private DaySlots(Slot[] slots) {
+            this.slots = slots;
+            this.openSlots = new BitSet(slots.length);
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i].hasAvailability()) {
+                    openSlots.set(i);
+                }
+            }
+        }
+
+        static DaySlots of(List<Slot> slots) {
+            final Slot[] sorted = slots.toArray(new Slot[0]);
+            Arrays.sort(sorted, Slot.ORDER);
+            return new DaySlots(sorted);
+        }
+
+        List<Slot> toList() {
+            return new ArrayList<>(Arrays.asList(slots));
+        }
+
+        void collectOpenSlots(List<Schedule> schedules) {
+            for (int i = openSlots.nextSetBit(0); i >= 0; i = openSlots.nextSetBit(i + 1)) {
+                schedules.add(slots[i].toSchedule());
+            }
+        }
+
+        void collectOpenSlotsAfter(ScheduleCursor after, List<Schedule> schedules, int limit) {
+            for (int i = openSlots.nextSetBit(firstSlotAfter(after)); i >= 0 && schedules.size() < limit;
+                 i = openSlots.nextSetBit(i + 1)) {
+                schedules.add(slots[i].toSchedule());
+            }
+        }
+
+        /**
+         * Binary searches the index of the first slot after the cursor.
+         */
+        private int firstSlotAfter(ScheduleCursor after) {
+            int low = 0;
+            int high = slots.length;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                final Slot slot = slots[mid];
+                if (after.isBefore(slot.scheduleDate(), slot.startTime(), slot.id())) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+
+            return low;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.rslakra.automobile.service.cache;
+
+import com.rslakra.automobile.domain.entities.ServiceType;
+import com.rslakra.automobile.domain.repositories.ServiceTypeRepository;
+import com.rslakra.automobile.service.event.ServiceTypesChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of the service type catalog, which is read by every appointment page but rarely changes.
+ * <p>
+ * The whole catalog is loaded with a single query on first use and held as an immutable snapshot that readers share
+ * without locking. The {@link ServiceTypesChangedEvent}s the service type service publishes drop the snapshot once
+ * their transaction completes, and the next reader loads it again. Every drop bumps a generation, so a load that
+ * overlapped a change never installs what it read before the change.
+ * <p>
+ * Reports <code>cache.gets</code> (tagged <code>result=hit|miss</code>), <code>cache.loads</code>,
+ * <code>cache.evictions</code> and <code>cache.size</code>, tagged <code>cache=serviceTypes</code>.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+public class ServiceTypeCatalog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServiceTypeCatalog.class);
+
+    private static final String CACHE_NAME = "serviceTypes";
+
+    private final ServiceTypeRepository serviceTypeRepository;
+    private final AtomicLong generation = new AtomicLong();
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter loads;
+    private final Counter evictions;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param serviceTypeRepository
+     * @param meterRegistry
+     */
+    @Autowired
+    public ServiceTypeCatalog(ServiceTypeRepository serviceTypeRepository, MeterRegistry meterRegistry) {
+        LOGGER.debug("ServiceTypeCatalog({}, {})", serviceTypeRepository, meterRegistry);
+        this.serviceTypeRepository = serviceTypeRepository;
+        hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+            .description("Service type lookups served by the catalog").register(meterRegistry);
+        misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+            .description("Service type lookups that went to the database").register(meterRegistry);
+        loads = Counter.builder("cache.loads").tag("cache", CACHE_NAME)
+            .description("Loads of the whole service type catalog").register(meterRegistry);
+        evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME)
+            .description("Drops of the service type catalog after changes").register(meterRegistry);
+        Gauge.builder("cache.size", this, catalog -> {
+                final Snapshot current = catalog.snapshot;
+                return (current == null ? 0 : current.serviceTypes().size());
+            }).tag("cache", CACHE_NAME).description("Service types in the catalog").register(meterRegistry);
+    }
+
+    /**
+     * Drops the catalog after a rollback as well, since it may have been loaded by the rolled back transaction.
+     *
+     * @param event
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onServiceTypesChanged(ServiceTypesChangedEvent event) {
+        LOGGER.debug("onServiceTypesChanged({})", event);
+        invalidate();
+    }
+
+    /**
+     * Drops the catalog, so the next lookup loads it again.
+     */
+    public synchronized void invalidate() {
+        generation.incrementAndGet();
+        snapshot = null;
+        evictions.increment();
+    }
+
+    /**
+     * Returns all the service types, in the order of the database. The list and the service types are shared by all
+     * callers, so they must not be modified.
+     *
+     * @return
+     */
+    public List<ServiceType> getAll() {
+        final Snapshot current = snapshot;
+        if (current != null) {
+            hits.increment();
+            return current.serviceTypes();
+        }
+
+        misses.increment();
+        return load().serviceTypes();
+    }
+
+    /**
+     * Returns the service type with the given id. An id that isn't in the catalog is looked up in the database, in case
+     * the service type was written around the service; if it's there, the catalog is dropped.
+     *
+     * @param id
+     * @return
+     */
+    public Optional<ServiceType> getById(Long id) {
+        final Snapshot current = snapshot;
+        final ServiceType serviceType = (current == null ? load() : current).byId().get(id);
+        if (current != null && serviceType != null) {
+            hits.increment();
+            return Optional.of(serviceType);
+        }
+
+        misses.increment();
+        if (serviceType != null) {
+            return Optional.of(serviceType);
+        }
+
+        final Optional<ServiceType> loaded = serviceTypeRepository.findById(id);
+        if (loaded.isPresent()) {
+            LOGGER.warn("Service type [{}] missing from the catalog, dropping it", id);
+            invalidate();
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Returns the service types with the given ids, in the order of the ids and without repeats. The ids that aren't in
+     * the catalog are looked up in the database with a single query; if any of them is there, the catalog is dropped.
+     *
+     * @param ids
+     * @return the service types found, which leaves out the missing ids
+     */
+    public List<ServiceType> getByIds(Collection<Long> ids) {
+        final Snapshot current = snapshot;
+        final Map<Long, ServiceType> byId = (current == null ? load() : current).byId();
+        final Map<Long, ServiceType> serviceTypes = new LinkedHashMap<>();
+        final Set<Long> missingIds = new HashSet<>();
+        for (Long id : ids) {
+            if (id != null && !serviceTypes.containsKey(id)) {
+                final ServiceType serviceType = byId.get(id);
+                serviceTypes.put(id, serviceType);
+                if (serviceType == null) {
+                    missingIds.add(id);
+                }
+            }
+        }
+        if (current != null && missingIds.isEmpty()) {
+            hits.increment();
+            return new ArrayList<>(serviceTypes.values());
+        }
+
+        misses.increment();
+        if (!missingIds.isEmpty()) {
+            final List<ServiceType> loaded = serviceTypeRepository.findAllById(missingIds);
+            if (!loaded.isEmpty()) {
+                LOGGER.warn("Service types {} missing from the catalog, dropping it", missingIds);
+                loaded.forEach(serviceType -> serviceTypes.put(serviceType.getId(), serviceType));
+                invalidate();
+            }
+        }
+
+        final List<ServiceType> serviceTypeList = new ArrayList<>(serviceTypes.size());
+        serviceTypes.values().stream().filter(Objects::nonNull).forEach(serviceTypeList::add);
+        return serviceTypeList;
+    }
+
+    /**
+     * Loads the catalog, and installs it unless it changed meanwhile.
+     *
+     * @return the loaded snapshot
+     */
+    private Snapshot load() {
+        final long loadGeneration = generation.get();
+        final List<ServiceType> serviceTypes = serviceTypeRepository.findAll();
+        final Map<Long, ServiceType> byId = HashMap.newHashMap(serviceTypes.size());
+        serviceTypes.forEach(serviceType -> byId.put(serviceType.getId(), serviceType));
+        final Snapshot current = new Snapshot(Collections.unmodifiableList(serviceTypes),
+                                              Collections.unmodifiableMap(byId));
+        loads.increment();
+        synchronized (this) {
+            // a change committed while loading may not be in what was read
+            if (generation.get() == loadGeneration) {
+                snapshot = current;
+            }
+        }
+
+        LOGGER.debug("load(), loaded: {}", serviceTypes.size());
+        return current;
+    }
+
+    /**
+     * The catalog as it was loaded.
+     *
+     * @param serviceTypes
+     * @param byId
+     */
+    private record Snapshot(List<ServiceType> serviceTypes, Map<Long, ServiceType> byId) {
+
+    }
+}
@@ -0,0 +1,176 @@
+package com.rslakra.automobile.service.cache;
+
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.service.event.UserChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * In-process cache of the users that log in, so a login doesn't have to read the user from the database each time.
+ * <p>
+ * Holds at most <code>maxSize</code> users for <code>ttlSeconds</code> each, and evicts the least recently used one
+ * when it's full. The cached users are private copies, and every lookup returns a new copy of its own, so callers can
+ * keep and modify what they get (it becomes the principal of their session) without affecting each other. The
+ * {@link UserChangedEvent}s the auth service publishes drop a user once their transaction completes. Every drop bumps
+ * a generation, so a load that overlapped a change never caches what it read before the change.
+ * <p>
+ * Reports <code>cache.gets</code> (tagged <code>result=hit|miss</code>), <code>cache.evictions</code> and
+ * <code>cache.size</code>, tagged <code>cache=userDetails</code>.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+public class UserDetailsCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserDetailsCache.class);
+
+    private static final String CACHE_NAME = "userDetails";
+    // the lazy association isn't copied, the sessions never read it
+    private static final String[] IGNORED_PROPERTIES = {"appointments", "rawPassword"};
+
+    private final int maxSize;
+    private final long ttlNanos;
+    // in access order, so the eldest entry is the least recently used one
+    private final LinkedHashMap<String, Entry> entries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    private long generation;
+
+    /**
+     * @param meterRegistry
+     * @param maxSize
+     * @param ttlSeconds
+     */
+    @Autowired
+    public UserDetailsCache(MeterRegistry meterRegistry, @Value("${users.cache.maxSize:10000}") int maxSize,
+                            @Value("${users.cache.ttlSeconds:300}") long ttlSeconds) {
+        LOGGER.debug("UserDetailsCache({}, {}, {})", meterRegistry, maxSize, ttlSeconds);
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                final boolean full = (size() > UserDetailsCache.this.maxSize);
+                if (full) {
+                    evictions.increment();
+                }
+                return full;
+            }
+        };
+        hits = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "hit")
+            .description("User lookups served by the cache").register(meterRegistry);
+        misses = Counter.builder("cache.gets").tag("cache", CACHE_NAME).tag("result", "miss")
+            .description("User lookups that went to the database").register(meterRegistry);
+        evictions = Counter.builder("cache.evictions").tag("cache", CACHE_NAME)
+            .description("Users dropped from the cache after changes, expiry or for space").register(meterRegistry);
+        Gauge.builder("cache.size", this, UserDetailsCache::size).tag("cache", CACHE_NAME)
+            .description("Users in the cache").register(meterRegistry);
+    }
+
+    /**
+     * Drops the user after a rollback as well, since it may have been loaded by the rolled back transaction.
+     *
+     * @param event
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        LOGGER.debug("onUserChanged({})", event);
+        invalidate(event.getEmail());
+    }
+
+    /**
+     * Drops the user with the given username, or all of them if it's null.
+     *
+     * @param username
+     */
+    public synchronized void invalidate(String username) {
+        generation++;
+        if (username == null) {
+            evictions.increment(entries.size());
+            entries.clear();
+        } else if (entries.remove(username) != null) {
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Returns a copy of the cached user, or loads it with the <code>loader</code> and caches it. Users that aren't
+     * found aren't cached, so a user is found as soon as it registers.
+     *
+     * @param username
+     * @param loader
+     * @return
+     */
+    public Optional<AutoUser> get(String username, Function<String, Optional<AutoUser>> loader) {
+        final long loadGeneration;
+        synchronized (this) {
+            final Entry entry = entries.get(username);
+            if (entry != null && entry.expiresAt() - System.nanoTime() > 0) {
+                hits.increment();
+                return Optional.of(copyOf(entry.autoUser()));
+            } else if (entry != null) {
+                entries.remove(username);
+                evictions.increment();
+            }
+            loadGeneration = generation;
+        }
+
+        misses.increment();
+        final Optional<AutoUser> loaded = loader.apply(username);
+        if (loaded.isPresent()) {
+            final Entry entry = new Entry(copyOf(loaded.get()), System.nanoTime() + ttlNanos);
+            synchronized (this) {
+                // a change completed while loading may not be in what was read
+                if (generation == loadGeneration) {
+                    entries.put(username, entry);
+                }
+            }
+        }
+
+        return loaded;
+    }
+
+    /**
+     * @return
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param autoUser
+     * @return
+     */
+    private static AutoUser copyOf(AutoUser autoUser) {
+        final AutoUser copy = new AutoUser();
+        BeanUtils.copyProperties(autoUser, copy, IGNORED_PROPERTIES);
+        return copy;
+    }
+
+    /**
+     * A cached user, which is never handed out.
+     *
+     * @param autoUser
+     * @param expiresAt in <code>System.nanoTime()</code>
+     */
+    private record Entry(AutoUser autoUser, long expiresAt) {
+
+    }
+}
@@ -0,0 +1,85 @@
+package com.rslakra.automobile.service.event;
+
+import com.rslakra.appsuite.core.ToString;
+import com.rslakra.automobile.domain.entities.Schedule;
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Published by the schedule service whenever a single schedule is saved, booked, released, toggled or deleted. The
+ * event carries an immutable snapshot of the schedule, so listeners never touch the (possibly detached) entity.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+public final class ScheduleChangedEvent {
+
+    private final Long id;
+    private final String name;
+    private final LocalDate scheduleDate;
+    private final LocalTime startTime;
+    private final LocalTime endTime;
+    private final int maxAppointments;
+    private final int currentAppointments;
+    private final boolean available;
+    private final long version;
+    private final boolean deleted;
+
+    /**
+     * @param schedule
+     * @param deleted
+     */
+    private ScheduleChangedEvent(Schedule schedule, boolean deleted) {
+        this.id = schedule.getId();
+        this.name = schedule.getName();
+        this.scheduleDate = schedule.getScheduleDate();
+        this.startTime = schedule.getStartTime();
+        this.endTime = schedule.getEndTime();
+        this.maxAppointments = (schedule.getMaxAppointments() == null ? 1 : schedule.getMaxAppointments());
+        this.currentAppointments = (schedule.getCurrentAppointments() == null ? 0 : schedule.getCurrentAppointments());
+        this.available = schedule.isAvailable();
+        this.version = schedule.getVersion();
+        this.deleted = deleted;
+    }
+
+    /**
+     * @param schedule
+     * @return
+     */
+    public static ScheduleChangedEvent saved(Schedule schedule) {
+        return new ScheduleChangedEvent(schedule, false);
+    }
+
+    /**
+     * @param schedule
+     * @return
+     */
+    public static ScheduleChangedEvent deleted(Schedule schedule) {
+        return new ScheduleChangedEvent(schedule, true);
+    }
+
+    /**
+     * Returns true if the slot can still take an appointment.
+     *
+     * @return
+     */
+    public boolean hasAvailability() {
+        return !deleted && available && currentAppointments < maxAppointments;
+    }
+
+    @Override
+    public String toString() {
+        return ToString.of(ScheduleChangedEvent.class)
+            .add("id", id)
+            .add("scheduleDate", scheduleDate)
+            .add("startTime", startTime)
+            .add("currentAppointments", currentAppointments)
+            .add("maxAppointments", maxAppointments)
+            .add("available", available)
+            .add("version", version)
+            .add("deleted", deleted)
+            .toString();
+    }
+}
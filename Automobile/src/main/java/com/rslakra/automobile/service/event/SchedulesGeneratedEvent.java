@@ -0,0 +1,30 @@
+package com.rslakra.automobile.service.event;
+
+import com.rslakra.appsuite.core.ToString;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+/**
+ * Published by the schedule service after schedules have been generated in bulk for a date range.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+@AllArgsConstructor
+public final class SchedulesGeneratedEvent {
+
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final int count;
+
+    @Override
+    public String toString() {
+        return ToString.of(SchedulesGeneratedEvent.class)
+            .add("startDate", startDate)
+            .add("endDate", endDate)
+            .add("count", count)
+            .toString();
+    }
+}
@@ -0,0 +1,24 @@
+package com.rslakra.automobile.service.event;
+
+import com.rslakra.appsuite.core.ToString;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the service type service after service types have been created, updated or deleted.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+@AllArgsConstructor
+public final class ServiceTypesChangedEvent {
+
+    private final int count;
+
+    @Override
+    public String toString() {
+        return ToString.of(ServiceTypesChangedEvent.class)
+            .add("count", count)
+            .toString();
+    }
+}
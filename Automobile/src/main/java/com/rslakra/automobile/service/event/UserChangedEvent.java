@@ -0,0 +1,24 @@
+package com.rslakra.automobile.service.event;
+
+import com.rslakra.appsuite.core.ToString;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by the auth service after a user has been created, updated or deleted.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+@AllArgsConstructor
+public final class UserChangedEvent {
+
+    private final String email;
+
+    @Override
+    public String toString() {
+        return ToString.of(UserChangedEvent.class)
+            .add("email", email)
+            .toString();
+    }
+}
@@ -0,0 +1,272 @@
+package com.rslakra.automobile.service.file;
+
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import com.rslakra.automobile.dto.AppointmentRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The CSV layout of the appointment files: a header line, then one line per appointment with its services joined by
+ * <code>|</code>. Values with separators, quotes or line breaks are quoted as in RFC 4180. The lines may end with
+ * <code>\n</code> or <code>\r\n</code>.
+ *
+ * @author Rohtash Lakra
+ */
+enum AppointmentCsv {
+    INSTANCE;
+
+    static final String HEADER = "id,user_email,make,model,year,status,appointment_on,start_time,end_time,services";
+    static final char SEPARATOR = ',';
+    static final char SERVICE_SEPARATOR = '|';
+    static final char QUOTE = '"';
+    static final int COLUMNS = 10;
+    // guards against an unclosed quote swallowing the rest of the file
+    static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    /**
+     * Writes the record as a line.
+     *
+     * @param writer
+     * @param record
+     * @throws IOException
+     */
+    static void write(Writer writer, AppointmentRecord record) throws IOException {
+        writeValue(writer, record.getId());
+        writer.write(SEPARATOR);
+        writeValue(writer, record.getUserEmail());
+        writer.write(SEPARATOR);
+        writeValue(writer, record.getMake());
+        writer.write(SEPARATOR);
+        writeValue(writer, record.getModel());
+        writer.write(SEPARATOR);
+        writeValue(writer, record.getYear());
+        writer.write(SEPARATOR);
+        writeValue(writer, record.getStatus());
+        writer.write(SEPARATOR);
+        writeValue(writer, record.getAppointmentOn());
+        writer.write(SEPARATOR);
+        writeValue(writer, record.getStartTime());
+        writer.write(SEPARATOR);
+        writeValue(writer, record.getEndTime());
+        writer.write(SEPARATOR);
+        writeValue(writer, String.join(String.valueOf(SERVICE_SEPARATOR), record.getServices()));
+        writer.write('\n');
+    }
+
+    /**
+     * @param writer
+     * @param value
+     * @throws IOException
+     */
+    private static void writeValue(Writer writer, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        final String text = value.toString();
+        if (!needsQuotes(text)) {
+            writer.write(text);
+            return;
+        }
+
+        writer.write(QUOTE);
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == QUOTE) {
+                writer.write(QUOTE);
+            }
+            writer.write(c);
+        }
+        writer.write(QUOTE);
+    }
+
+    /**
+     * @param text
+     * @return
+     */
+    private static boolean needsQuotes(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (c == SEPARATOR || c == QUOTE || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Converts the values of a line to a record. The id is ignored, and empty values are read as nulls.
+     *
+     * @param values
+     * @return
+     * @throws IllegalArgumentException  if a value is malformed
+     * @throws java.time.DateTimeException if a date or time is malformed
+     */
+    static AppointmentRecord toRecord(List<String> values) {
+        if (values.size() != COLUMNS) {
+            throw new IllegalArgumentException("Expected " + COLUMNS + " values, found " + values.size());
+        }
+
+        final AppointmentRecord record = new AppointmentRecord();
+        record.setUserEmail(valueOf(values.get(1)));
+        record.setMake(valueOf(values.get(2)));
+        record.setModel(valueOf(values.get(3)));
+        final String year = valueOf(values.get(4));
+        record.setYear(year == null ? null : Short.valueOf(year));
+        final String status = valueOf(values.get(5));
+        record.setStatus(status == null ? null : AppointmentStatus.valueOf(status.toUpperCase(Locale.ROOT)));
+        final String appointmentOn = valueOf(values.get(6));
+        record.setAppointmentOn(appointmentOn == null ? null : LocalDate.parse(appointmentOn));
+        final String startTime = valueOf(values.get(7));
+        record.setStartTime(startTime == null ? null : LocalTime.parse(startTime));
+        final String endTime = valueOf(values.get(8));
+        record.setEndTime(endTime == null ? null : LocalTime.parse(endTime));
+        final String services = valueOf(values.get(9));
+        if (services != null) {
+            for (String service : services.split("\\" + SERVICE_SEPARATOR)) {
+                if (!service.isBlank()) {
+                    record.getServices().add(service.trim());
+                }
+            }
+        }
+
+        return record;
+    }
+
+    /**
+     * @param value
+     * @return the trimmed value, or null if it's blank
+     */
+    private static String valueOf(String value) {
+        return (value == null || value.isBlank() ? null : value.trim());
+    }
+
+    /**
+     * Reads the lines of a file one at a time, so only the current line is held in memory. The first line must be the
+     * {@link #HEADER}.
+     */
+    static final class Parser {
+
+        private final Reader reader;
+        private final StringBuilder value = new StringBuilder();
+        private long line;
+        private long nextLine = 1;
+        private int next = -2;
+
+        /**
+         * @param reader a buffered reader
+         * @throws IOException
+         */
+        Parser(Reader reader) throws IOException {
+            this.reader = reader;
+            final List<String> header = next();
+            if (header == null || !HEADER.equals(String.join(String.valueOf(SEPARATOR), header).trim())) {
+                throw new InvalidRequestException("The first line must be the header: " + HEADER);
+            }
+        }
+
+        /**
+         * @return the line the last values were read from, starting at 1
+         */
+        long getLine() {
+            return line;
+        }
+
+        /**
+         * Returns the values of the next non-empty line.
+         *
+         * @return the values, or null at the end of the file
+         * @throws IOException
+         */
+        List<String> next() throws IOException {
+            List<String> values;
+            do {
+                values = readLine();
+            } while (values != null && values.size() == 1 && values.get(0).isEmpty());
+
+            return values;
+        }
+
+        /**
+         * @return
+         * @throws IOException
+         */
+        private int read() throws IOException {
+            if (next != -2) {
+                final int c = next;
+                next = -2;
+                return c;
+            }
+
+            return reader.read();
+        }
+
+        /**
+         * @return the values of the next line, or null at the end of the file
+         * @throws IOException
+         */
+        private List<String> readLine() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+
+            line = nextLine;
+            final List<String> values = new ArrayList<>(COLUMNS);
+            boolean quoted = false;
+            int length = 0;
+            value.setLength(0);
+            while (c != -1) {
+                if (++length > MAX_LINE_LENGTH) {
+                    throw new InvalidRequestException("Line " + line + " is longer than " + MAX_LINE_LENGTH
+                                                      + " characters, is a quote left open?");
+                }
+
+                if (quoted) {
+                    if (c == QUOTE) {
+                        c = read();
+                        if (c == QUOTE) {
+                            value.append(QUOTE);
+                        } else {
+                            quoted = false;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            nextLine++;
+                        }
+                        value.append((char) c);
+                    }
+                } else if (c == QUOTE) {
+                    quoted = true;
+                } else if (c == SEPARATOR) {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        c = read();
+                        if (c != '\n') {
+                            next = c;
+                        }
+                    }
+                    break;
+                } else {
+                    value.append((char) c);
+                }
+                c = read();
+            }
+            nextLine++;
+            values.add(value.toString());
+            return values;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.rslakra.automobile.service.file;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rslakra.appsuite.core.BeanUtils;
+import com.rslakra.appsuite.spring.exception.AuthenticationException;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.repositories.AppointmentRepository;
+import com.rslakra.automobile.dto.AppointmentRecord;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Writes the appointments to a file as they are read from the database. Only the appointment being written is held in
+ * memory, so the heap stays flat whatever the number of appointments, and the first bytes go out as soon as the first
+ * appointment is read.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+public class AppointmentExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentExporter.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AppointmentRepository appointmentRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param appointmentRepository
+     * @param objectMapper
+     */
+    @Autowired
+    public AppointmentExporter(AppointmentRepository appointmentRepository, ObjectMapper objectMapper) {
+        LOGGER.debug("AppointmentExporter({}, {})", appointmentRepository, objectMapper);
+        this.appointmentRepository = appointmentRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Exports the appointments the user can see, all of them for admins, in the order of their ids. The output stream
+     * is flushed, but left open.
+     *
+     * @param autoUser
+     * @param fileFormat
+     * @param outputStream
+     * @return the number of exported appointments
+     * @throws IOException
+     */
+    @Transactional(readOnly = true)
+    public long export(AutoUser autoUser, FileFormat fileFormat, OutputStream outputStream) throws IOException {
+        LOGGER.debug("+export({}, {})", autoUser, fileFormat);
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        final boolean admin = ContextUtils.isAdmin(autoUser);
+        final RecordWriter recordWriter = (fileFormat == FileFormat.CSV ? new CsvWriter(outputStream)
+                                                                          : new NdjsonWriter(outputStream));
+        long count = 0;
+        try (Stream<AppointmentRecord> records = (admin ? appointmentRepository.streamAllRecords()
+                                                        : appointmentRepository.streamRecordsByUser(autoUser))) {
+            final Iterator<AppointmentRecord> iterator = records.iterator();
+            AppointmentRecord current = null;
+            while (iterator.hasNext()) {
+                final AppointmentRecord record = iterator.next();
+                if (current != null && current.getId().equals(record.getId())) {
+                    // another service of the same appointment
+                    current.getServices().addAll(record.getServices());
+                    continue;
+                }
+
+                if (current != null) {
+                    recordWriter.write(current);
+                    if (++count == 1) {
+                        recordWriter.flush();
+                    }
+                }
+                current = record;
+            }
+
+            if (current != null) {
+                recordWriter.write(current);
+                count++;
+            }
+        }
+        recordWriter.flush();
+
+        LOGGER.debug("-export(), count: {}", count);
+        return count;
+    }
+
+    /**
+     * Writes the records in one of the file formats.
+     */
+    private interface RecordWriter {
+
+        /**
+         * @param record
+         * @throws IOException
+         */
+        void write(AppointmentRecord record) throws IOException;
+
+        /**
+         * @throws IOException
+         */
+        void flush() throws IOException;
+    }
+
+    /**
+     * Writes the header line, and then a line per record.
+     */
+    private static final class CsvWriter implements RecordWriter {
+
+        private final BufferedWriter writer;
+
+        /**
+         * @param outputStream
+         * @throws IOException
+         */
+        private CsvWriter(OutputStream outputStream) throws IOException {
+            writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8), BUFFER_SIZE);
+            writer.write(AppointmentCsv.HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(AppointmentRecord record) throws IOException {
+            AppointmentCsv.write(writer, record);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Writes a JSON object per line through a single generator, which is flushed only when its buffer fills up.
+     */
+    private final class NdjsonWriter implements RecordWriter {
+
+        private final JsonGenerator generator;
+        private final ObjectWriter objectWriter;
+
+        /**
+         * @param outputStream
+         * @throws IOException
+         */
+        private NdjsonWriter(OutputStream outputStream) throws IOException {
+            generator = objectMapper.getFactory().createGenerator(outputStream);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // every line ends with its own line break instead
+            generator.setRootValueSeparator(null);
+            objectWriter = objectMapper.writerFor(AppointmentRecord.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+
+        @Override
+        public void write(AppointmentRecord record) throws IOException {
+            objectWriter.writeValue(generator, record);
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package com.rslakra.automobile.service.file;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.rslakra.appsuite.core.BeanUtils;
+import com.rslakra.appsuite.spring.exception.AuthenticationException;
+import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.entities.ServiceType;
+import com.rslakra.automobile.domain.entities.Vehicle;
+import com.rslakra.automobile.domain.repositories.ServiceTypeRepository;
+import com.rslakra.automobile.domain.repositories.UserRepository;
+import com.rslakra.automobile.domain.repositories.batch.AppointmentBatchRepository;
+import com.rslakra.automobile.dto.AppointmentRecord;
+import com.rslakra.automobile.dto.ImportReport;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Imports the appointments of a file as it is read. The rows are collected in chunks of <code>chunkSize</code>, and
+ * every chunk is written with JDBC batches in its own transaction, so only one chunk is held in memory and nothing is
+ * kept in a persistence context, whatever the size of the file.
+ * <p>
+ * The users and the service types are referred to by their emails and names. The service types are all loaded once,
+ * while the ids of the users are looked up with one query per chunk, and forgotten with the chunk, so the memory an
+ * import takes doesn't grow with the number of users in the file either.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+public class AppointmentImporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentImporter.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AppointmentBatchRepository appointmentBatchRepository;
+    private final UserRepository userRepository;
+    private final ServiceTypeRepository serviceTypeRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxErrors;
+
+    /**
+     * @param appointmentBatchRepository
+     * @param userRepository
+     * @param serviceTypeRepository
+     * @param transactionTemplate
+     * @param objectMapper
+     * @param chunkSize
+     * @param maxErrors
+     */
+    @Autowired
+    public AppointmentImporter(AppointmentBatchRepository appointmentBatchRepository, UserRepository userRepository,
+                               ServiceTypeRepository serviceTypeRepository, TransactionTemplate transactionTemplate,
+                               ObjectMapper objectMapper,
+                               @Value("${appointments.import.chunkSize:1000}") int chunkSize,
+                               @Value("${appointments.import.maxErrors:1000}") int maxErrors) {
+        LOGGER.debug("AppointmentImporter({}, {}, {}, {}, {}, {}, {})", appointmentBatchRepository, userRepository,
+                     serviceTypeRepository, transactionTemplate, objectMapper, chunkSize, maxErrors);
+        this.appointmentBatchRepository = appointmentBatchRepository;
+        this.userRepository = userRepository;
+        this.serviceTypeRepository = serviceTypeRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Imports the appointments of the file as new ones; their ids in the file are ignored. Admins may import the
+     * appointments of any user, the others only their own. Invalid rows are reported and skipped, and a chunk rejected
+     * by the database is reported row by row, while the chunks before and after it are still imported.
+     *
+     * @param autoUser
+     * @param fileFormat
+     * @param inputStream
+     * @return
+     * @throws IOException
+     */
+    public ImportReport importFile(AutoUser autoUser, FileFormat fileFormat, InputStream inputStream)
+        throws IOException {
+        LOGGER.debug("+importFile({}, {})", autoUser, fileFormat);
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        final boolean admin = ContextUtils.isAdmin(autoUser);
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8),
+                                                         BUFFER_SIZE);
+        final RecordReader recordReader = (fileFormat == FileFormat.CSV ? new CsvReader(reader)
+                                                                          : new NdjsonReader(reader));
+        final Chunk chunk = new Chunk(autoUser, admin, new ImportReport(maxErrors));
+        while (recordReader.next()) {
+            chunk.report.read();
+            try {
+                chunk.add(recordReader.getLine(), recordReader.getRecord());
+            } catch (IllegalArgumentException | DateTimeException ex) {
+                chunk.report.failed(recordReader.getLine(), ex.getMessage());
+            }
+
+            if (chunk.isFull()) {
+                chunk.write();
+            }
+        }
+        chunk.write();
+
+        LOGGER.debug("-importFile(), report: {}", chunk.report);
+        return chunk.report;
+    }
+
+    /**
+     * Reads the records of a file in one of the file formats.
+     */
+    private interface RecordReader {
+
+        /**
+         * Moves to the next record.
+         *
+         * @return false at the end of the file
+         * @throws IOException
+         */
+        boolean next() throws IOException;
+
+        /**
+         * @return the line of the current record, starting at 1
+         */
+        long getLine();
+
+        /**
+         * @return the current record
+         * @throws IllegalArgumentException if the record is malformed
+         * @throws DateTimeException        if a date or time of the record is malformed
+         */
+        AppointmentRecord getRecord();
+    }
+
+    /**
+     * Reads the records of a CSV file with its header.
+     */
+    private static final class CsvReader implements RecordReader {
+
+        private final AppointmentCsv.Parser parser;
+        private List<String> values;
+
+        /**
+         * @param reader
+         * @throws IOException
+         */
+        private CsvReader(BufferedReader reader) throws IOException {
+            parser = new AppointmentCsv.Parser(reader);
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            values = parser.next();
+            return (values != null);
+        }
+
+        @Override
+        public long getLine() {
+            return parser.getLine();
+        }
+
+        @Override
+        public AppointmentRecord getRecord() {
+            return AppointmentCsv.toRecord(values);
+        }
+    }
+
+    /**
+     * Reads a JSON object per line; blank lines are skipped.
+     */
+    private final class NdjsonReader implements RecordReader {
+
+        private final BufferedReader reader;
+        private final ObjectReader objectReader;
+        private String text;
+        private long line;
+
+        /**
+         * @param reader
+         */
+        private NdjsonReader(BufferedReader reader) {
+            this.reader = reader;
+            objectReader = objectMapper.readerFor(AppointmentRecord.class);
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            do {
+                text = reader.readLine();
+                line++;
+            } while (text != null && text.isBlank());
+
+            return (text != null);
+        }
+
+        @Override
+        public long getLine() {
+            return line;
+        }
+
+        @Override
+        public AppointmentRecord getRecord() {
+            final AppointmentRecord record;
+            try {
+                record = objectReader.readValue(text);
+            } catch (JsonProcessingException ex) {
+                throw new IllegalArgumentException(ex.getOriginalMessage());
+            }
+            if (BeanUtils.isNull(record)) {
+                throw new IllegalArgumentException("Appointment must be a JSON object!");
+            }
+
+            return record;
+        }
+    }
+
+    /**
+     * The rows read since the last write with the users they refer to, and the service types of the file.
+     */
+    private final class Chunk {
+
+        private final AutoUser autoUser;
+        private final boolean admin;
+        private final ImportReport report;
+        private final Map<String, ServiceType> serviceTypes = new HashMap<>();
+        // the users of the current chunk
+        private final Map<String, Long> userIds = new HashMap<>();
+        private final List<Long> lines = new ArrayList<>(chunkSize);
+        private final List<AppointmentRecord> records = new ArrayList<>(chunkSize);
+
+        /**
+         * @param autoUser
+         * @param admin
+         * @param report
+         */
+        private Chunk(AutoUser autoUser, boolean admin, ImportReport report) {
+            this.autoUser = autoUser;
+            this.admin = admin;
+            this.report = report;
+            serviceTypeRepository.findAll()
+                .forEach(serviceType -> serviceTypes.put(toKey(serviceType.getName()), serviceType));
+        }
+
+        /**
+         * @param line
+         * @param record
+         */
+        private void add(long line, AppointmentRecord record) {
+            lines.add(line);
+            records.add(record);
+        }
+
+        /**
+         * @return
+         */
+        private boolean isFull() {
+            return (records.size() >= chunkSize);
+        }
+
+        /**
+         * Resolves the users of the rows, and inserts the valid rows in one transaction.
+         */
+        private void write() {
+            if (records.isEmpty()) {
+                return;
+            }
+
+            resolveUsers();
+            final List<Appointment> appointments = new ArrayList<>(records.size());
+            final List<Long> appointmentLines = new ArrayList<>(records.size());
+            for (int i = 0; i < records.size(); i++) {
+                final AppointmentRecord record = records.get(i);
+                final String error = validate(record);
+                if (error == null) {
+                    appointments.add(toAppointment(record));
+                    appointmentLines.add(lines.get(i));
+                } else {
+                    report.failed(lines.get(i), error);
+                }
+            }
+
+            if (!appointments.isEmpty()) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        final long[] ids = appointmentBatchRepository.allocateIds(appointments.size());
+                        for (int i = 0; i < ids.length; i++) {
+                            appointments.get(i).setId(ids[i]);
+                        }
+                        appointmentBatchRepository.insertAll(appointments);
+                    });
+                    report.imported(appointments.size());
+                } catch (DataAccessException ex) {
+                    LOGGER.warn("Chunk of {} rows rejected, starting at line: {}", appointments.size(),
+                                appointmentLines.get(0), ex);
+                    final String error = "Rejected by the database: " + ex.getMostSpecificCause().getMessage();
+                    appointmentLines.forEach(line -> report.failed(line, error));
+                }
+            }
+
+            lines.clear();
+            records.clear();
+            userIds.clear();
+        }
+
+        /**
+         * Looks up the ids of the emails of the chunk with one query; the importing user's own is always known.
+         */
+        private void resolveUsers() {
+            userIds.put(toKey(autoUser.getEmail()), autoUser.getId());
+            final Set<String> emails = new HashSet<>();
+            records.forEach(record -> {
+                final String key = toKey(record.getUserEmail());
+                if (key != null && !userIds.containsKey(key)) {
+                    emails.add(key);
+                }
+            });
+
+            if (!emails.isEmpty()) {
+                userRepository.findIdsByEmails(emails)
+                    .forEach(userId -> userIds.put(toKey(userId.getEmail()), userId.getId()));
+            }
+        }
+
+        /**
+         * @param record
+         * @return the reason the row is rejected, or null if it's valid
+         */
+        private String validate(AppointmentRecord record) {
+            final String key = toKey(record.getUserEmail());
+            if (key == null) {
+                return "User email is required!";
+            } else if (!userIds.containsKey(key)) {
+                return "User not found with email: " + record.getUserEmail();
+            } else if (!admin && !userIds.get(key).equals(autoUser.getId())) {
+                return "Not allowed to import the appointments of: " + record.getUserEmail();
+            } else if (BeanUtils.isEmpty(record.getMake()) || BeanUtils.isEmpty(record.getModel())
+                       || BeanUtils.isNull(record.getYear())) {
+                return "Vehicle make, model and year are required!";
+            } else if (BeanUtils.isNull(record.getAppointmentOn())) {
+                return "Appointment date is required!";
+            } else if (record.getStatus() == AppointmentStatus.WAITLISTED) {
+                // waitlists belong to schedules, which aren't imported
+                return "Waitlisted appointments can't be imported!";
+            } else if (BeanUtils.isNull(record.getServices())) {
+                return "Services must be a list, empty if there are none!";
+            }
+
+            for (String service : record.getServices()) {
+                if (!serviceTypes.containsKey(toKey(service))) {
+                    return "Service type not found with name: " + service;
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * @param record
+         * @return
+         */
+        private Appointment toAppointment(AppointmentRecord record) {
+            final AutoUser user = new AutoUser();
+            user.setId(userIds.get(toKey(record.getUserEmail())));
+            final Vehicle vehicle = new Vehicle();
+            vehicle.setMake(record.getMake());
+            vehicle.setModel(record.getModel());
+            vehicle.setYear(record.getYear());
+            final Appointment appointment = new Appointment();
+            appointment.setUser(user);
+            appointment.setVehicle(vehicle);
+            appointment.setStatus(record.getStatus() == null ? AppointmentStatus.PENDING : record.getStatus());
+            appointment.setAppointmentOn(record.getAppointmentOn());
+            appointment.setStartTime(record.getStartTime());
+            appointment.setEndTime(record.getEndTime());
+            final List<ServiceType> services = new ArrayList<>(record.getServices().size());
+            record.getServices().forEach(service -> {
+                final ServiceType serviceType = serviceTypes.get(toKey(service));
+                if (!services.contains(serviceType)) {
+                    services.add(serviceType);
+                }
+            });
+            appointment.setServices(services);
+            return appointment;
+        }
+
+        /**
+         * @param text
+         * @return the case-insensitive key of an email or a name
+         */
+        private String toKey(String text) {
+            return (BeanUtils.isEmpty(text) ? null : text.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+}
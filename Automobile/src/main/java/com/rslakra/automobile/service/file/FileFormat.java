@@ -0,0 +1,76 @@
+package com.rslakra.automobile.service.file;
+
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
+import org.springframework.http.MediaType;
+
+/**
+ * The file formats appointments are exported to and imported from.
+ *
+ * @author Rohtash Lakra
+ */
+public enum FileFormat {
+
+    CSV(MediaType.parseMediaType("text/csv"), "csv"),
+    // one JSON object per line
+    NDJSON(MediaType.parseMediaType("application/x-ndjson"), "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    /**
+     * @param mediaType
+     * @param extension
+     */
+    FileFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    /**
+     * @return
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Returns the format of the given name or extension, case-insensitive.
+     *
+     * @param fileType
+     * @return
+     */
+    public static FileFormat of(String fileType) {
+        if (fileType != null) {
+            for (FileFormat fileFormat : values()) {
+                if (fileFormat.name().equalsIgnoreCase(fileType.trim())) {
+                    return fileFormat;
+                }
+            }
+        }
+
+        throw new InvalidRequestException("Unsupported file type: " + fileType);
+    }
+
+    /**
+     * Returns the format of the given media type, ignoring its parameters like the charset.
+     *
+     * @param mediaType
+     * @return
+     */
+    public static FileFormat of(MediaType mediaType) {
+        for (FileFormat fileFormat : values()) {
+            if (fileFormat.mediaType.equalsTypeAndSubtype(mediaType)) {
+                return fileFormat;
+            }
+        }
+
+        throw new InvalidRequestException("Unsupported media type: " + mediaType);
+    }
+}
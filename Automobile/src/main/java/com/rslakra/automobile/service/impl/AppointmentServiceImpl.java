@@ -2,6 +2,7 @@ package com.rslakra.automobile.service.impl;
 
 import com.rslakra.appsuite.core.BeanUtils;
 import com.rslakra.appsuite.spring.exception.AuthenticationException;
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
 import com.rslakra.appsuite.spring.exception.NoRecordFoundException;
 import com.rslakra.appsuite.spring.filter.Filter;
 import com.rslakra.appsuite.spring.persistence.ServiceOperation;
@@ -9,18 +10,39 @@ import com.rslakra.appsuite.spring.service.AbstractServiceImpl;
 import com.rslakra.automobile.domain.entities.Appointment;
 import com.rslakra.automobile.domain.entities.AppointmentStatus;
 import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.domain.entities.ServiceType;
 import com.rslakra.automobile.domain.repositories.AppointmentRepository;
+import com.rslakra.automobile.domain.repositories.AppointmentSpecifications;
+import com.rslakra.automobile.domain.repositories.ServiceTypeRepository;
+import com.rslakra.automobile.domain.repositories.batch.AppointmentBatchRepository;
+import com.rslakra.automobile.dto.AppointmentSummary;
+import com.rslakra.automobile.dto.BatchReport;
+import com.rslakra.automobile.filter.AppointmentFilter;
 import com.rslakra.automobile.service.AppointmentService;
+import com.rslakra.automobile.service.ScheduleService;
 import com.rslakra.automobile.service.security.context.ContextUtils;
+import org.hibernate.Hibernate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.prepost.PreFilter;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -32,14 +54,41 @@ public class AppointmentServiceImpl extends AbstractServiceImpl<Appointment, Lon
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentServiceImpl.class);
 
+    // the order of the date indexes
+    private static final Sort DEFAULT_SORT = Sort.by("appointmentOn", "startTime", "id");
+    private static final Set<String> SORTABLE_PROPERTIES = Set.of("id", "appointmentOn", "startTime", "endTime",
+                                                                  "status", "vehicle.make", "vehicle.model",
+                                                                  "vehicle.year");
+
     private final AppointmentRepository appointmentRepository;
+    private final ScheduleService scheduleService;
+    private final ServiceTypeRepository serviceTypeRepository;
+    private final AppointmentBatchRepository appointmentBatchRepository;
+    private final int maxBatchSize;
+    private final int chunkSize;
 
     /**
      * @param appointmentRepository
+     * @param scheduleService
+     * @param serviceTypeRepository
+     * @param appointmentBatchRepository
+     * @param maxBatchSize
+     * @param chunkSize
      */
-    public AppointmentServiceImpl(AppointmentRepository appointmentRepository) {
-        LOGGER.debug("AppointmentServiceImpl({})", appointmentRepository);
+    @Autowired
+    public AppointmentServiceImpl(AppointmentRepository appointmentRepository, ScheduleService scheduleService,
+                                  ServiceTypeRepository serviceTypeRepository,
+                                  AppointmentBatchRepository appointmentBatchRepository,
+                                  @Value("${appointments.batch.maxSize:1000}") int maxBatchSize,
+                                  @Value("${appointments.batch.chunkSize:250}") int chunkSize) {
+        LOGGER.debug("AppointmentServiceImpl({}, {}, {}, {}, {}, {})", appointmentRepository, scheduleService,
+                     serviceTypeRepository, appointmentBatchRepository, maxBatchSize, chunkSize);
         this.appointmentRepository = appointmentRepository;
+        this.scheduleService = scheduleService;
+        this.serviceTypeRepository = serviceTypeRepository;
+        this.appointmentBatchRepository = appointmentBatchRepository;
+        this.maxBatchSize = maxBatchSize;
+        this.chunkSize = chunkSize;
     }
 
     /**
@@ -68,16 +117,185 @@ public class AppointmentServiceImpl extends AbstractServiceImpl<Appointment, Lon
     }
 
     /**
+     * Reads and locks the schedule once, and gives its capacity back if the appointment can't be saved.
+     *
+     * @param appointment
+     * @param scheduleId
+     * @return
+     */
+    @Override
+    @Transactional
+    public Appointment book(Appointment appointment, Long scheduleId) {
+        LOGGER.debug("+book({}, {})", appointment, scheduleId);
+        final Schedule schedule = scheduleService.bookSchedule(scheduleId);
+        appointment.setSchedule(schedule);
+        appointment.setStartTime(schedule.getStartTime());
+        appointment.setEndTime(schedule.getEndTime());
+        appointment = create(appointment);
+        LOGGER.debug("-book(), appointment: {}", appointment);
+        return appointment;
+    }
+
+    /**
+     * Creates the valid appointments through {@link #createAll(List)} and returns them; the rejected ones are left
+     * out.
+     *
      * @param appointments
      * @return
      */
     @Override
+    @Transactional
     public List<Appointment> create(List<Appointment> appointments) {
-        final List<Appointment> appointmentList = new ArrayList<>();
-        appointments.forEach(appointment -> appointmentList.add(create(appointment)));
+        final BatchReport batchReport = createAll(appointments);
+        final List<Appointment> appointmentList = new ArrayList<>(batchReport.getSucceeded());
+        for (int i = 0; i < appointments.size(); i++) {
+            if (!batchReport.isFailed(i)) {
+                appointmentList.add(appointments.get(i));
+            }
+        }
+
         return appointmentList;
     }
 
+    /**
+     * Validates all the appointments first, checking their services with a single query, and then writes the valid
+     * ones in chunks of <code>chunkSize</code>, each with one JDBC batch for the appointments and one for their
+     * services. The whole request runs in one transaction as the current user, so a failure of the database rolls it
+     * back entirely, while the invalid items are only reported.
+     *
+     * @param appointments
+     * @return
+     */
+    @Override
+    @Transactional
+    public BatchReport createAll(List<Appointment> appointments) {
+        LOGGER.debug("+createAll({})", (appointments == null ? null : appointments.size()));
+        checkBatchSize(appointments);
+        final AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        final Map<Long, ServiceType> serviceTypes = getServiceTypes(appointments);
+        final BatchReport batchReport = new BatchReport(appointments.size());
+        final List<Integer> validIndexes = new ArrayList<>(appointments.size());
+        for (int i = 0; i < appointments.size(); i++) {
+            final String error = validateNew(appointments.get(i), serviceTypes);
+            if (error == null) {
+                validIndexes.add(i);
+            } else {
+                batchReport.failed(i, error);
+            }
+        }
+
+        if (!validIndexes.isEmpty()) {
+            final long[] ids = appointmentBatchRepository.allocateIds(validIndexes.size());
+            final List<Appointment> chunk = new ArrayList<>(Math.min(chunkSize, validIndexes.size()));
+            for (int i = 0; i < validIndexes.size(); i++) {
+                final Appointment appointment = appointments.get(validIndexes.get(i));
+                appointment.setId(ids[i]);
+                appointment.setUser(autoUser);
+                if (appointment.getStatus() == null) {
+                    appointment.setStatus(AppointmentStatus.PENDING);
+                }
+                chunk.add(appointment);
+                if (chunk.size() == chunkSize) {
+                    appointmentBatchRepository.insertAll(chunk);
+                    chunk.clear();
+                }
+            }
+            appointmentBatchRepository.insertAll(chunk);
+            validIndexes.forEach(index -> batchReport.succeeded(index, appointments.get(index).getId()));
+        }
+
+        LOGGER.debug("-createAll(), batchReport: {}", batchReport);
+        return batchReport;
+    }
+
+    /**
+     * @param items
+     */
+    private void checkBatchSize(List<?> items) {
+        if (BeanUtils.isNull(items) || items.isEmpty()) {
+            throw new InvalidRequestException("No appointments in the batch!");
+        } else if (items.size() > maxBatchSize) {
+            throw new InvalidRequestException(
+                "Too many appointments: " + items.size() + ", at most " + maxBatchSize + " per batch!");
+        }
+    }
+
+    /**
+     * Loads the service types the appointments refer to with a single query.
+     *
+     * @param appointments
+     * @return the service types by their ids
+     */
+    private Map<Long, ServiceType> getServiceTypes(List<Appointment> appointments) {
+        final Set<Long> serviceTypeIds = new HashSet<>();
+        appointments.stream()
+            .filter(appointment -> BeanUtils.isNotNull(appointment) && BeanUtils.isNotNull(appointment.getServices()))
+            .flatMap(appointment -> appointment.getServices().stream())
+            .filter(serviceType -> BeanUtils.isNotNull(serviceType) && BeanUtils.isNotNull(serviceType.getId()))
+            .forEach(serviceType -> serviceTypeIds.add(serviceType.getId()));
+        final Map<Long, ServiceType> serviceTypes = HashMap.newHashMap(serviceTypeIds.size());
+        serviceTypeRepository.findAllById(serviceTypeIds)
+            .forEach(serviceType -> serviceTypes.put(serviceType.getId(), serviceType));
+        return serviceTypes;
+    }
+
+    /**
+     * Checks a new appointment of a batch.
+     *
+     * @param appointment
+     * @param serviceTypes
+     * @return the reason the appointment is rejected, or null if it's valid
+     */
+    private String validateNew(Appointment appointment, Map<Long, ServiceType> serviceTypes) {
+        if (BeanUtils.isNull(appointment)) {
+            return "Appointment is missing!";
+        } else if (BeanUtils.isNotNull(appointment.getId())) {
+            return "Appointment already exists with id: " + appointment.getId();
+        } else if (BeanUtils.isNotNull(appointment.getSchedule())
+                   || appointment.getStatus() == AppointmentStatus.WAITLISTED) {
+            // booking a schedule takes its capacity, which is done one appointment at a time
+            return "Scheduled appointments must be booked individually!";
+        }
+
+        return validateFields(appointment, serviceTypes);
+    }
+
+    /**
+     * Checks the fields of an appointment of a batch, and replaces its services with the loaded ones.
+     *
+     * @param appointment
+     * @param serviceTypes
+     * @return the reason the appointment is rejected, or null if it's valid
+     */
+    private String validateFields(Appointment appointment, Map<Long, ServiceType> serviceTypes) {
+        if (BeanUtils.isNull(appointment.getVehicle()) || BeanUtils.isEmpty(appointment.getVehicle().getMake())
+            || BeanUtils.isEmpty(appointment.getVehicle().getModel())
+            || BeanUtils.isNull(appointment.getVehicle().getYear())) {
+            return "Vehicle make, model and year are required!";
+        } else if (BeanUtils.isNull(appointment.getAppointmentOn())) {
+            return "Appointment date is required!";
+        }
+
+        final List<ServiceType> services = new ArrayList<>();
+        if (BeanUtils.isNotNull(appointment.getServices())) {
+            for (ServiceType serviceType : appointment.getServices()) {
+                final Long serviceTypeId = (BeanUtils.isNull(serviceType) ? null : serviceType.getId());
+                final ServiceType loaded = serviceTypes.get(serviceTypeId);
+                if (BeanUtils.isNull(loaded)) {
+                    return "Service type not found with id: " + serviceTypeId;
+                } else if (!services.contains(loaded)) {
+                    services.add(loaded);
+                }
+            }
+        }
+        appointment.setServices(services);
+        return null;
+    }
+
     /**
      * @return
      */
@@ -118,11 +336,7 @@ public class AppointmentServiceImpl extends AbstractServiceImpl<Appointment, Lon
 
         List<Appointment> appointments;
         try {
-            // Check if user is admin
-            boolean isAdmin = autoUser.getAuthorities().stream()
-                .anyMatch(auth -> auth.getAuthority().equals("ADMIN") || auth.getAuthority().equals("ROLE_ADMIN"));
-            
-            if (isAdmin) {
+            if (ContextUtils.isAdmin(autoUser)) {
                 // Admin sees all appointments sorted by date/time
                 appointments = appointmentRepository.findAllByOrderByAppointmentOnAscStartTimeAsc();
                 LOGGER.debug("Admin user - returning all {} appointments", appointments.size());
@@ -140,6 +354,39 @@ public class AppointmentServiceImpl extends AbstractServiceImpl<Appointment, Lon
         return appointments;
     }
 
+    /**
+     * Reads the summary rows and then the service names of the same appointments with a second query, so the listing
+     * costs two statements whatever the number of appointments.
+     *
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<AppointmentSummary> getAppointmentSummariesForCurrentUser() {
+        LOGGER.debug("+getAppointmentSummariesForCurrentUser()");
+        AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        final boolean admin = ContextUtils.isAdmin(autoUser);
+        final List<AppointmentSummary> summaries = (admin ? appointmentRepository.findAllSummaries()
+                                                          : appointmentRepository.findSummariesByUser(autoUser));
+        final Map<Long, AppointmentSummary> summaryById = HashMap.newHashMap(summaries.size());
+        summaries.forEach(summary -> summaryById.put(summary.getId(), summary));
+        (admin ? appointmentRepository.findAllServiceNames() : appointmentRepository.findServiceNamesByUser(autoUser))
+            .forEach(serviceName -> {
+                final AppointmentSummary summary = summaryById.get(serviceName.getAppointmentId());
+                // skip appointments created between the two queries
+                if (summary != null) {
+                    summary.addService(serviceName.getName());
+                }
+            });
+
+        LOGGER.debug("-getAppointmentSummariesForCurrentUser(), count: {}", summaries.size());
+        return summaries;
+    }
+
     /**
      * @param id
      * @return
@@ -150,54 +397,386 @@ public class AppointmentServiceImpl extends AbstractServiceImpl<Appointment, Lon
     }
 
     /**
+     * Returns the appointments matching the filter, sorted by date and start time, with their users and services. The
+     * criteria run in the database; users other than admins only search their own appointments.
+     *
      * @param filter
      * @return
      */
     @Override
+    @Transactional(readOnly = true)
     public List<Appointment> getByFilter(Filter<Appointment> filter) {
-        return appointmentRepository.findAll();
+        LOGGER.debug("+getByFilter({})", filter);
+        final List<Appointment> appointments = appointmentRepository.findAll(toSpecification(filter), DEFAULT_SORT);
+        LOGGER.debug("-getByFilter(), appointments: {}", appointments.size());
+        return appointments;
     }
 
     /**
+     * Returns a page of the appointments matching the filter, like {@link #getByFilter(Filter)}, sorted by the
+     * pageable or else by date and start time.
+     * <p>
+     * Fetching a collection with a page in a single query would make Hibernate paginate in memory, so the page is read
+     * first and its lazy associations are loaded afterwards in batches of
+     * <code>hibernate.default_batch_fetch_size</code>.
+     *
      * @param filter
      * @param pageable
      * @return
      */
     @Override
+    @Transactional(readOnly = true)
     public Page<Appointment> getByFilter(Filter<Appointment> filter, Pageable pageable) {
-        return appointmentRepository.findAll(pageable);
+        final Sort sort = checkSort(pageable.getSort());
+        final Pageable sortedPageable = (pageable.isPaged()
+                                         ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort)
+                                         : Pageable.unpaged(sort));
+        final Page<Appointment> appointments = appointmentRepository.findAll(toSpecification(filter), sortedPageable);
+        appointments.forEach(appointment -> {
+            Hibernate.initialize(appointment.getUser());
+            Hibernate.initialize(appointment.getServices());
+        });
+        return appointments;
+    }
+
+    /**
+     * Builds the specification of the filter for the current user.
+     *
+     * @param filter
+     * @return
+     */
+    private Specification<Appointment> toSpecification(Filter<Appointment> filter) {
+        final AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        } else if (BeanUtils.isNotNull(filter) && !(filter instanceof AppointmentFilter)) {
+            throw new InvalidRequestException("Unsupported filter: " + filter.getClass().getSimpleName());
+        }
+
+        Specification<Appointment> specification = AppointmentSpecifications.of((AppointmentFilter) filter);
+        if (!ContextUtils.isAdmin(autoUser)) {
+            specification = specification.and(AppointmentSpecifications.ofUser(autoUser.getId()));
+        }
+
+        return specification;
+    }
+
+    /**
+     * @param sort
+     * @return the sort, or the default one if it's unsorted
+     */
+    private Sort checkSort(Sort sort) {
+        if (sort.isUnsorted()) {
+            return DEFAULT_SORT;
+        }
+
+        for (Sort.Order order : sort) {
+            if (!SORTABLE_PROPERTIES.contains(order.getProperty())) {
+                throw new InvalidRequestException("Appointments can't be sorted by: " + order.getProperty()
+                                                  + ", expected any of: " + SORTABLE_PROPERTIES);
+            }
+        }
+
+        return sort;
     }
 
     /**
+     * Updates the appointment, if it belongs to the current user or they're an admin, and still has the version it
+     * was read with. Only the editable fields are copied, like {@link #updateAll(List)} writes them: the vehicle, the
+     * status, the date and times and the services; the user and the schedule are kept. Leaving a status that holds
+     * schedule capacity releases it, like a cancellation does.
+     *
      * @param appointment
      * @return
      */
     @Override
+    @Transactional
     public Appointment update(Appointment appointment) {
         LOGGER.debug("+update({})", appointment);
+        final Long id = appointment.getId();
+        if (BeanUtils.isNull(id)) {
+            throw new InvalidRequestException("Appointment id is required!");
+        }
+        final AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        // the persisted state, which the appointment may be the managed instance of
+        final AppointmentBatchRepository.State state = lockOwnStates(autoUser, Set.of(id)).get(id);
+        if (BeanUtils.isNull(state)) {
+            throw new NoRecordFoundException("id:%d", id);
+        } else if (state.version() != appointment.getVersion()) {
+            throw new ObjectOptimisticLockingFailureException(Appointment.class, id);
+        }
+        if (BeanUtils.isNull(appointment.getStatus())) {
+            appointment.setStatus(state.status());
+        }
+        if (BeanUtils.isNotNull(state.scheduleId()) && takesCapacity(state.status(), appointment.getStatus())) {
+            throw new InvalidRequestException("Scheduled appointments must be booked individually!");
+        }
+        final String error = validateFields(appointment, getServiceTypes(List.of(appointment)));
+        if (BeanUtils.isNotNull(error)) {
+            throw new InvalidRequestException(error);
+        }
+
+        final Appointment existing = getById(id);
+        existing.setVehicle(appointment.getVehicle());
+        existing.setStatus(appointment.getStatus());
+        existing.setAppointmentOn(appointment.getAppointmentOn());
+        existing.setStartTime(appointment.getStartTime());
+        existing.setEndTime(appointment.getEndTime());
+        existing.setServices(appointment.getServices());
+        final Appointment updated = appointmentRepository.saveAndFlush(existing);
+        if (BeanUtils.isNotNull(state.scheduleId()) && releasesCapacity(state.status(), updated.getStatus())) {
+            scheduleService.releaseSchedule(state.scheduleId());
+        }
+
+        LOGGER.debug("-update(), appointment: {}", updated);
+        return updated;
+    }
+
+    /**
+     * @param from
+     * @param to
+     * @return true if the change of status gives back the capacity of the appointment's schedule
+     */
+    private static boolean releasesCapacity(AppointmentStatus from, AppointmentStatus to) {
+        return (from != null && from.holdsCapacity() && !to.holdsCapacity());
+    }
+
+    /**
+     * @param from
+     * @param to
+     * @return true if the change of status needs capacity of the appointment's schedule
+     */
+    private static boolean takesCapacity(AppointmentStatus from, AppointmentStatus to) {
+        return ((from == null || !from.holdsCapacity()) && to.holdsCapacity());
+    }
+
+    /**
+     * @param id
+     * @return
+     */
+    @Override
+    @Transactional
+    public Appointment cancel(Long id) {
+        LOGGER.debug("+cancel({})", id);
+        Appointment appointment = getById(id);
+        final AppointmentStatus status = appointment.getStatus();
+        if (status == AppointmentStatus.CANCELLED) {
+            return appointment;
+        }
+
+        appointment.setStatus(AppointmentStatus.CANCELLED);
         appointment = appointmentRepository.save(appointment);
-        LOGGER.debug("-update(), appointment: {}", appointment);
+        if (BeanUtils.isNotNull(appointment.getSchedule()) && status != null && status.holdsCapacity()) {
+            scheduleService.releaseSchedule(appointment.getSchedule().getId());
+        }
+
+        LOGGER.debug("-cancel(), appointment: {}", appointment);
         return appointment;
     }
 
     /**
+     * Updates the valid appointments through {@link #updateAll(List)} and returns them with their new versions; the
+     * rejected ones are left out.
+     *
      * @param appointments
      * @return
      */
     @Override
+    @Transactional
     public List<Appointment> update(List<Appointment> appointments) {
-        return null;
+        final BatchReport batchReport = updateAll(appointments);
+        final List<Appointment> appointmentList = new ArrayList<>(batchReport.getSucceeded());
+        for (int i = 0; i < appointments.size(); i++) {
+            if (!batchReport.isFailed(i)) {
+                appointmentList.add(appointments.get(i));
+            }
+        }
+
+        return appointmentList;
+    }
+
+    /**
+     * Locks and reads the state of all the appointments with a single query, and checks each of them against it: an
+     * appointment must exist, belong to the current user unless they're an admin, and still have the version it was
+     * read with. The valid ones are written in chunks of
+     * <code>chunkSize</code> with JDBC batches, and the capacity that their new statuses give back is released per
+     * schedule, in the same transaction.
+     *
+     * @param appointments
+     * @return
+     */
+    @Override
+    @Transactional
+    public BatchReport updateAll(List<Appointment> appointments) {
+        LOGGER.debug("+updateAll({})", (appointments == null ? null : appointments.size()));
+        checkBatchSize(appointments);
+        final AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        final Map<Long, ServiceType> serviceTypes = getServiceTypes(appointments);
+        final Map<Long, AppointmentBatchRepository.State> states = lockOwnStates(autoUser,
+            appointments.stream().filter(BeanUtils::isNotNull).map(Appointment::getId).filter(BeanUtils::isNotNull)
+                .collect(Collectors.toSet()));
+
+        final BatchReport batchReport = new BatchReport(appointments.size());
+        final Set<Long> seenIds = HashSet.newHashSet(appointments.size());
+        final Map<Long, Integer> releases = new HashMap<>();
+        final List<Integer> validIndexes = new ArrayList<>(appointments.size());
+        for (int i = 0; i < appointments.size(); i++) {
+            final Appointment appointment = appointments.get(i);
+            final AppointmentBatchRepository.State state = (BeanUtils.isNull(appointment) ? null
+                                                            : states.get(appointment.getId()));
+            String error = null;
+            if (BeanUtils.isNull(state)) {
+                error = "Appointment not found with id: " + (appointment == null ? null : appointment.getId());
+            } else if (!seenIds.add(state.id())) {
+                error = "Appointment is repeated in the batch with id: " + state.id();
+            } else if (state.version() != appointment.getVersion()) {
+                error = "Appointment was modified by someone else with id: " + state.id();
+            } else {
+                if (appointment.getStatus() == null) {
+                    appointment.setStatus(state.status());
+                }
+                if (BeanUtils.isNotNull(state.scheduleId()) && takesCapacity(state.status(), appointment.getStatus())) {
+                    error = "Scheduled appointments must be booked individually!";
+                } else {
+                    error = validateFields(appointment, serviceTypes);
+                }
+            }
+
+            if (error == null) {
+                validIndexes.add(i);
+                if (state.holdsCapacity() && !appointment.getStatus().holdsCapacity()) {
+                    releases.merge(state.scheduleId(), 1, Integer::sum);
+                }
+            } else {
+                batchReport.failed(i, error);
+            }
+        }
+
+        for (int start = 0; start < validIndexes.size(); start += chunkSize) {
+            final List<Integer> indexes = validIndexes.subList(start, Math.min(start + chunkSize, validIndexes.size()));
+            final int[] updateCounts = appointmentBatchRepository.updateAll(
+                indexes.stream().map(appointments::get).toList());
+            for (int i = 0; i < indexes.size(); i++) {
+                // the rows are locked, so their versions can't have changed since they were checked
+                final Appointment appointment = appointments.get(indexes.get(i));
+                appointment.setVersion(appointment.getVersion() + updateCounts[i]);
+                batchReport.succeeded(indexes.get(i), appointment.getId());
+            }
+        }
+        releases.forEach(scheduleService::releaseSchedule);
+
+        LOGGER.debug("-updateAll(), batchReport: {}, releases: {}", batchReport, releases);
+        return batchReport;
     }
 
     /**
+     * Locks and reads the state of the appointments, and leaves out the ones of other users unless the user is an
+     * admin, so a batch treats them as missing.
+     *
+     * @param autoUser
+     * @param ids
+     * @return
+     */
+    private Map<Long, AppointmentBatchRepository.State> lockOwnStates(AutoUser autoUser, Set<Long> ids) {
+        final Map<Long, AppointmentBatchRepository.State> states = appointmentBatchRepository.lockStates(ids);
+        if (!ContextUtils.isAdmin(autoUser)) {
+            states.values().removeIf(state -> !autoUser.getId().equals(state.userId()));
+        }
+
+        return states;
+    }
+
+    /**
+     * Deletes the appointment, if it belongs to the current user or they're an admin, and releases the schedule
+     * capacity it held in the same transaction.
+     *
      * @param id
      * @return
      */
     @Override
+    @Transactional
     public Appointment delete(Long id) {
-        return null;
+        LOGGER.debug("+delete({})", id);
+        final AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        final Appointment appointment = getById(id);
+        if (!ContextUtils.isAdmin(autoUser) && (BeanUtils.isNull(appointment.getUser())
+                                                || !autoUser.getId().equals(appointment.getUser().getId()))) {
+            // like a missing one, so the ids of other users' appointments aren't revealed
+            throw new NoRecordFoundException("id:%d", id);
+        }
+
+        appointmentRepository.delete(appointment);
+        if (BeanUtils.isNotNull(appointment.getSchedule()) && BeanUtils.isNotNull(appointment.getStatus())
+            && appointment.getStatus().holdsCapacity()) {
+            scheduleService.releaseSchedule(appointment.getSchedule().getId());
+        }
+
+        LOGGER.debug("-delete(), appointment: {}", appointment);
+        return appointment;
     }
 
+    /**
+     * Locks and reads the state of all the appointments with a single query, deletes the existing ones of the current
+     * user, or of anyone for an admin, with their services in chunks of <code>chunkSize</code> with JDBC batches, and
+     * releases the capacity they held per schedule, in the same transaction.
+     *
+     * @param ids
+     * @return
+     */
+    @Override
+    @Transactional
+    public BatchReport deleteAll(List<Long> ids) {
+        LOGGER.debug("+deleteAll({})", (ids == null ? null : ids.size()));
+        checkBatchSize(ids);
+        final AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        final Map<Long, AppointmentBatchRepository.State> states = lockOwnStates(
+            autoUser, ids.stream().filter(BeanUtils::isNotNull).collect(Collectors.toSet()));
+
+        final BatchReport batchReport = new BatchReport(ids.size());
+        final Set<Long> seenIds = HashSet.newHashSet(ids.size());
+        final Map<Long, Integer> releases = new HashMap<>();
+        final List<Long> deleteIds = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            final Long id = ids.get(i);
+            final AppointmentBatchRepository.State state = (BeanUtils.isNull(id) ? null : states.get(id));
+            if (BeanUtils.isNull(state)) {
+                batchReport.failed(i, "Appointment not found with id: " + id);
+            } else if (!seenIds.add(id)) {
+                batchReport.failed(i, "Appointment is repeated in the batch with id: " + id);
+            } else {
+                deleteIds.add(id);
+                batchReport.succeeded(i, id);
+                if (state.holdsCapacity()) {
+                    releases.merge(state.scheduleId(), 1, Integer::sum);
+                }
+            }
+        }
+
+        for (int start = 0; start < deleteIds.size(); start += chunkSize) {
+            final int end = Math.min(start + chunkSize, deleteIds.size());
+            appointmentBatchRepository.deleteAll(deleteIds.subList(start, end));
+        }
+        releases.forEach(scheduleService::releaseSchedule);
+
+        LOGGER.debug("-deleteAll(), batchReport: {}, releases: {}", batchReport, releases);
+        return batchReport;
+    }
 
     /**
      * Filters the appointments for the users.
@@ -13,10 +13,12 @@ import com.rslakra.automobile.domain.entities.AutoUser;
 import com.rslakra.automobile.domain.repositories.UserRepository;
 import com.rslakra.automobile.dto.LoginRequest;
 import com.rslakra.automobile.service.AuthService;
+import com.rslakra.automobile.service.event.UserChangedEvent;
 import com.rslakra.automobile.service.security.context.ContextUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -28,6 +30,8 @@ import java.util.List;
 import java.util.Optional;
 
 /**
+ * Every write publishes a {@link UserChangedEvent}, which drops the user from the login cache once the write completes.
+ *
  * @author Rohtash Lakra
  * @created 4/26/23 2:07 PM
  */
@@ -38,16 +42,20 @@ public class AuthServiceImpl extends AbstractServiceImpl<AutoUser, Long> impleme
 
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * @param passwordEncoder
      * @param userRepository
+     * @param eventPublisher
      */
     @Autowired
-    public AuthServiceImpl(PasswordEncoder passwordEncoder, UserRepository userRepository) {
-        LOGGER.debug("AuthServiceImpl({}, {})", passwordEncoder, userRepository);
+    public AuthServiceImpl(PasswordEncoder passwordEncoder, UserRepository userRepository,
+                           ApplicationEventPublisher eventPublisher) {
+        LOGGER.debug("AuthServiceImpl({}, {}, {})", passwordEncoder, userRepository, eventPublisher);
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
+        this.eventPublisher = eventPublisher;
     }
 
 
@@ -144,6 +152,7 @@ public class AuthServiceImpl extends AbstractServiceImpl<AutoUser, Long> impleme
 
         // save user
         autoUser = userRepository.save(autoUser);
+        eventPublisher.publishEvent(new UserChangedEvent(autoUser.getEmail()));
         Authentication authentication = ContextUtils.authenticate(autoUser);
         LOGGER.debug("-create(), authentication: {}, autoUser: {}", authentication, autoUser);
         return autoUser;
@@ -259,6 +268,7 @@ public class AuthServiceImpl extends AbstractServiceImpl<AutoUser, Long> impleme
     public AutoUser delete(Long id) {
         AutoUser autoUser = getById(id);
         userRepository.delete(autoUser);
+        eventPublisher.publishEvent(new UserChangedEvent(autoUser.getEmail()));
         return autoUser;
     }
 
@@ -1,24 +1,42 @@
 package com.rslakra.automobile.service.impl;
 
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
 import com.rslakra.appsuite.spring.exception.NoRecordFoundException;
 import com.rslakra.appsuite.spring.filter.Filter;
 import com.rslakra.appsuite.spring.persistence.ServiceOperation;
 import com.rslakra.appsuite.spring.service.AbstractServiceImpl;
 import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.domain.entities.ScheduleTemplate;
 import com.rslakra.automobile.domain.repositories.ScheduleRepository;
+import com.rslakra.automobile.domain.repositories.ScheduleTemplateRepository;
+import com.rslakra.automobile.domain.repositories.batch.ScheduleBatchRepository;
+import com.rslakra.automobile.dto.ScheduleCursor;
+import com.rslakra.automobile.dto.SchedulePage;
 import com.rslakra.automobile.service.ScheduleService;
+import com.rslakra.automobile.service.WaitlistService;
+import com.rslakra.automobile.service.cache.ScheduleAvailabilityIndex;
+import com.rslakra.automobile.service.event.ScheduleChangedEvent;
+import com.rslakra.automobile.service.event.SchedulesGeneratedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Service implementation for Schedule operations.
@@ -31,10 +49,35 @@ public class ScheduleServiceImpl extends AbstractServiceImpl<Schedule, Long> imp
     private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleServiceImpl.class);
 
     private final ScheduleRepository scheduleRepository;
+    private final ScheduleBatchRepository scheduleBatchRepository;
+    private final ScheduleTemplateRepository scheduleTemplateRepository;
+    private final ScheduleAvailabilityIndex availabilityIndex;
+    private final WaitlistService waitlistService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
 
+    /**
+     * @param scheduleRepository
+     * @param scheduleBatchRepository
+     * @param scheduleTemplateRepository
+     * @param availabilityIndex
+     * @param waitlistService
+     * @param eventPublisher
+     * @param batchSize
+     */
     @Autowired
-    public ScheduleServiceImpl(ScheduleRepository scheduleRepository) {
+    public ScheduleServiceImpl(ScheduleRepository scheduleRepository, ScheduleBatchRepository scheduleBatchRepository,
+                               ScheduleTemplateRepository scheduleTemplateRepository,
+                               ScheduleAvailabilityIndex availabilityIndex, WaitlistService waitlistService,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${schedules.generation.batchSize:500}") int batchSize) {
         this.scheduleRepository = scheduleRepository;
+        this.scheduleBatchRepository = scheduleBatchRepository;
+        this.scheduleTemplateRepository = scheduleTemplateRepository;
+        this.availabilityIndex = availabilityIndex;
+        this.waitlistService = waitlistService;
+        this.eventPublisher = eventPublisher;
+        this.batchSize = batchSize;
     }
 
     @Override
@@ -42,10 +85,15 @@ public class ScheduleServiceImpl extends AbstractServiceImpl<Schedule, Long> imp
         return schedule;
     }
 
+    /**
+     * Served from the in-memory availability index, this never touches the database.
+     *
+     * @return
+     */
     @Override
     public List<Schedule> getAvailableSchedules() {
         LOGGER.debug("+getAvailableSchedules()");
-        List<Schedule> schedules = scheduleRepository.findAvailableFromDate(LocalDate.now());
+        List<Schedule> schedules = availabilityIndex.getAvailableFrom(LocalDate.now());
         LOGGER.debug("-getAvailableSchedules(), count: {}", schedules.size());
         return schedules;
     }
@@ -58,6 +106,56 @@ public class ScheduleServiceImpl extends AbstractServiceImpl<Schedule, Long> imp
         return schedules;
     }
 
+    /**
+     * @param availableOnly
+     * @param fromDate
+     * @param toDate
+     * @param cursor
+     * @param size
+     * @return
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public SchedulePage getSchedulePage(boolean availableOnly, LocalDate fromDate, LocalDate toDate, String cursor,
+                                        Integer size) {
+        LOGGER.debug("+getSchedulePage({}, {}, {}, {}, {})", availableOnly, fromDate, toDate, cursor, size);
+        final LocalDate today = LocalDate.now();
+        if (fromDate == null || (availableOnly && fromDate.isBefore(today))) {
+            fromDate = today;
+        }
+        if (toDate == null) {
+            toDate = fromDate.plusDays(DEFAULT_WINDOW_DAYS);
+        }
+        if (toDate.isBefore(fromDate)) {
+            throw new InvalidRequestException("The toDate must not be before the fromDate!");
+        }
+
+        final int pageSize = (size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE)));
+        ScheduleCursor after = (cursor == null || cursor.isBlank() ? null : ScheduleCursor.decode(cursor));
+        if (after == null || after.getScheduleDate().isBefore(fromDate)) {
+            after = ScheduleCursor.before(fromDate);
+        }
+
+        // read one extra row to know if there's a next page
+        List<Schedule> schedules;
+        if (availableOnly) {
+            schedules = availabilityIndex.getAvailableAfter(after, toDate, pageSize + 1);
+        } else {
+            schedules = scheduleRepository.findPageAfter(after.getScheduleDate(), after.getStartTime(), after.getId(),
+                                                         toDate, PageRequest.of(0, pageSize + 1));
+        }
+
+        String nextCursor = null;
+        if (schedules.size() > pageSize) {
+            schedules = new ArrayList<>(schedules.subList(0, pageSize));
+            nextCursor = ScheduleCursor.of(schedules.get(pageSize - 1)).encode();
+        }
+
+        final SchedulePage schedulePage = new SchedulePage(schedules, fromDate, toDate, pageSize, nextCursor);
+        LOGGER.debug("-getSchedulePage(), schedulePage: {}", schedulePage);
+        return schedulePage;
+    }
+
     @Override
     public List<Schedule> getSchedulesForDate(LocalDate date) {
         LOGGER.debug("+getSchedulesForDate({})", date);
@@ -66,65 +164,152 @@ public class ScheduleServiceImpl extends AbstractServiceImpl<Schedule, Long> imp
         return schedules;
     }
 
+    /**
+     * Books one appointment of the schedule. The schedule is read once with its row locked until the transaction ends,
+     * so concurrent bookings of the same slot queue up behind each other and never overbook past
+     * <code>maxAppointments</code>. Called within a caller's transaction, the capacity is only taken if the caller
+     * commits.
+     *
+     * @param scheduleId
+     * @return
+     */
     @Override
     @Transactional
     public Schedule bookSchedule(Long scheduleId) {
         LOGGER.debug("+bookSchedule({})", scheduleId);
-        Schedule schedule = getById(scheduleId);
+        final Schedule schedule = scheduleRepository.findByIdForUpdate(scheduleId)
+            .orElseThrow(() -> new NoRecordFoundException("id:%d", scheduleId));
+        if (!schedule.hasAvailability()) {
+            LOGGER.debug("-bookSchedule(), not available: {}", schedule);
+            throw new InvalidRequestException("Schedule is not available with id: " + scheduleId);
+        }
+
         schedule.bookSchedule();
-        schedule = scheduleRepository.save(schedule);
+        // writes the booking now, so the event carries the new version
+        scheduleRepository.flush();
+        eventPublisher.publishEvent(ScheduleChangedEvent.saved(schedule));
         LOGGER.debug("-bookSchedule(), schedule: {}", schedule);
         return schedule;
     }
 
+    /**
+     * Releases one booked appointment of the schedule with a single conditional update, and books the freed capacity
+     * for the oldest appointment on the schedule's waitlist in the same transaction.
+     *
+     * @param scheduleId
+     * @return
+     */
     @Override
     @Transactional
     public Schedule releaseSchedule(Long scheduleId) {
-        LOGGER.debug("+releaseSchedule({})", scheduleId);
+        return releaseSchedule(scheduleId, 1);
+    }
+
+    /**
+     * Releases the booked appointments one by one, each promoting the next waiting appointment, and publishes the
+     * resulting state of the schedule once.
+     *
+     * @param scheduleId
+     * @param count
+     * @return
+     */
+    @Override
+    @Transactional
+    public Schedule releaseSchedule(Long scheduleId, int count) {
+        LOGGER.debug("+releaseSchedule({}, {})", scheduleId, count);
+        for (int i = 0; i < count; i++) {
+            if (scheduleRepository.releaseSlot(scheduleId) == 0) {
+                break;
+            }
+            // the update keeps the schedule's row locked until commit, so nobody can take the capacity in between
+            waitlistService.promoteNext(scheduleId);
+        }
         Schedule schedule = getById(scheduleId);
-        schedule.releaseSchedule();
-        schedule = scheduleRepository.save(schedule);
+        eventPublisher.publishEvent(ScheduleChangedEvent.saved(schedule));
         LOGGER.debug("-releaseSchedule(), schedule: {}", schedule);
         return schedule;
     }
 
+    /**
+     * @param scheduleId
+     * @return
+     */
     @Override
     @Transactional
-    public List<Schedule> generateDefaultSchedules(LocalDate startDate, LocalDate endDate) {
+    public Schedule toggleAvailability(Long scheduleId) {
+        LOGGER.debug("+toggleAvailability({})", scheduleId);
+        Schedule schedule = getById(scheduleId);
+        schedule.setAvailable(!schedule.isAvailable());
+        schedule = scheduleRepository.saveAndFlush(schedule);
+        eventPublisher.publishEvent(ScheduleChangedEvent.saved(schedule));
+        LOGGER.debug("-toggleAvailability(), schedule: {}", schedule);
+        return schedule;
+    }
+
+    /**
+     * Generates the slots of the schedule templates that don't exist yet. The existing slots of the range are read with
+     * a single query into a set of keys, so re-running over an already generated range writes nothing. The missing slots
+     * are written in chunks of <code>batchSize</code>, each with a single JDBC batch. Slots a concurrent generation wrote
+     * in the meantime are rejected by the unique date and start time, and are not counted.
+     *
+     * @param startDate
+     * @param endDate
+     * @return
+     */
+    @Override
+    @Transactional
+    public int generateDefaultSchedules(LocalDate startDate, LocalDate endDate) {
         LOGGER.debug("+generateDefaultSchedules({}, {})", startDate, endDate);
-        List<Schedule> generatedSchedules = new ArrayList<>();
-
-        // Default time slots: 9 AM, 10 AM, 11 AM, 1 PM, 2 PM, 3 PM, 4 PM
-        LocalTime[] defaultTimes = {
-            LocalTime.of(9, 0),
-            LocalTime.of(10, 0),
-            LocalTime.of(11, 0),
-            LocalTime.of(13, 0),
-            LocalTime.of(14, 0),
-            LocalTime.of(15, 0),
-            LocalTime.of(16, 0)
-        };
+        final Map<DayOfWeek, List<ScheduleTemplate>> templates = new EnumMap<>(DayOfWeek.class);
+        for (ScheduleTemplate template : scheduleTemplateRepository.findAllByOrderByStartTime()) {
+            templates.computeIfAbsent(template.getDayOfWeek(), dayOfWeek -> new ArrayList<>()).add(template);
+        }
+
+        final Set<Long> existingSlots = new HashSet<>();
+        for (ScheduleRepository.SlotKey slotKey : scheduleRepository.findByScheduleDateBetween(startDate, endDate)) {
+            existingSlots.add(slotKey(slotKey.getScheduleDate(), slotKey.getStartTime()));
+        }
 
+        int generated = 0;
+        final List<Schedule> chunk = new ArrayList<>(batchSize);
         LocalDate currentDate = startDate;
         while (!currentDate.isAfter(endDate)) {
-            // Skip weekends (Saturday=6, Sunday=7)
-            if (currentDate.getDayOfWeek().getValue() < 6) {
-                for (LocalTime startTime : defaultTimes) {
-                    Schedule schedule = new Schedule();
-                    schedule.setScheduleDate(currentDate);
-                    schedule.setStartTime(startTime);
-                    schedule.setEndTime(startTime.plusHours(1));
-                    schedule.setAvailable(true);
-                    schedule.setMaxAppointments(2); // Allow 2 appointments per slot
-                    schedule.setCurrentAppointments(0);
-                    generatedSchedules.add(scheduleRepository.save(schedule));
+            // days without templates are closed
+            for (ScheduleTemplate template : templates.getOrDefault(currentDate.getDayOfWeek(), List.of())) {
+                if (existingSlots.contains(slotKey(currentDate, template.getStartTime()))) {
+                    continue;
+                }
+
+                Schedule schedule = new Schedule(currentDate, template.getStartTime(), template.getEndTime());
+                schedule.setAvailable(true);
+                schedule.setMaxAppointments(template.getMaxAppointments());
+                schedule.setCurrentAppointments(0);
+                chunk.add(schedule);
+                if (chunk.size() == batchSize) {
+                    generated += scheduleBatchRepository.insertAll(chunk);
+                    chunk.clear();
                 }
             }
             currentDate = currentDate.plusDays(1);
         }
+        generated += scheduleBatchRepository.insertAll(chunk);
+
+        if (generated > 0) {
+            eventPublisher.publishEvent(new SchedulesGeneratedEvent(startDate, endDate, generated));
+        }
+        LOGGER.debug("-generateDefaultSchedules(), generated: {}, existing: {}", generated, existingSlots.size());
+        return generated;
+    }
 
-        LOGGER.debug("-generateDefaultSchedules(), generated: {}", generatedSchedules.size());
-        return generatedSchedules;
+    /**
+     * Packs the date and start time of a slot into a single key.
+     *
+     * @param scheduleDate
+     * @param startTime
+     * @return
+     */
+    private static long slotKey(LocalDate scheduleDate, LocalTime startTime) {
+        return scheduleDate.toEpochDay() * 86_400L + startTime.toSecondOfDay();
     }
 
     @Override
@@ -153,27 +338,35 @@ public class ScheduleServiceImpl extends AbstractServiceImpl<Schedule, Long> imp
     public Schedule create(Schedule schedule) {
         LOGGER.debug("+create({})", schedule);
         schedule = scheduleRepository.save(schedule);
+        eventPublisher.publishEvent(ScheduleChangedEvent.saved(schedule));
         LOGGER.debug("-create(), schedule: {}", schedule);
         return schedule;
     }
 
     @Override
+    @Transactional
     public List<Schedule> create(List<Schedule> schedules) {
-        return scheduleRepository.saveAll(schedules);
+        schedules = scheduleRepository.saveAll(schedules);
+        schedules.forEach(schedule -> eventPublisher.publishEvent(ScheduleChangedEvent.saved(schedule)));
+        return schedules;
     }
 
     @Override
     @Transactional
     public Schedule update(Schedule schedule) {
         LOGGER.debug("+update({})", schedule);
-        schedule = scheduleRepository.save(schedule);
+        schedule = scheduleRepository.saveAndFlush(schedule);
+        eventPublisher.publishEvent(ScheduleChangedEvent.saved(schedule));
         LOGGER.debug("-update(), schedule: {}", schedule);
         return schedule;
     }
 
     @Override
+    @Transactional
     public List<Schedule> update(List<Schedule> schedules) {
-        return scheduleRepository.saveAll(schedules);
+        schedules = scheduleRepository.saveAllAndFlush(schedules);
+        schedules.forEach(schedule -> eventPublisher.publishEvent(ScheduleChangedEvent.saved(schedule)));
+        return schedules;
     }
 
     @Override
@@ -182,6 +375,7 @@ public class ScheduleServiceImpl extends AbstractServiceImpl<Schedule, Long> imp
         LOGGER.debug("+delete({})", id);
         Schedule schedule = getById(id);
         scheduleRepository.delete(schedule);
+        eventPublisher.publishEvent(ScheduleChangedEvent.deleted(schedule));
         LOGGER.debug("-delete()");
         return schedule;
     }
@@ -2,23 +2,38 @@ package com.rslakra.automobile.service.impl;
 
 import com.rslakra.appsuite.core.BeanUtils;
 import com.rslakra.appsuite.core.enums.EntityStatus;
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
 import com.rslakra.appsuite.spring.exception.NoRecordFoundException;
 import com.rslakra.appsuite.spring.filter.Filter;
 import com.rslakra.appsuite.spring.persistence.ServiceOperation;
 import com.rslakra.appsuite.spring.service.AbstractServiceImpl;
 import com.rslakra.automobile.domain.entities.ServiceType;
 import com.rslakra.automobile.domain.repositories.ServiceTypeRepository;
+import com.rslakra.automobile.domain.repositories.batch.ServiceTypeBatchRepository;
 import com.rslakra.automobile.service.ServiceTypeService;
+import com.rslakra.automobile.service.cache.ServiceTypeCatalog;
+import com.rslakra.automobile.service.event.ServiceTypesChangedEvent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
+ * The reads are served by the {@link ServiceTypeCatalog}, and every write publishes a {@link ServiceTypesChangedEvent}
+ * that drops it once the write completes.
+ *
  * @author Rohtash Lakra
  * @created 4/21/23 12:20 PM
  */
@@ -27,14 +42,26 @@ public class ServiceTypeServiceImpl extends AbstractServiceImpl<ServiceType, Lon
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ServiceTypeServiceImpl.class);
     private final ServiceTypeRepository serviceTypeRepository;
+    private final ServiceTypeBatchRepository serviceTypeBatchRepository;
+    private final ServiceTypeCatalog serviceTypeCatalog;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * @param serviceTypeRepository
+     * @param serviceTypeBatchRepository
+     * @param serviceTypeCatalog
+     * @param eventPublisher
      */
     @Autowired
-    public ServiceTypeServiceImpl(ServiceTypeRepository serviceTypeRepository) {
-        LOGGER.debug("AutoServiceImpl({})", serviceTypeRepository);
+    public ServiceTypeServiceImpl(ServiceTypeRepository serviceTypeRepository,
+                                  ServiceTypeBatchRepository serviceTypeBatchRepository,
+                                  ServiceTypeCatalog serviceTypeCatalog, ApplicationEventPublisher eventPublisher) {
+        LOGGER.debug("AutoServiceImpl({}, {}, {}, {})", serviceTypeRepository, serviceTypeBatchRepository,
+                     serviceTypeCatalog, eventPublisher);
         this.serviceTypeRepository = serviceTypeRepository;
+        this.serviceTypeBatchRepository = serviceTypeBatchRepository;
+        this.serviceTypeCatalog = serviceTypeCatalog;
+        this.eventPublisher = eventPublisher;
     }
 
     /**
@@ -59,33 +86,95 @@ public class ServiceTypeServiceImpl extends AbstractServiceImpl<ServiceType, Lon
             serviceType.setStatus(EntityStatus.ACTIVE.name());
         }
         serviceType = serviceTypeRepository.save(serviceType);
+        eventPublisher.publishEvent(new ServiceTypesChangedEvent(1));
         LOGGER.debug("-create(), serviceType: {}", serviceType);
         return serviceType;
     }
 
     /**
+     * Inserts the service types with a single JDBC batch.
+     *
      * @param serviceTypes
      * @return
      */
     @Override
+    @Transactional
     public List<ServiceType> create(List<ServiceType> serviceTypes) {
-        return null;
+        LOGGER.debug("+create({})", serviceTypes.size());
+        serviceTypes.forEach(serviceType -> {
+            checkName(serviceType);
+            if (BeanUtils.isNotNull(serviceType.getId())) {
+                throw new InvalidRequestException("Service type already exists with id: " + serviceType.getId());
+            } else if (BeanUtils.isEmpty(serviceType.getStatus())) {
+                serviceType.setStatus(EntityStatus.ACTIVE.name());
+            }
+        });
+        serviceTypeBatchRepository.insertAll(serviceTypes);
+        eventPublisher.publishEvent(new ServiceTypesChangedEvent(serviceTypes.size()));
+        LOGGER.debug("-create(), serviceTypes: {}", serviceTypes.size());
+        return serviceTypes;
+    }
+
+    /**
+     * @param serviceType
+     */
+    private static void checkName(ServiceType serviceType) {
+        if (BeanUtils.isNull(serviceType) || BeanUtils.isEmpty(serviceType.getName())) {
+            throw new InvalidRequestException("Service type name is required!");
+        }
     }
 
     /**
+     * Returns the cached catalog, which must not be modified.
+     *
      * @return
      */
     @Override
     public List<ServiceType> getAll() {
-        return serviceTypeRepository.findAll();
+        return serviceTypeCatalog.getAll();
     }
 
     /**
+     * Returns the cached service type, which must not be modified.
+     *
      * @param id
      * @return
      */
     @Override
     public ServiceType getById(Long id) {
+        return serviceTypeCatalog.getById(id).orElseThrow(() -> new NoRecordFoundException("id:%d", id));
+    }
+
+    /**
+     * Resolves all the service types from the cached catalog at once, so only the ids it misses cost a query.
+     *
+     * @param ids
+     * @return
+     */
+    @Override
+    public List<ServiceType> getByIds(Collection<Long> ids) {
+        LOGGER.debug("+getByIds({})", ids);
+        if (BeanUtils.isNull(ids) || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        final List<ServiceType> serviceTypes = serviceTypeCatalog.getByIds(ids);
+        final Set<Long> missingIds = new TreeSet<>();
+        ids.stream().filter(Objects::nonNull).forEach(missingIds::add);
+        serviceTypes.forEach(serviceType -> missingIds.remove(serviceType.getId()));
+        if (!missingIds.isEmpty()) {
+            throw new NoRecordFoundException("ids:%s", missingIds);
+        }
+
+        LOGGER.debug("-getByIds(), serviceTypes: {}", serviceTypes.size());
+        return serviceTypes;
+    }
+
+    /**
+     * @param id
+     * @return the service type as it is stored now
+     */
+    private ServiceType load(Long id) {
         return serviceTypeRepository.findById(id).orElseThrow(() -> new NoRecordFoundException("id:%d", id));
     }
 
@@ -109,29 +198,85 @@ public class ServiceTypeServiceImpl extends AbstractServiceImpl<ServiceType, Lon
     }
 
     /**
+     * Saves the service type, if it still has the version it was read with.
+     *
      * @param serviceType
      * @return
      */
     @Override
+    @Transactional
     public ServiceType update(ServiceType serviceType) {
-        return null;
+        LOGGER.debug("+update({})", serviceType);
+        checkName(serviceType);
+        if (BeanUtils.isNull(serviceType.getId())) {
+            throw new InvalidRequestException("Service type id is required!");
+        }
+
+        final ServiceType existing = load(serviceType.getId());
+        if (BeanUtils.isEmpty(serviceType.getStatus())) {
+            serviceType.setStatus(existing.getStatus());
+        }
+        // merging a stale version fails with an optimistic locking failure
+        serviceType = serviceTypeRepository.save(serviceType);
+        eventPublisher.publishEvent(new ServiceTypesChangedEvent(1));
+        LOGGER.debug("-update(), serviceType: {}", serviceType);
+        return serviceType;
     }
 
     /**
+     * Updates the service types with a single JDBC batch, each only if it still has the version it was read with. A
+     * missing or stale service type fails the whole batch.
+     *
      * @param serviceTypes
      * @return
      */
     @Override
+    @Transactional
     public List<ServiceType> update(List<ServiceType> serviceTypes) {
-        return null;
+        LOGGER.debug("+update({})", serviceTypes.size());
+        serviceTypes.forEach(serviceType -> {
+            checkName(serviceType);
+            if (BeanUtils.isNull(serviceType.getId())) {
+                throw new InvalidRequestException("Service type id is required!");
+            } else if (BeanUtils.isEmpty(serviceType.getStatus())) {
+                serviceType.setStatus(EntityStatus.ACTIVE.name());
+            }
+        });
+
+        final int[] updateCounts = serviceTypeBatchRepository.updateAll(serviceTypes);
+        for (int i = 0; i < updateCounts.length; i++) {
+            final ServiceType serviceType = serviceTypes.get(i);
+            if (updateCounts[i] == 0) {
+                throw new ObjectOptimisticLockingFailureException(ServiceType.class, serviceType.getId());
+            }
+            serviceType.setVersion(serviceType.getVersion() + 1);
+        }
+        eventPublisher.publishEvent(new ServiceTypesChangedEvent(serviceTypes.size()));
+
+        LOGGER.debug("-update(), serviceTypes: {}", serviceTypes.size());
+        return serviceTypes;
     }
 
     /**
+     * Deletes the service type, unless an appointment still includes it.
+     *
      * @param id
      * @return
      */
     @Override
+    @Transactional
     public ServiceType delete(Long id) {
-        return null;
+        LOGGER.debug("+delete({})", id);
+        final ServiceType serviceType = load(id);
+        final long appointments = serviceTypeRepository.countAppointments(id);
+        if (appointments > 0) {
+            throw new InvalidRequestException(
+                "Service type is used by " + appointments + " appointments with id: " + id);
+        }
+
+        serviceTypeRepository.delete(serviceType);
+        eventPublisher.publishEvent(new ServiceTypesChangedEvent(1));
+        LOGGER.debug("-delete(), serviceType: {}", serviceType);
+        return serviceType;
     }
 }
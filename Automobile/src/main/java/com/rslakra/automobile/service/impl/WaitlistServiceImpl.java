@@ -0,0 +1,142 @@
+package com.rslakra.automobile.service.impl;
+
+import com.rslakra.appsuite.core.BeanUtils;
+import com.rslakra.appsuite.spring.exception.AuthenticationException;
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
+import com.rslakra.appsuite.spring.exception.NoRecordFoundException;
+import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.domain.repositories.AppointmentRepository;
+import com.rslakra.automobile.domain.repositories.ScheduleRepository;
+import com.rslakra.automobile.service.WaitlistService;
+import com.rslakra.automobile.service.event.ScheduleChangedEvent;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * The joins of a schedule lock its row, and so does the conditional update that releases its capacity. The joins,
+ * bookings and releases of a slot are therefore applied one after the other, which keeps the waitlist FIFO and its
+ * length bounded by <code>schedules.waitlist.maxLength</code>.
+ *
+ * @author Rohtash Lakra
+ */
+@Service
+public class WaitlistServiceImpl implements WaitlistService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WaitlistServiceImpl.class);
+
+    private final ScheduleRepository scheduleRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxLength;
+
+    /**
+     * @param scheduleRepository
+     * @param appointmentRepository
+     * @param eventPublisher
+     * @param maxLength
+     */
+    @Autowired
+    public WaitlistServiceImpl(ScheduleRepository scheduleRepository, AppointmentRepository appointmentRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${schedules.waitlist.maxLength:20}") int maxLength) {
+        LOGGER.debug("WaitlistServiceImpl({}, {}, {}, {})", scheduleRepository, appointmentRepository, eventPublisher,
+                     maxLength);
+        this.scheduleRepository = scheduleRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.eventPublisher = eventPublisher;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * @param scheduleId
+     * @param appointment
+     * @return
+     */
+    @Override
+    @Transactional
+    public Appointment join(Long scheduleId, Appointment appointment) {
+        LOGGER.debug("+join({}, {})", scheduleId, appointment);
+        final AutoUser autoUser = ContextUtils.getLoggedInUser();
+        if (BeanUtils.isNull(autoUser)) {
+            throw new AuthenticationException();
+        }
+
+        Schedule schedule = scheduleRepository.findByIdForUpdate(scheduleId)
+            .orElseThrow(() -> new NoRecordFoundException("id:%d", scheduleId));
+        final Optional<Appointment> waiting = appointmentRepository
+            .findFirstByScheduleIdAndUserIdAndStatus(scheduleId, autoUser.getId(), AppointmentStatus.WAITLISTED);
+        if (waiting.isPresent()) {
+            LOGGER.debug("-join(), already waiting: {}", waiting.get());
+            return waiting.get();
+        }
+
+        final boolean disabled = (!schedule.isAvailable() && schedule.hasCapacity());
+        if (scheduleRepository.reserveSlot(scheduleId) == 1) {
+            // nobody is waiting, since freed capacity is always promoted right away
+            appointment.setStatus(AppointmentStatus.PENDING);
+            schedule = scheduleRepository.findById(scheduleId).orElseThrow();
+            eventPublisher.publishEvent(ScheduleChangedEvent.saved(schedule));
+        } else if (disabled) {
+            throw new InvalidRequestException("Schedule is not available with id: " + scheduleId);
+        } else if (appointmentRepository.countByScheduleIdAndStatus(scheduleId, AppointmentStatus.WAITLISTED)
+                   >= maxLength) {
+            throw new InvalidRequestException("The waitlist is full for schedule with id: " + scheduleId);
+        } else {
+            appointment.setStatus(AppointmentStatus.WAITLISTED);
+            schedule = scheduleRepository.findById(scheduleId).orElseThrow();
+        }
+
+        appointment.setUser(autoUser);
+        appointment.setSchedule(schedule);
+        appointment.setAppointmentOn(schedule.getScheduleDate());
+        appointment.setStartTime(schedule.getStartTime());
+        appointment.setEndTime(schedule.getEndTime());
+        appointment = appointmentRepository.save(appointment);
+        LOGGER.debug("-join(), appointment: {}", appointment);
+        return appointment;
+    }
+
+    /**
+     * @param scheduleId
+     * @return
+     */
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Appointment promoteNext(Long scheduleId) {
+        LOGGER.debug("+promoteNext({})", scheduleId);
+        final Optional<Appointment> next = appointmentRepository
+            .findFirstByScheduleIdAndStatusOrderByIdAsc(scheduleId, AppointmentStatus.WAITLISTED);
+        if (next.isEmpty() || scheduleRepository.reserveSlot(scheduleId) == 0) {
+            LOGGER.debug("-promoteNext(), nobody promoted");
+            return null;
+        }
+
+        final Appointment appointment = next.get();
+        appointmentRepository.updateStatus(appointment.getId(), AppointmentStatus.WAITLISTED,
+                                           AppointmentStatus.PENDING);
+        appointment.setStatus(AppointmentStatus.PENDING);
+        LOGGER.debug("-promoteNext(), appointment: {}", appointment);
+        return appointment;
+    }
+
+    /**
+     * @param scheduleId
+     * @return
+     */
+    @Override
+    public long getWaitlistLength(Long scheduleId) {
+        return appointmentRepository.countByScheduleIdAndStatus(scheduleId, AppointmentStatus.WAITLISTED);
+    }
+}
@@ -0,0 +1,142 @@
+package com.rslakra.automobile.service.log;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one line per completed request to the <code>ACCESS_LOG</code> logger, which <code>logback.xml</code> sends to
+ * an asynchronous appender of its own.
+ * <p>
+ * The requests only put their {@link AccessLogRecord} in a bounded ring buffer and never wait: when the buffer is full
+ * the record is dropped and counted. A single writer thread formats and logs the records. Only a
+ * <code>sampleRate</code> share of the requests is logged, but the failed ones always are, and nothing at all is
+ * recorded while the logger is disabled.
+ * <p>
+ * Reports <code>accesslog.records</code>, tagged <code>result=logged|dropped</code>. The logged ones are handed to
+ * the logger, and the non-blocking appender of <code>logback.xml</code> can still discard them when its own queue is
+ * full, so they are an upper bound of the lines actually written.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+public class AccessLog {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessLog.class);
+
+    public static final String LOGGER_NAME = "ACCESS_LOG";
+    private static final Logger ACCESS_LOGGER = LoggerFactory.getLogger(LOGGER_NAME);
+    // records formatted per wake-up of the writer
+    private static final int WRITE_BATCH = 64;
+
+    private final double sampleRate;
+    private final ArrayBlockingQueue<AccessLogRecord> buffer;
+    private final Counter logged;
+    private final Counter dropped;
+    private final Thread writer;
+
+    /**
+     * @param meterRegistry
+     * @param sampleRate
+     * @param bufferSize
+     */
+    @Autowired
+    public AccessLog(MeterRegistry meterRegistry, @Value("${accessLog.sampleRate:1.0}") double sampleRate,
+                     @Value("${accessLog.bufferSize:8192}") int bufferSize) {
+        LOGGER.debug("AccessLog({}, {}, {})", meterRegistry, sampleRate, bufferSize);
+        this.sampleRate = sampleRate;
+        this.buffer = new ArrayBlockingQueue<>(bufferSize);
+        logged = Counter.builder("accesslog.records").tag("result", "logged")
+            .description("Access log records handed to the logger, its appender may still drop them")
+            .register(meterRegistry);
+        dropped = Counter.builder("accesslog.records").tag("result", "dropped")
+            .description("Access log records dropped, because the buffer was full").register(meterRegistry);
+        writer = Thread.ofPlatform().name("access-log-writer").daemon().start(this::write);
+    }
+
+    /**
+     * @return true if the records are logged at all
+     */
+    public boolean isEnabled() {
+        return ACCESS_LOGGER.isInfoEnabled();
+    }
+
+    /**
+     * Returns true if the request should be logged: always when it failed, and otherwise for the sampled share.
+     *
+     * @param status
+     * @param failed
+     * @return
+     */
+    public boolean isSampled(int status, boolean failed) {
+        return (failed || status >= 500 || sampleRate >= 1.0d
+                || (sampleRate > 0.0d && ThreadLocalRandom.current().nextDouble() < sampleRate));
+    }
+
+    /**
+     * Queues the record for the writer, or drops it if the buffer is full.
+     *
+     * @param record
+     */
+    public void append(AccessLogRecord record) {
+        if (!buffer.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Writes the queued records until interrupted.
+     */
+    private void write() {
+        final List<AccessLogRecord> records = new ArrayList<>(WRITE_BATCH);
+        final StringBuilder line = new StringBuilder(256);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                records.add(buffer.take());
+                buffer.drainTo(records, WRITE_BATCH - 1);
+                write(records, line);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @param records
+     * @param line
+     */
+    private void write(List<AccessLogRecord> records, StringBuilder line) {
+        for (AccessLogRecord record : records) {
+            line.setLength(0);
+            record.format(line);
+            ACCESS_LOGGER.info(line.toString());
+        }
+        logged.increment(records.size());
+        records.clear();
+    }
+
+    /**
+     * Stops the writer, and writes what's left in the buffer.
+     *
+     * @throws InterruptedException
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        final List<AccessLogRecord> records = new ArrayList<>(buffer.size());
+        buffer.drainTo(records);
+        write(records, new StringBuilder(256));
+    }
+}
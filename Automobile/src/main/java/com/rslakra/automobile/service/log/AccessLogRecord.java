@@ -0,0 +1,127 @@
+package com.rslakra.automobile.service.log;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What the access log keeps of a completed request. It's built on the request thread with the values copied out of the
+ * request, and only formatted later by the writer of the {@link AccessLog}.
+ *
+ * @author Rohtash Lakra
+ */
+@Getter
+@AllArgsConstructor
+public final class AccessLogRecord {
+
+    private static final String REDACTED = "*****";
+
+    private final long timestamp;
+    private final String method;
+    private final String uri;
+    private final Map<String, String[]> parameters;
+    private final int status;
+    private final long durationNanos;
+    private final String clientIP;
+    private final String user;
+    private final String error;
+
+    /**
+     * Returns true if the values of the parameter are never logged.
+     *
+     * @param name
+     * @return
+     */
+    public static boolean isSensitive(String name) {
+        final String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        return (lowerCaseName.contains("password") || lowerCaseName.contains("answer")
+                || lowerCaseName.contains("pwd"));
+    }
+
+    /**
+     * Appends the record as a single line of <code>key=value</code> pairs, with the values quoted where needed, so a
+     * value can't forge another record.
+     *
+     * @param line
+     */
+    public void format(StringBuilder line) {
+        line.append("ts=").append(Instant.ofEpochMilli(timestamp))
+            .append(" method=").append(method)
+            .append(" uri=");
+        appendValue(line, uri);
+        line.append(" status=").append(status)
+            .append(" durationMicros=").append(durationNanos / 1000)
+            .append(" ip=");
+        appendValue(line, clientIP);
+        line.append(" user=");
+        appendValue(line, user);
+        if (!parameters.isEmpty()) {
+            final StringBuilder params = new StringBuilder();
+            parameters.forEach((name, values) -> {
+                if (!params.isEmpty()) {
+                    params.append('&');
+                }
+                params.append(name).append('=');
+                if (isSensitive(name)) {
+                    params.append(REDACTED);
+                } else if (values != null) {
+                    params.append(String.join(",", values));
+                }
+            });
+            line.append(" params=");
+            appendValue(line, params.toString());
+        }
+        if (error != null) {
+            line.append(" error=");
+            appendValue(line, error);
+        }
+    }
+
+    /**
+     * @param line
+     * @param value
+     */
+    private static void appendValue(StringBuilder line, String value) {
+        if (value == null || value.isEmpty()) {
+            line.append('-');
+            return;
+        }
+
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            final char c = value.charAt(i);
+            quoted = (c <= ' ' || c == '"' || c == '\\' || c == '=');
+        }
+        if (!quoted) {
+            line.append(value);
+            return;
+        }
+
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                line.append('\\').append(c);
+            } else if (c == '\n') {
+                line.append("\\n");
+            } else if (c == '\r') {
+                line.append("\\r");
+            } else if (c < ' ') {
+                line.append(' ');
+            } else {
+                line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder line = new StringBuilder(128);
+        format(line);
+        return line.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package com.rslakra.automobile.service.metrics;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Reports the p50, p95, p99 and max latency of every handler and status on the management server, at
+ * <code>/actuator/latency</code>.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+@Endpoint(id = "latency")
+public class LatencyEndpoint {
+
+    private final LatencyRecorder latencyRecorder;
+
+    /**
+     * @param latencyRecorder
+     */
+    @Autowired
+    public LatencyEndpoint(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    /**
+     * @return
+     */
+    @ReadOperation
+    public List<LatencyRecorder.LatencySummary> latency() {
+        return latencyRecorder.getSummaries();
+    }
+}
@@ -0,0 +1,172 @@
+package com.rslakra.automobile.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Records the latency of the requests per handler and response status in <code>http.handler.latency</code> timers,
+ * tagged <code>handler</code> and <code>status</code>.
+ * <p>
+ * Each timer keeps its percentiles in HdrHistogram recorders, which record without locking or allocating, over a
+ * window of <code>windowSeconds</code> that rotates through <code>windowBuffers</code> histograms. The timers are
+ * found by the handler's method and the status, so recording a request never builds a name or a tag.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+public class LatencyRecorder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LatencyRecorder.class);
+
+    public static final String METER_NAME = "http.handler.latency";
+    private static final double[] PERCENTILES = {0.5d, 0.95d, 0.99d};
+    private static final int MAX_STATUS = 600;
+
+    private final MeterRegistry meterRegistry;
+    private final Duration window;
+    private final int windowBuffers;
+    private final ConcurrentHashMap<Object, HandlerTimers> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * @param meterRegistry
+     * @param windowSeconds
+     * @param windowBuffers
+     */
+    @Autowired
+    public LatencyRecorder(MeterRegistry meterRegistry, @Value("${latency.windowSeconds:60}") long windowSeconds,
+                           @Value("${latency.windowBuffers:3}") int windowBuffers) {
+        LOGGER.debug("LatencyRecorder({}, {}, {})", meterRegistry, windowSeconds, windowBuffers);
+        this.meterRegistry = meterRegistry;
+        this.window = Duration.ofSeconds(windowSeconds);
+        this.windowBuffers = windowBuffers;
+    }
+
+    /**
+     * Records the latency of a request handled by the handler.
+     *
+     * @param handler
+     * @param status
+     * @param durationNanos
+     */
+    public void record(Object handler, int status, long durationNanos) {
+        final Object key = (handler instanceof HandlerMethod handlerMethod ? handlerMethod.getMethod()
+                                                                           : handler.getClass());
+        final HandlerTimers handlerTimers = handlers.computeIfAbsent(key, k -> new HandlerTimers(toName(handler)));
+        final int slot = (status > 0 && status < MAX_STATUS ? status : 0);
+        Timer timer = handlerTimers.timers.get(slot);
+        if (timer == null) {
+            timer = Timer.builder(METER_NAME)
+                .tag("handler", handlerTimers.name)
+                .tag("status", String.valueOf(slot))
+                .publishPercentiles(PERCENTILES)
+                .percentilePrecision(2)
+                .distributionStatisticExpiry(window)
+                .distributionStatisticBufferLength(windowBuffers)
+                .description("Latency of the requests per handler and status")
+                .register(meterRegistry);
+            handlerTimers.timers.set(slot, timer);
+        }
+
+        timer.record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the latency of every handler and status recorded so far, ordered by handler and status.
+     *
+     * @return
+     */
+    public List<LatencySummary> getSummaries() {
+        final List<LatencySummary> summaries = new ArrayList<>();
+        handlers.values().forEach(handlerTimers -> {
+            for (int status = 0; status < MAX_STATUS; status++) {
+                final Timer timer = handlerTimers.timers.get(status);
+                if (timer != null) {
+                    summaries.add(toSummary(handlerTimers.name, status, timer.takeSnapshot()));
+                }
+            }
+        });
+        summaries.sort(Comparator.comparing(LatencySummary::handler).thenComparing(LatencySummary::status));
+        return summaries;
+    }
+
+    /**
+     * @param handler
+     * @param status
+     * @param snapshot
+     * @return
+     */
+    private static LatencySummary toSummary(String handler, int status, HistogramSnapshot snapshot) {
+        final double[] millis = new double[PERCENTILES.length];
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                if (percentile.percentile() == PERCENTILES[i]) {
+                    millis[i] = percentile.value(TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        return new LatencySummary(handler, status, snapshot.count(), millis[0], millis[1], millis[2],
+                                  snapshot.max(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @param handler
+     * @return <code>Controller#method</code> for the controllers, the class of the handler otherwise
+     */
+    private static String toName(Object handler) {
+        if (handler instanceof HandlerMethod handlerMethod) {
+            return handlerMethod.getBeanType().getSimpleName() + "#" + handlerMethod.getMethod().getName();
+        }
+
+        return handler.getClass().getSimpleName();
+    }
+
+    /**
+     * The timers of a handler, indexed by the status.
+     */
+    private static final class HandlerTimers {
+
+        private final String name;
+        private final AtomicReferenceArray<Timer> timers = new AtomicReferenceArray<>(MAX_STATUS);
+
+        /**
+         * @param name
+         */
+        private HandlerTimers(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * The latency of a handler and status, in milliseconds. The count covers all the requests, while the percentiles
+     * and the max cover the window.
+     *
+     * @param handler
+     * @param status
+     * @param count
+     * @param p50
+     * @param p95
+     * @param p99
+     * @param max
+     */
+    public record LatencySummary(String handler, int status, long count, double p50, double p95, double p99,
+                                 double max) {
+
+    }
+}
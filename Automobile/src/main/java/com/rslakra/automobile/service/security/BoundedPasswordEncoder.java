@@ -0,0 +1,219 @@
+package com.rslakra.automobile.service.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the hashing of a password encoder on a fixed number of threads of its own, so a surge of logins or
+ * registrations can only keep those threads busy, and never all the request threads.
+ * <p>
+ * The hashes wait in a queue of <code>queueSize</code>. A hash that finds the queue full, or that isn't started within
+ * <code>queueTimeoutMillis</code>, fails with a {@link PasswordHashingRejectedException}. The caller waits for its hash
+ * on the request thread, which is only blocked and not busy.
+ * <p>
+ * Reports <code>passwords.hashing</code> (tagged <code>operation=encode|matches</code>),
+ * <code>passwords.hashing.queue</code>, <code>passwords.hashing.active</code> and
+ * <code>passwords.hashing.rejected</code>.
+ *
+ * @author Rohtash Lakra
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    private final PasswordEncoder passwordEncoder;
+    private final long queueTimeoutNanos;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    /**
+     * @param passwordEncoder
+     * @param threads
+     * @param queueSize
+     * @param queueTimeoutMillis
+     * @param meterRegistry
+     */
+    public BoundedPasswordEncoder(PasswordEncoder passwordEncoder, int threads, int queueSize,
+                                  long queueTimeoutMillis, MeterRegistry meterRegistry) {
+        LOGGER.debug("BoundedPasswordEncoder({}, {}, {}, {}, {})", passwordEncoder, threads, queueSize,
+                     queueTimeoutMillis, meterRegistry);
+        this.passwordEncoder = passwordEncoder;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(queueSize), runnable -> {
+            final Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        encodeTimer = Timer.builder("passwords.hashing").tag("operation", "encode")
+            .description("Time spent hashing new passwords").register(meterRegistry);
+        matchesTimer = Timer.builder("passwords.hashing").tag("operation", "matches")
+            .description("Time spent hashing passwords to check them").register(meterRegistry);
+        rejected = Counter.builder("passwords.hashing.rejected")
+            .description("Hashes rejected, because the hashing threads were saturated").register(meterRegistry);
+        Gauge.builder("passwords.hashing.queue", executor, pool -> pool.getQueue().size())
+            .description("Hashes waiting for a hashing thread").register(meterRegistry);
+        Gauge.builder("passwords.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("Hashing threads busy").register(meterRegistry);
+    }
+
+    /**
+     * @param rawPassword
+     * @return
+     */
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(encodeTimer, () -> passwordEncoder.encode(rawPassword));
+    }
+
+    /**
+     * @param rawPassword
+     * @param encodedPassword
+     * @return
+     */
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return hash(matchesTimer, () -> passwordEncoder.matches(rawPassword, encodedPassword));
+    }
+
+    /**
+     * Only reads the encoded password, so it runs on the caller's thread.
+     *
+     * @param encodedPassword
+     * @return
+     */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Runs the hashing on a hashing thread, and waits for its result.
+     *
+     * @param timer
+     * @param hashing
+     * @param <T>
+     * @return
+     */
+    private <T> T hash(Timer timer, Supplier<T> hashing) {
+        final HashTask<T> hashTask = new HashTask<>(timer, hashing);
+        try {
+            executor.execute(hashTask);
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new PasswordHashingRejectedException("Too many passwords to hash, try again later!");
+        }
+
+        try {
+            return hashTask.result.get(queueTimeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            if (hashTask.claimed.compareAndSet(false, true)) {
+                // never started, so it's given up and leaves the queue
+                executor.remove(hashTask);
+                rejected.increment();
+                throw new PasswordHashingRejectedException("Password hashing timed out, try again later!");
+            }
+
+            // already running, which doesn't take long
+            return await(hashTask);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            hashTask.claimed.set(true);
+            throw new PasswordHashingRejectedException("Interrupted while hashing the password!");
+        } catch (ExecutionException ex) {
+            throw unwrap(ex);
+        }
+    }
+
+    /**
+     * @param hashTask
+     * @param <T>
+     * @return
+     */
+    private static <T> T await(HashTask<T> hashTask) {
+        try {
+            return hashTask.result.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Interrupted while hashing the password!");
+        } catch (ExecutionException ex) {
+            throw unwrap(ex);
+        }
+    }
+
+    /**
+     * @param ex
+     * @return
+     */
+    private static RuntimeException unwrap(ExecutionException ex) {
+        if (ex.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        } else if (ex.getCause() instanceof Error error) {
+            throw error;
+        }
+
+        return new IllegalStateException(ex.getCause());
+    }
+
+    /**
+     * Stops the hashing threads.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A hash, which either its hashing thread or its caller claims: the hashing thread to run it, or the caller to give
+     * up on it.
+     *
+     * @param <T>
+     */
+    private static final class HashTask<T> implements Runnable {
+
+        private final Timer timer;
+        private final Supplier<T> hashing;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        /**
+         * @param timer
+         * @param hashing
+         */
+        private HashTask(Timer timer, Supplier<T> hashing) {
+            this.timer = timer;
+            this.hashing = hashing;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                result.complete(timer.record(hashing));
+            } catch (Throwable ex) {
+                result.completeExceptionally(ex);
+            }
+        }
+    }
+}
@@ -1,19 +1,34 @@
 package com.rslakra.automobile.service.security;
 
 import com.rslakra.appsuite.core.BeanUtils;
-import com.rslakra.appsuite.spring.exception.InvalidRequestException;
+import com.rslakra.automobile.service.LoginAttemptService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
+import java.io.IOException;
+
+/**
+ * Authenticates the login form. Clients and usernames that the {@link LoginAttemptService} blocked after too many
+ * failures are rejected before their password is checked, so bursts of guesses never reach the password hashing. A
+ * login whose password can't be hashed because the hashing threads are saturated gets a <code>503</code>, and isn't
+ * counted as a failure.
+ */
 public class PasswordAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
     /**
@@ -38,13 +53,16 @@ public class PasswordAuthenticationFilter extends UsernamePasswordAuthentication
     public static final String SPRING_SECURITY_FORM_DOMAIN_KEY = "domain";
 
     private final PasswordEncoder passwordEncoder;
+    private final LoginAttemptService loginAttemptService;
 
     /**
      * @param passwordEncoder
+     * @param loginAttemptService
      */
-    public PasswordAuthenticationFilter(PasswordEncoder passwordEncoder) {
-        LOGGER.debug("PasswordAuthenticationFilter({})", passwordEncoder);
+    public PasswordAuthenticationFilter(PasswordEncoder passwordEncoder, LoginAttemptService loginAttemptService) {
+        LOGGER.debug("PasswordAuthenticationFilter({}, {})", passwordEncoder, loginAttemptService);
         this.passwordEncoder = passwordEncoder;
+        this.loginAttemptService = loginAttemptService;
     }
 
     /**
@@ -76,10 +94,11 @@ public class PasswordAuthenticationFilter extends UsernamePasswordAuthentication
         String password = obtainPassword(servletRequest);
         String domain = obtainDomain(servletRequest);
 
+        // an authentication exception is reported by the failure handler, this runs before the controllers
         if (BeanUtils.isEmpty(userName)) {
-            throw new InvalidRequestException("Unable to obtain username from the servletRequest!");
+            throw new BadCredentialsException("Unable to obtain username from the servletRequest!");
         } else if (BeanUtils.isEmpty(password)) {
-            throw new InvalidRequestException("Unable to obtain password from the servletRequest!");
+            throw new BadCredentialsException("Unable to obtain password from the servletRequest!");
         } else if (BeanUtils.isEmpty(domain)) {
             LOGGER.info("Unable to obtain domain from the servletRequest!");
         }
@@ -104,6 +123,11 @@ public class PasswordAuthenticationFilter extends UsernamePasswordAuthentication
                                                      + servletRequest.getMethod());
         }
 
+        if (loginAttemptService.isBlocked(obtainUsername(servletRequest))) {
+            LOGGER.debug("-attemptAuthentication(), blocked");
+            throw new LockedException("Too many failed logins, try again later!");
+        }
+
         Authentication authentication = null;
         PasswordAuthenticationToken authRequestToken = getAuthRequestToken(servletRequest);
         setDetails(servletRequest, authRequestToken);
@@ -112,4 +136,59 @@ public class PasswordAuthenticationFilter extends UsernamePasswordAuthentication
         return authentication;
     }
 
+    /**
+     * @param request
+     * @param response
+     * @param chain
+     * @throws IOException
+     * @throws ServletException
+     */
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+        throws IOException, ServletException {
+        try {
+            super.doFilter(request, response, chain);
+        } catch (PasswordHashingRejectedException ex) {
+            LOGGER.warn("Login rejected, {}", ex.getReason());
+            final HttpServletResponse servletResponse = (HttpServletResponse) response;
+            servletResponse.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            servletResponse.sendError(ex.getStatusCode().value(), ex.getReason());
+        }
+    }
+
+    /**
+     * @param servletRequest
+     * @param servletResponse
+     * @param chain
+     * @param authentication
+     * @throws IOException
+     * @throws ServletException
+     */
+    @Override
+    protected void successfulAuthentication(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
+                                            FilterChain chain, Authentication authentication)
+        throws IOException, ServletException {
+        loginAttemptService.loginSucceeded(obtainUsername(servletRequest));
+        super.successfulAuthentication(servletRequest, servletResponse, chain, authentication);
+    }
+
+    /**
+     * Counts the failure, unless the login was rejected as blocked, so a blocked client is let in again once its
+     * failures leave the window.
+     *
+     * @param servletRequest
+     * @param servletResponse
+     * @param failed
+     * @throws IOException
+     * @throws ServletException
+     */
+    @Override
+    protected void unsuccessfulAuthentication(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
+                                              AuthenticationException failed) throws IOException, ServletException {
+        if (!(failed instanceof LockedException)) {
+            loginAttemptService.loginFailed(obtainUsername(servletRequest));
+        }
+        super.unsuccessfulAuthentication(servletRequest, servletResponse, failed);
+    }
+
 }
@@ -0,0 +1,20 @@
+package com.rslakra.automobile.service.security;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Thrown when a password can't be hashed soon enough, because the hashing threads are saturated. It's reported as a
+ * <code>503 Service Unavailable</code>, so the client can retry later.
+ *
+ * @author Rohtash Lakra
+ */
+public class PasswordHashingRejectedException extends ResponseStatusException {
+
+    /**
+     * @param reason
+     */
+    public PasswordHashingRejectedException(String reason) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, reason);
+    }
+}
@@ -0,0 +1,231 @@
+package com.rslakra.automobile.service.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpSession;
+import jakarta.servlet.http.HttpSessionEvent;
+import jakarta.servlet.http.HttpSessionIdListener;
+import jakarta.servlet.http.HttpSessionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks when the logged-in sessions were last seen, and logs out the ones idle for <code>maxIdleSeconds</code>.
+ * <p>
+ * The sessions are kept in a concurrent map by their id, each with the nanoTime it was last seen, so a request only
+ * writes that one volatile field. A single sweeper thread expires the idle sessions in bulk with a timing wheel: every
+ * session sits in the slot of the tick it would expire at if it's not seen again, and every <code>sweepSeconds</code>
+ * the sweeper checks the slots of the ticks that passed. The sessions seen since are moved to the slot of their new
+ * deadline, and the others are invalidated, so they expire at most one tick late.
+ * <p>
+ * As a session listener, it forgets the sessions destroyed otherwise and follows their id changes. Reports
+ * <code>sessions.tracked</code> and <code>sessions.expired</code>.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+public class SessionActivityRegistry implements HttpSessionListener, HttpSessionIdListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionActivityRegistry.class);
+
+    private final long maxIdleNanos;
+    private final long tickNanos;
+    private final ConcurrentHashMap<String, Activity> activities = new ConcurrentHashMap<>();
+    // the sessions seen for the first time, which the sweeper puts on the wheel
+    private final ConcurrentLinkedQueue<Activity> incoming = new ConcurrentLinkedQueue<>();
+    // only used by the sweeper
+    private final ArrayDeque<Activity>[] wheel;
+    private long sweptTick;
+    private final Counter expired;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * @param meterRegistry
+     * @param maxIdleSeconds
+     * @param sweepSeconds
+     */
+    @Autowired
+    @SuppressWarnings("unchecked")
+    public SessionActivityRegistry(MeterRegistry meterRegistry,
+                                   @Value("${sessions.maxIdleSeconds:300}") long maxIdleSeconds,
+                                   @Value("${sessions.sweepSeconds:5}") long sweepSeconds) {
+        LOGGER.debug("SessionActivityRegistry({}, {}, {})", meterRegistry, maxIdleSeconds, sweepSeconds);
+        this.maxIdleNanos = TimeUnit.SECONDS.toNanos(maxIdleSeconds);
+        this.tickNanos = TimeUnit.SECONDS.toNanos(sweepSeconds);
+        // a slot per tick of the idle time, so a deadline never wraps past the ticks still to sweep
+        this.wheel = new ArrayDeque[(int) (maxIdleNanos / tickNanos) + 2];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ArrayDeque<>();
+        }
+        this.sweptTick = System.nanoTime() / tickNanos;
+        expired = Counter.builder("sessions.expired")
+            .description("Sessions logged out after being idle").register(meterRegistry);
+        Gauge.builder("sessions.tracked", activities, ConcurrentHashMap::size)
+            .description("Logged-in sessions tracked for their activity").register(meterRegistry);
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "session-activity-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleAtFixedRate(() -> sweep(System.nanoTime()), sweepSeconds, sweepSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Marks the session as seen now, unless it's already idle for too long.
+     *
+     * @param session
+     * @return false if the session is idle for too long, and must be logged out
+     */
+    public boolean touch(HttpSession session) {
+        return touch(session, System.nanoTime());
+    }
+
+    /**
+     * @param session
+     * @param nowNanos
+     * @return
+     */
+    boolean touch(HttpSession session, long nowNanos) {
+        final Activity activity = activities.get(session.getId());
+        if (activity == null) {
+            final Activity newActivity = new Activity(session, nowNanos);
+            if (activities.putIfAbsent(session.getId(), newActivity) == null) {
+                incoming.add(newActivity);
+            }
+            return true;
+        } else if (nowNanos - activity.lastSeenNanos >= maxIdleNanos) {
+            return false;
+        }
+
+        activity.lastSeenNanos = nowNanos;
+        return true;
+    }
+
+    /**
+     * Returns the number of sessions tracked.
+     *
+     * @return
+     */
+    public int size() {
+        return activities.size();
+    }
+
+    /**
+     * Puts the new sessions on the wheel, and checks the sessions of the ticks passed since the last sweep.
+     *
+     * @param nowNanos
+     */
+    synchronized void sweep(long nowNanos) {
+        Activity activity;
+        while ((activity = incoming.poll()) != null) {
+            schedule(activity);
+        }
+
+        int expiredSessions = 0;
+        final long currentTick = nowNanos / tickNanos;
+        while (sweptTick < currentTick) {
+            sweptTick++;
+            final ArrayDeque<Activity> slot = wheel[(int) Math.floorMod(sweptTick, (long) wheel.length)];
+            // the sessions moved to the same slot are left for its next turn
+            for (int i = slot.size(); i > 0; i--) {
+                activity = slot.poll();
+                if (activity.removed) {
+                    continue;
+                } else if (nowNanos - activity.lastSeenNanos < maxIdleNanos) {
+                    schedule(activity);
+                } else {
+                    expire(activity);
+                    expiredSessions++;
+                }
+            }
+        }
+
+        if (expiredSessions > 0) {
+            LOGGER.info("sweep(), expired {} idle sessions, tracking: {}", expiredSessions, activities.size());
+        }
+    }
+
+    /**
+     * Puts the session in the slot of the tick of its deadline, and at the earliest in the next one to sweep.
+     *
+     * @param activity
+     */
+    private void schedule(Activity activity) {
+        final long deadlineTick = Math.max((activity.lastSeenNanos + maxIdleNanos) / tickNanos, sweptTick + 1);
+        wheel[(int) Math.floorMod(deadlineTick, (long) wheel.length)].add(activity);
+    }
+
+    /**
+     * @param activity
+     */
+    private void expire(Activity activity) {
+        activity.removed = true;
+        try {
+            activities.remove(activity.session.getId(), activity);
+            activity.session.invalidate();
+            expired.increment();
+        } catch (IllegalStateException ex) {
+            // invalidated meanwhile
+            LOGGER.debug("expire(), already invalidated: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * @param event
+     */
+    @Override
+    public void sessionDestroyed(HttpSessionEvent event) {
+        final Activity activity = activities.remove(event.getSession().getId());
+        if (activity != null) {
+            activity.removed = true;
+        }
+    }
+
+    /**
+     * @param event
+     * @param oldSessionId
+     */
+    @Override
+    public void sessionIdChanged(HttpSessionEvent event, String oldSessionId) {
+        final Activity activity = activities.remove(oldSessionId);
+        if (activity != null) {
+            activities.put(event.getSession().getId(), activity);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * A session with the time it was last seen.
+     */
+    private static final class Activity {
+
+        private final HttpSession session;
+        private volatile long lastSeenNanos;
+        private volatile boolean removed;
+
+        /**
+         * @param session
+         * @param lastSeenNanos
+         */
+        private Activity(HttpSession session, long lastSeenNanos) {
+            this.session = session;
+            this.lastSeenNanos = lastSeenNanos;
+        }
+    }
+}
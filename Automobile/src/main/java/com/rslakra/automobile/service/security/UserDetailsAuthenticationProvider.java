@@ -8,8 +8,10 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.authentication.dao.AbstractUserDetailsAuthenticationProvider;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -27,6 +29,8 @@ public class UserDetailsAuthenticationProvider extends AbstractUserDetailsAuthen
 
     private PasswordEncoder passwordEncoder;
     private UserDetailsService userDetailsService;
+    // re-hashes the passwords stored with an outdated cost, when set
+    private UserDetailsPasswordService userDetailsPasswordService;
 
     /**
      * The password used to perform {@link PasswordEncoder#matches(CharSequence, String)} on when the user is not found
@@ -45,6 +49,15 @@ public class UserDetailsAuthenticationProvider extends AbstractUserDetailsAuthen
         this.userDetailsService = userDetailsService;
     }
 
+    /**
+     * Turns on the re-hashing of the passwords stored with an outdated cost on login.
+     *
+     * @param userDetailsPasswordService
+     */
+    public void setUserDetailsPasswordService(UserDetailsPasswordService userDetailsPasswordService) {
+        this.userDetailsPasswordService = userDetailsPasswordService;
+    }
+
     /**
      * @param userDetails
      * @param authentication
@@ -111,4 +124,30 @@ public class UserDetailsAuthenticationProvider extends AbstractUserDetailsAuthen
         return loadedUserDetails;
     }
 
+    /**
+     * Re-hashes the password with the current cost if the stored hash is outdated and re-hashing is on. A login never
+     * fails because the hashing threads are too busy to re-hash; it's tried again on the next one.
+     *
+     * @param principal
+     * @param authentication
+     * @param user
+     * @return
+     */
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication,
+                                                         UserDetails user) {
+        if (BeanUtils.isNotNull(userDetailsPasswordService) && passwordEncoder.upgradeEncoding(user.getPassword())) {
+            try {
+                final String encodedPassword = passwordEncoder.encode(
+                    ContextUtils.getAuthenticatedPassword(authentication));
+                user = userDetailsPasswordService.updatePassword(user, encodedPassword);
+                LOGGER.info("Re-hashed the password of [{}]", user.getUsername());
+            } catch (PasswordHashingRejectedException ex) {
+                LOGGER.warn("Not re-hashing the password of [{}], {}", user.getUsername(), ex.getReason());
+            }
+        }
+
+        return super.createSuccessAuthentication(principal, authentication, user);
+    }
+
 }
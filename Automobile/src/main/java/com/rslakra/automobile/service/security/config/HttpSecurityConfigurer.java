@@ -1,11 +1,15 @@
 package com.rslakra.automobile.service.security.config;
 
+import com.rslakra.automobile.service.LoginAttemptService;
 import com.rslakra.automobile.service.security.PasswordAuthenticationFilter;
 import com.rslakra.automobile.service.security.UserDetailsAuthenticationProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
@@ -14,11 +18,17 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.session.SessionAuthenticationStrategy;
+import org.springframework.security.web.context.DelegatingSecurityContextRepository;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
 
 @Configuration
 @EnableWebSecurity
@@ -30,12 +40,18 @@ public class HttpSecurityConfigurer extends AbstractHttpConfigurer<HttpSecurityC
     private PasswordEncoder passwordEncoder;
     @Autowired
     private UserDetailsService userDetailsService;
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+    @Value("${passwords.rehashOnLogin:false}")
+    private boolean rehashOnLogin;
 
     public HttpSecurityConfigurer() {
         LOGGER.debug("HttpSecurityConfigurer()");
     }
 
     /**
+     * Puts the login filter in front of the form login's, which then only serves the login page.
+     *
      * @param http
      * @throws Exception
      */
@@ -43,7 +59,15 @@ public class HttpSecurityConfigurer extends AbstractHttpConfigurer<HttpSecurityC
     public void configure(HttpSecurity http) throws Exception {
         LOGGER.debug("+configure({})", http);
         AuthenticationManager authenticationManager = http.getSharedObject(AuthenticationManager.class);
-        http.addFilterBefore(authenticationFilter(authenticationManager), UsernamePasswordAuthenticationFilter.class);
+        PasswordAuthenticationFilter passwordAuthFilter = authenticationFilter(authenticationManager);
+        // the session handling of the form login, so a login survives the request and gets a new session id
+        SessionAuthenticationStrategy sessionStrategy = http.getSharedObject(SessionAuthenticationStrategy.class);
+        if (sessionStrategy != null) {
+            passwordAuthFilter.setSessionAuthenticationStrategy(sessionStrategy);
+        }
+        passwordAuthFilter.setSecurityContextRepository(new DelegatingSecurityContextRepository(
+            new RequestAttributeSecurityContextRepository(), new HttpSessionSecurityContextRepository()));
+        http.addFilterBefore(passwordAuthFilter, UsernamePasswordAuthenticationFilter.class);
         LOGGER.debug("-configure()");
     }
 
@@ -83,6 +107,13 @@ public class HttpSecurityConfigurer extends AbstractHttpConfigurer<HttpSecurityC
                 /* H2 Console - must be first */
                 .requestMatchers("/h2/**")
                 .permitAll()
+                /* Changes of appointments through the API need a user, whose appointments they're checked against */
+                .requestMatchers("/rest/appointments/batch", "/rest/appointments/upload")
+                .authenticated()
+                .requestMatchers(HttpMethod.PUT, "/rest/appointments", "/rest/appointments/**")
+                .authenticated()
+                .requestMatchers(HttpMethod.DELETE, "/rest/appointments/**")
+                .authenticated()
                 /* Testing API - remove it in production */
                 .requestMatchers("/auth/**", "/rest/**")
                 .permitAll()
@@ -116,7 +147,9 @@ public class HttpSecurityConfigurer extends AbstractHttpConfigurer<HttpSecurityC
                 .logoutUrl("/logout")
                 .logoutSuccessUrl("/login?logout=true")
                 .permitAll()
-            );
+            )
+            /* Login filter, which checks the failed login attempts first */
+            .with(this, Customizer.withDefaults());
 
         return http.build();
     }
@@ -128,8 +161,10 @@ public class HttpSecurityConfigurer extends AbstractHttpConfigurer<HttpSecurityC
      */
     public PasswordAuthenticationFilter authenticationFilter(AuthenticationManager authenticationManager) {
         LOGGER.debug("+authenticationFilter({})", authenticationManager);
-        PasswordAuthenticationFilter passwordAuthFilter = new PasswordAuthenticationFilter(passwordEncoder);
+        PasswordAuthenticationFilter passwordAuthFilter =
+            new PasswordAuthenticationFilter(passwordEncoder, loginAttemptService);
         passwordAuthFilter.setAuthenticationManager(authenticationManager);
+        passwordAuthFilter.setAuthenticationSuccessHandler(successHandler());
         passwordAuthFilter.setAuthenticationFailureHandler(failureHandler());
         // Set the login URL so the filter only processes login requests
         passwordAuthFilter.setFilterProcessesUrl("/login");
@@ -152,13 +187,28 @@ public class HttpSecurityConfigurer extends AbstractHttpConfigurer<HttpSecurityC
      */
     public AuthenticationProvider authProvider() {
         LOGGER.debug("authProvider()");
-        AuthenticationProvider
+        UserDetailsAuthenticationProvider
             authProvider =
             new UserDetailsAuthenticationProvider(passwordEncoder, userDetailsService);
+        if (rehashOnLogin && userDetailsService instanceof UserDetailsPasswordService userDetailsPasswordService) {
+            authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
+        }
 
         return authProvider;
     }
 
+    /**
+     * Always lands on the home page, like the form login.
+     *
+     * @return
+     */
+    public SimpleUrlAuthenticationSuccessHandler successHandler() {
+        LOGGER.debug("successHandler()");
+        SimpleUrlAuthenticationSuccessHandler successHandler = new SimpleUrlAuthenticationSuccessHandler("/");
+        successHandler.setAlwaysUseDefaultTargetUrl(true);
+        return successHandler;
+    }
+
     /**
      * @return
      */
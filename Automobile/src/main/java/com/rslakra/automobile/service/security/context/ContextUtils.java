@@ -75,6 +75,33 @@ public enum ContextUtils {
         }
     }
 
+    /**
+     * Returns true if the authorities have the admin role, with or without the <code>ROLE_</code> prefix.
+     *
+     * @param authorities
+     * @return
+     */
+    public static boolean isAdmin(Collection<? extends GrantedAuthority> authorities) {
+        return (BeanUtils.isNotNull(authorities) && authorities.stream()
+            .anyMatch(auth -> "ADMIN".equals(auth.getAuthority()) || "ROLE_ADMIN".equals(auth.getAuthority())));
+    }
+
+    /**
+     * @param authentication
+     * @return
+     */
+    public static boolean isAdmin(Authentication authentication) {
+        return (BeanUtils.isNotNull(authentication) && isAdmin(authentication.getAuthorities()));
+    }
+
+    /**
+     * @param autoUser
+     * @return
+     */
+    public static boolean isAdmin(AutoUser autoUser) {
+        return (BeanUtils.isNotNull(autoUser) && isAdmin(autoUser.getAuthorities()));
+    }
+
     /**
      * @param authentication
      * @return
@@ -5,12 +5,14 @@ import com.rslakra.appsuite.core.enums.RoleType;
 import com.rslakra.appsuite.spring.exception.NoRecordFoundException;
 import com.rslakra.automobile.domain.entities.AutoUser;
 import com.rslakra.automobile.domain.repositories.UserRepository;
+import com.rslakra.automobile.service.cache.UserDetailsCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -21,30 +23,34 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
-import jakarta.transaction.Transactional;
-
 /**
+ * Serves the logins from the {@link UserDetailsCache}. It isn't transactional, so a cached login doesn't even take a
+ * connection; a miss reads the user in the repository's own read-only transaction.
+ *
  * @author Rohtash Lakra
  * @since 01-04-2019 1:38:56 PM
  */
 @Service("userDetailsService")
-@Transactional
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UserDetailsServiceImpl.class);
     private final PasswordEncoder passwordEncoder;
     private final UserRepository userRepository;
+    private final UserDetailsCache userDetailsCache;
 
     /**
      * @param passwordEncoder
      * @param userRepository
+     * @param userDetailsCache
      */
     @Autowired
-    public UserDetailsServiceImpl(PasswordEncoder passwordEncoder, UserRepository userRepository) {
+    public UserDetailsServiceImpl(PasswordEncoder passwordEncoder, UserRepository userRepository,
+                                  UserDetailsCache userDetailsCache) {
         super();
-        LOGGER.debug("UserDetailsServiceImpl({}, {})", passwordEncoder, userRepository);
+        LOGGER.debug("UserDetailsServiceImpl({}, {}, {})", passwordEncoder, userRepository, userDetailsCache);
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
     }
 
     /**
@@ -94,7 +100,8 @@ public class UserDetailsServiceImpl implements UserDetailsService {
     }
 
     /**
-     * Returns the <code>UserDetails</code> object based on the <code>username</code>.
+     * Returns the <code>UserDetails</code> object based on the <code>username</code>, as a copy of the cached user that
+     * the caller owns.
      *
      * @param username
      * @return
@@ -108,7 +115,7 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 //        }
 
         AutoUser autoUser = null;
-        Optional<AutoUser> autoUserOptional = userRepository.findByEmail(username);
+        Optional<AutoUser> autoUserOptional = userDetailsCache.get(username, userRepository::findByEmail);
         if (!autoUserOptional.isPresent()) {
             throw new NoRecordFoundException("username:%s", username);
         }
@@ -118,4 +125,23 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         return autoUser;
     }
 
+    /**
+     * Stores the re-hashed password of the user, and drops the cached user.
+     *
+     * @param userDetails
+     * @param newPassword
+     * @return
+     */
+    @Override
+    public UserDetails updatePassword(final UserDetails userDetails, final String newPassword) {
+        LOGGER.debug("+updatePassword({})", userDetails.getUsername());
+        final AutoUser autoUser = userRepository.findByEmail(userDetails.getUsername())
+            .orElseThrow(() -> new NoRecordFoundException("username:%s", userDetails.getUsername()));
+        autoUser.setPassword(newPassword);
+        userRepository.save(autoUser);
+        userDetailsCache.invalidate(userDetails.getUsername());
+        LOGGER.debug("-updatePassword(), autoUser: {}", autoUser.getId());
+        return autoUser;
+    }
+
 }
@@ -0,0 +1,78 @@
+package com.rslakra.automobile.service.security.interceptor;
+
+import com.rslakra.automobile.service.log.AccessLog;
+import com.rslakra.automobile.service.log.AccessLogRecord;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records every completed request in the {@link AccessLog}. It copies what it needs out of the request, and leaves all
+ * the formatting to the access log's writer.
+ *
+ * @author Rohtash Lakra
+ */
+public class AccessLogInterceptor implements HandlerInterceptor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessLogInterceptor.class);
+    private static final String START_NANOS = AccessLogInterceptor.class.getName() + ".startNanos";
+
+    private final AccessLog accessLog;
+
+    /**
+     * @param accessLog
+     */
+    public AccessLogInterceptor(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    /**
+     * Notes the start of the request, unless an earlier dispatch of the same request already did.
+     **/
+    @Override
+    public boolean preHandle(final HttpServletRequest servletRequest, final HttpServletResponse servletResponse,
+                             final Object handler) throws Exception {
+        if (accessLog.isEnabled() && servletRequest.getAttribute(START_NANOS) == null) {
+            servletRequest.setAttribute(START_NANOS, System.nanoTime());
+        }
+        return true;
+    }
+
+    /**
+     * Executed after complete request is finished
+     **/
+    @Override
+    public void afterCompletion(final HttpServletRequest servletRequest, final HttpServletResponse servletResponse,
+                                final Object handler, final Exception ex) throws Exception {
+        if (ex != null) {
+            LOGGER.error(ex.getLocalizedMessage(), ex);
+        }
+
+        if (servletRequest.getAttribute(START_NANOS) instanceof Long startNanos && accessLog.isEnabled()
+            && accessLog.isSampled(servletResponse.getStatus(), ex != null)) {
+            final Map<String, String[]> parameters = servletRequest.getParameterMap();
+            accessLog.append(new AccessLogRecord(System.currentTimeMillis(), servletRequest.getMethod(),
+                                                 servletRequest.getRequestURI(),
+                                                 (parameters.isEmpty() ? Map.of() : new LinkedHashMap<>(parameters)),
+                                                 servletResponse.getStatus(), System.nanoTime() - startNanos,
+                                                 getClientIP(servletRequest), servletRequest.getRemoteUser(),
+                                                 (ex == null ? null : ex.getClass().getName())));
+        }
+    }
+
+    /**
+     * @param servletRequest
+     * @return
+     */
+    private static String getClientIP(final HttpServletRequest servletRequest) {
+        final String xForwardedFor = servletRequest.getHeader(ContextUtils.X_FORWARDED_FOR);
+        return (xForwardedFor == null ? servletRequest.getRemoteAddr() : xForwardedFor);
+    }
+}
@@ -0,0 +1,51 @@
+package com.rslakra.automobile.service.security.interceptor;
+
+import com.rslakra.automobile.service.metrics.LatencyRecorder;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records the latency of every request in the {@link LatencyRecorder}, from the start of its handling to its
+ * completion, including the rendering of its view.
+ *
+ * @author Rohtash Lakra
+ */
+public class LatencyInterceptor implements HandlerInterceptor {
+
+    private static final String START_NANOS = LatencyInterceptor.class.getName() + ".startNanos";
+
+    private final LatencyRecorder latencyRecorder;
+
+    /**
+     * @param latencyRecorder
+     */
+    public LatencyInterceptor(LatencyRecorder latencyRecorder) {
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    /**
+     * Notes the start of the request, unless an earlier dispatch of the same request already did.
+     **/
+    @Override
+    public boolean preHandle(final HttpServletRequest servletRequest, final HttpServletResponse servletResponse,
+                             final Object handler) throws Exception {
+        if (servletRequest.getAttribute(START_NANOS) == null) {
+            servletRequest.setAttribute(START_NANOS, System.nanoTime());
+        }
+        return true;
+    }
+
+    /**
+     * Executed after complete request is finished
+     **/
+    @Override
+    public void afterCompletion(final HttpServletRequest servletRequest, final HttpServletResponse servletResponse,
+                                final Object handler, final Exception ex) throws Exception {
+        if (servletRequest.getAttribute(START_NANOS) instanceof Long startNanos) {
+            latencyRecorder.record(handler, (ex == null ? servletResponse.getStatus() : 500),
+                                   System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -1,37 +1,31 @@
 package com.rslakra.automobile.service.security.interceptor;
 
-import com.rslakra.appsuite.core.BeanUtils;
+import com.rslakra.automobile.service.security.SessionActivityRegistry;
 import com.rslakra.automobile.service.security.context.ContextUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.servlet.HandlerInterceptor;
-import org.springframework.web.servlet.ModelAndView;
 
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
+/**
+ * Marks the sessions of the logged-in users as seen in the {@link SessionActivityRegistry}, which logs out the idle
+ * ones in the background. A request of a session that went idle before the registry swept it is logged out here.
+ */
 public class SessionTimerInterceptor implements HandlerInterceptor {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(SessionTimerInterceptor.class);
 
-    // 30 minutes in milliseconds
-    private static final long MAX_INACTIVE_SESSION_TIME = 5 * 60 * 1000;
-    private static final String EXECUTION_TIME_ATTR = "executionTime";
-
-    private HttpSession httpSession;
-
-    public SessionTimerInterceptor() {
-    }
+    private final SessionActivityRegistry sessionActivityRegistry;
 
     /**
-     * @param httpSession
-     * @return
+     * @param sessionActivityRegistry
      */
-    private Long getTimeSinceLastRequest(HttpSession httpSession) {
-        return (BeanUtils.isNotNull(httpSession) ? System.currentTimeMillis() - httpSession.getLastAccessedTime()
-                                                 : System.currentTimeMillis());
+    public SessionTimerInterceptor(SessionActivityRegistry sessionActivityRegistry) {
+        this.sessionActivityRegistry = sessionActivityRegistry;
     }
 
     /**
@@ -40,43 +34,17 @@ public class SessionTimerInterceptor implements HandlerInterceptor {
     @Override
     public boolean preHandle(final HttpServletRequest servletRequest, final HttpServletResponse servletResponse,
                              final Object handler) throws Exception {
-        LOGGER.info("+preHandle({}, {}, {}), Check start time", servletRequest, servletResponse, handler);
-        long startTime = System.currentTimeMillis();
-        servletRequest.setAttribute(EXECUTION_TIME_ATTR, startTime);
         if (ContextUtils.isLoggedIn()) {
-            httpSession = servletRequest.getSession(false);
-            LOGGER.info("httpSession: {}", httpSession);
-            Long timeSinceLastRequest = getTimeSinceLastRequest(httpSession);
-            LOGGER.info("timeSinceLastRequest: {}", timeSinceLastRequest);
-            if (BeanUtils.isNotNull(httpSession)) {
-//                IFlash flash = new Flash(session);
-//                flash.recycle();
-            }
-
-            LOGGER.info("Time since last servletRequest in this session: {} ms", timeSinceLastRequest);
-            if (timeSinceLastRequest > MAX_INACTIVE_SESSION_TIME) {
+            final HttpSession httpSession = servletRequest.getSession(false);
+            if (httpSession != null && !sessionActivityRegistry.touch(httpSession)) {
                 LOGGER.warn("Logging out, due to inactive session!");
                 SecurityContextHolder.clearContext();
                 servletRequest.logout();
                 servletResponse.sendRedirect("/logout");
-                LOGGER.info("-preHandle(), false (session timeout redirect)");
                 return false;
             }
         }
 
-        LOGGER.info("-preHandle(), true");
         return true;
     }
-
-    /**
-     * Executed before after handler is executed
-     **/
-    @Override
-    public void postHandle(final HttpServletRequest servletRequest, final HttpServletResponse servletResponse,
-                           final Object handler,
-                           final ModelAndView model) throws Exception {
-        LOGGER.info("+postHandle({}, {}, {}), Check execution time.", servletRequest, servletResponse, handler);
-        long startTime = (Long) servletRequest.getAttribute("executionTime");
-        LOGGER.info("-postHandle(), Execution took {} millis.", (System.currentTimeMillis() - startTime));
-    }
 }
@@ -0,0 +1,286 @@
+package com.rslakra.automobile.service.stream;
+
+import com.rslakra.automobile.dto.ScheduleDelta;
+import com.rslakra.automobile.service.event.ScheduleChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes the availability changes of the schedules to the clients of the schedules page as Server-Sent Events.
+ * <p>
+ * The connections are asynchronous requests, so an idle client holds no thread. Every client buffers the newest
+ * {@link ScheduleDelta} of each changed slot, up to <code>bufferSize</code> slots, and every drain of a buffer, like
+ * every reload, runs on a virtual thread of its own, so a slow client only holds its own thread. A client that falls
+ * that far behind is asked to reload and disconnected, instead of growing its buffer, and a send that takes longer than
+ * <code>sendTimeoutMillis</code> disconnects it. A single timer thread keeps time for the heartbeats and the send
+ * timeouts, and never sends itself.
+ *
+ * @author Rohtash Lakra
+ */
+@Component
+public class ScheduleEventStream {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleEventStream.class);
+
+    static final String SCHEDULES_EVENT = "schedules";
+    static final String RELOAD_EVENT = "reload";
+
+    private final long timeoutMillis;
+    private final int maxClients;
+    private final int bufferSize;
+    private final long sendTimeoutMillis;
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService timer;
+    // a virtual thread per drain or reload
+    private final ExecutorService sender;
+
+    /**
+     * @param timeoutMillis
+     * @param maxClients
+     * @param bufferSize
+     * @param sendTimeoutMillis
+     * @param heartbeatSeconds
+     */
+    @Autowired
+    public ScheduleEventStream(@Value("${schedules.stream.timeoutMillis:1800000}") long timeoutMillis,
+                               @Value("${schedules.stream.maxClients:5000}") int maxClients,
+                               @Value("${schedules.stream.bufferSize:256}") int bufferSize,
+                               @Value("${schedules.stream.sendTimeoutMillis:10000}") long sendTimeoutMillis,
+                               @Value("${schedules.stream.heartbeatSeconds:20}") int heartbeatSeconds) {
+        LOGGER.debug("ScheduleEventStream({}, {}, {}, {}, {})", timeoutMillis, maxClients, bufferSize,
+                     sendTimeoutMillis, heartbeatSeconds);
+        this.timeoutMillis = timeoutMillis;
+        this.maxClients = maxClients;
+        this.bufferSize = bufferSize;
+        this.sendTimeoutMillis = sendTimeoutMillis;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "schedule-stream-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sender = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("schedule-stream-sender-", 1)
+                                                             .factory());
+        // comments keep the idle connections open through proxies and detect the closed ones
+        timer.scheduleWithFixedDelay(this::heartbeat, heartbeatSeconds, heartbeatSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Opens a new stream.
+     *
+     * @return
+     */
+    public SseEmitter subscribe() {
+        return register(new SseEmitter(timeoutMillis));
+    }
+
+    /**
+     * @param emitter
+     * @return
+     */
+    SseEmitter register(SseEmitter emitter) {
+        if (clients.size() >= maxClients) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many schedule stream clients!");
+        }
+
+        final Client client = new Client(emitter);
+        emitter.onCompletion(() -> clients.remove(client));
+        emitter.onTimeout(() -> clients.remove(client));
+        emitter.onError(ex -> clients.remove(client));
+        clients.add(client);
+        LOGGER.debug("register(), clients: {}", clients.size());
+        return emitter;
+    }
+
+    /**
+     * Returns the number of open streams.
+     *
+     * @return
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Buffers the change for every client and schedules the clients that have nothing in flight. This never blocks on
+     * a client.
+     *
+     * @param event
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScheduleChanged(ScheduleChangedEvent event) {
+        if (clients.isEmpty()) {
+            return;
+        }
+
+        final ScheduleDelta delta = ScheduleDelta.of(event);
+        for (Client client : clients) {
+            if (client.offer(delta)) {
+                client.schedule();
+            } else {
+                LOGGER.debug("onScheduleChanged(), client fell behind, asking it to reload");
+                clients.remove(client);
+                sender.execute(client::reload);
+            }
+        }
+    }
+
+    /**
+     * Sends a comment to the clients that have nothing in flight.
+     */
+    private void heartbeat() {
+        for (Client client : clients) {
+            client.heartbeatDue = true;
+            client.schedule();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        sender.shutdownNow();
+        clients.forEach(client -> client.emitter.complete());
+        clients.clear();
+    }
+
+    /**
+     * A stream with its buffer of pending changes.
+     */
+    private final class Client {
+
+        private final SseEmitter emitter;
+        // set while a sender thread owns the client
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // the newest delta of each slot, in the order the slots changed; guarded by this
+        private final LinkedHashMap<Long, ScheduleDelta> pending = new LinkedHashMap<>();
+        private volatile boolean heartbeatDue;
+
+        /**
+         * @param emitter
+         */
+        private Client(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * Buffers the delta, unless a newer one of the slot is already buffered.
+         *
+         * @param delta
+         * @return false if the buffer is full
+         */
+        private synchronized boolean offer(ScheduleDelta delta) {
+            final ScheduleDelta previous = pending.remove(delta.getId());
+            pending.put(delta.getId(),
+                        (previous != null && previous.getVersion() > delta.getVersion()) ? previous : delta);
+            return pending.size() <= bufferSize;
+        }
+
+        /**
+         * @return
+         */
+        private synchronized List<ScheduleDelta> poll() {
+            final List<ScheduleDelta> deltas = new ArrayList<>(pending.values());
+            pending.clear();
+            return deltas;
+        }
+
+        /**
+         * @return
+         */
+        private synchronized boolean hasPending() {
+            return !pending.isEmpty();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        /**
+         * Sends the buffered deltas as one event, until the buffer stays empty.
+         */
+        private void drain() {
+            try {
+                do {
+                    final List<ScheduleDelta> deltas = poll();
+                    if (!deltas.isEmpty()) {
+                        heartbeatDue = false;
+                        send(SseEmitter.event().name(SCHEDULES_EVENT).data(deltas, MediaType.APPLICATION_JSON));
+                    } else if (heartbeatDue) {
+                        heartbeatDue = false;
+                        send(SseEmitter.event().comment("keep-alive"));
+                    }
+                    scheduled.set(false);
+                } while (hasPending() && scheduled.compareAndSet(false, true));
+            } catch (IOException | IllegalStateException ex) {
+                LOGGER.debug("drain(), client disconnected: {}", ex.getMessage());
+                clients.remove(this);
+                emitter.completeWithError(ex);
+            }
+        }
+
+        /**
+         * Sends the event, and disconnects the client if the send doesn't return within <code>sendTimeoutMillis</code>.
+         *
+         * @param event
+         * @throws IOException
+         */
+        private void send(SseEmitter.SseEventBuilder event) throws IOException {
+            final Thread thread = Thread.currentThread();
+            final ScheduledFuture<?> timeout = timer.schedule(() -> timeOut(thread), sendTimeoutMillis,
+                                                              TimeUnit.MILLISECONDS);
+            try {
+                emitter.send(event);
+            } finally {
+                timeout.cancel(false);
+            }
+        }
+
+        /**
+         * Drops the client whose send is stuck, and interrupts the thread sending to it. The emitter is completed on a
+         * sender thread, since completing it waits for the write lock the stuck send holds, which would stall the
+         * timer with the heartbeats and the timeouts of the other clients.
+         *
+         * @param thread
+         */
+        private void timeOut(Thread thread) {
+            LOGGER.debug("timeOut(), client didn't take an event within {} ms", sendTimeoutMillis);
+            clients.remove(this);
+            thread.interrupt();
+            sender.execute(() -> emitter.completeWithError(
+                new TimeoutException("Send timed out after " + sendTimeoutMillis + " ms")));
+        }
+
+        private void reload() {
+            try {
+                send(SseEmitter.event().name(RELOAD_EVENT).data(""));
+                emitter.complete();
+            } catch (IOException | IllegalStateException ex) {
+                emitter.completeWithError(ex);
+            }
+        }
+    }
+}
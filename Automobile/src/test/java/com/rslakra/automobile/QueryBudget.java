@@ -0,0 +1,50 @@
+package com.rslakra.automobile;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counts the JDBC statements Hibernate prepares while running an action and fails the test when they exceed the
+ * budget. Needs <code>hibernate.generate_statistics</code> to be enabled.
+ *
+ * @author Rohtash Lakra
+ */
+public final class QueryBudget {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryBudget.class);
+
+    private final Statistics statistics;
+
+    /**
+     * @param entityManagerFactory
+     */
+    public QueryBudget(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        assertTrue(statistics.isStatisticsEnabled(), "hibernate.generate_statistics is disabled!");
+    }
+
+    /**
+     * Runs the action and asserts that it prepared at most <code>maxStatements</code> statements.
+     *
+     * @param maxStatements
+     * @param action
+     * @param <T>
+     * @return
+     */
+    public <T> T assertAtMost(long maxStatements, Supplier<T> action) {
+        statistics.clear();
+        final T result = action.get();
+        final long statements = statistics.getPrepareStatementCount();
+        LOGGER.debug("assertAtMost({}), statements: {}", maxStatements, statements);
+        assertTrue(statements <= maxStatements,
+                   String.format("Expected at most %d statements, but %d were prepared!", maxStatements, statements));
+        return result;
+    }
+}
@@ -0,0 +1,29 @@
+package com.rslakra.automobile;
+
+/**
+ * The audit columns and values of the rows the tests and benchmarks seed with plain SQL, so the seeded rows can be
+ * found and deleted again by their <code>created_by</code> marker.
+ *
+ * @author Rohtash Lakra
+ */
+public final class SeedData {
+
+    public static final String AUDIT_COLUMNS = "created_on, created_at, created_by, updated_on, updated_at, updated_by";
+
+    private static final String EPOCH_MILLIS = "CAST(EXTRACT(EPOCH FROM CURRENT_TIMESTAMP) * 1000 AS BIGINT)";
+
+    private SeedData() {
+        throw new UnsupportedOperationException("Object creation not allowed!");
+    }
+
+    /**
+     * Returns the SQL values of the <code>AUDIT_COLUMNS</code>, created and updated now by the given marker.
+     *
+     * @param seededBy
+     * @return
+     */
+    public static String auditValues(String seededBy) {
+        return EPOCH_MILLIS + ", CURRENT_TIMESTAMP, '" + seededBy + "', " + EPOCH_MILLIS + ", CURRENT_TIMESTAMP, '"
+               + seededBy + "'";
+    }
+}
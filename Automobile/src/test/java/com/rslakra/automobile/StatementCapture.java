@@ -0,0 +1,49 @@
+package com.rslakra.automobile;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Records the SQL Hibernate prepares on the current thread while running an action, so the tests can check what the
+ * database is actually asked. Registered as <code>hibernate.session_factory.statement_inspector</code>.
+ *
+ * @author Rohtash Lakra
+ */
+public final class StatementCapture implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = new ThreadLocal<>();
+
+    /**
+     * Runs the action and returns its result, adding the statements it prepared on this thread to the given list, in
+     * order.
+     *
+     * @param statements
+     * @param action
+     * @param <T>
+     * @return
+     */
+    public static <T> T capture(List<String> statements, Supplier<T> action) {
+        STATEMENTS.set(statements);
+        try {
+            return action.get();
+        } finally {
+            STATEMENTS.remove();
+        }
+    }
+
+    /**
+     * @param sql
+     * @return the unchanged sql
+     */
+    @Override
+    public String inspect(String sql) {
+        final List<String> statements = STATEMENTS.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+
+        return sql;
+    }
+}
@@ -0,0 +1,46 @@
+package com.rslakra.automobile;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the application in the virtual-thread mode, on a database of its own.
+ *
+ * @author Rohtash Lakra
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = {"spring.threads.virtual.enabled=true",
+                  "spring.datasource.url=jdbc:h2:mem:virtualThreads;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000"})
+public class VirtualThreadsTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    /**
+     * Tomcat runs the requests, and the task executor the async work, on virtual threads.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void requestsAndTasksOnVirtualThreads() throws Exception {
+        final Connector connector = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector();
+        assertInstanceOf(VirtualThreadExecutor.class, connector.getProtocolHandler().getExecutor());
+        assertTrue(applicationTaskExecutor.submit(() -> Thread.currentThread().isVirtual()).get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,206 @@
+package com.rslakra.automobile.domain.repositories;
+
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
+import com.rslakra.automobile.StatementCapture;
+import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.filter.AppointmentFilter;
+import com.rslakra.automobile.service.AppointmentService;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.rslakra.automobile.SeedData.AUDIT_COLUMNS;
+import static com.rslakra.automobile.SeedData.auditValues;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the criteria of an {@link AppointmentFilter} are run by the database, by checking the SQL Hibernate
+ * prepares as well as the rows it returns.
+ *
+ * @author Rohtash Lakra
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AppointmentSpecificationsTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AppointmentSpecificationsTest.class);
+
+    private static final String SEEDED_BY = "appointment-specifications-test";
+    private static final String USER_EMAIL = "specification-user@example.com";
+    private static final String OTHER_EMAIL = "specification-other@example.com";
+    private static final String AUDIT_VALUES = auditValues(SEEDED_BY);
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long serviceTypeId;
+    private Long otherUserId;
+
+    @BeforeAll
+    public void seed() {
+        for (String email : new String[]{USER_EMAIL, OTHER_EMAIL}) {
+            jdbcTemplate.update("INSERT INTO users (id, email, password, first_name, last_name, status, role, "
+                                + AUDIT_COLUMNS + ") VALUES (NEXT VALUE FOR hibernate_sequence, ?, 'password', "
+                                + "'Specification', 'User', 'ACTIVE', 'USER', " + AUDIT_VALUES + ")", email);
+        }
+        jdbcTemplate.update("INSERT INTO service_types (id, name, status, " + AUDIT_COLUMNS + ") VALUES (NEXT VALUE "
+                            + "FOR hibernate_sequence, 'Specification Service', 'ACTIVE', " + AUDIT_VALUES + ")");
+        serviceTypeId = jdbcTemplate.queryForObject("SELECT id FROM service_types WHERE created_by = ?", Long.class,
+                                                    SEEDED_BY);
+        otherUserId = jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, OTHER_EMAIL);
+
+        // the 10 appointments of each user alternate their make, status and service
+        jdbcTemplate.update("INSERT INTO appointments (id, user_id, make, model, \"year\", status, appointment_on, "
+                            + "start_time, end_time, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE FOR "
+                            + "hibernate_sequence, u.id, CASEWHEN(MOD(x, 2) = 0, 'Honda', 'Ford'), 'Civic', 2018, "
+                            + "CASEWHEN(MOD(x, 3) = 0, 'COMPLETED', 'PENDING'), DATEADD(DAY, x, DATE '2021-06-01'), "
+                            + "TIME '09:00:00', TIME '10:00:00', " + AUDIT_VALUES + " FROM SYSTEM_RANGE(1, 10) "
+                            + "JOIN users u ON u.created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("INSERT INTO appointment_services (appointment_id, service_type_id) SELECT id, ? FROM "
+                            + "appointments WHERE created_by = ? AND MOD(DAY_OF_MONTH(appointment_on), 4) <> 0",
+                            serviceTypeId, SEEDED_BY);
+    }
+
+    @AfterAll
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM appointment_services WHERE appointment_id IN (SELECT id FROM appointments "
+                            + "WHERE created_by = ?)", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM appointments WHERE created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM service_types WHERE created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM users WHERE created_by = ?", SEEDED_BY);
+    }
+
+    @BeforeEach
+    public void login() {
+        final AutoUser autoUser = userRepository.findByEmail(USER_EMAIL).orElseThrow();
+        ContextUtils.authenticate(autoUser, null, autoUser.getAuthorities());
+    }
+
+    @AfterEach
+    public void logout() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * @param statements
+     * @param regex
+     */
+    private void assertContains(List<String> statements, String regex) {
+        final Pattern pattern = Pattern.compile(regex);
+        assertTrue(statements.stream().anyMatch(sql -> pattern.matcher(sql.toLowerCase(Locale.ROOT)).find()),
+                   "No statement matches " + regex + " in " + statements);
+    }
+
+    /**
+     * Every criterion of the filter becomes a predicate of the single select, along with the user of a non-admin.
+     */
+    @Test
+    public void filterInSql() {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(AppointmentFilter.STATUS, "pending");
+        params.put(AppointmentFilter.FROM, "2021-06-02");
+        params.put(AppointmentFilter.TO, "2021-06-10");
+        params.put(AppointmentFilter.SERVICE_TYPE_ID, serviceTypeId.toString());
+        params.put(AppointmentFilter.MAKE, "Honda");
+        params.put(AppointmentFilter.MODEL, "Civic");
+        params.put(AppointmentFilter.YEAR, "2018");
+
+        final List<String> statements = new ArrayList<>();
+        final List<Appointment> appointments = StatementCapture.capture(
+            statements, () -> appointmentService.getByFilter(new AppointmentFilter(params)));
+        LOGGER.debug("filterInSql(), statements: {}", statements);
+
+        assertEquals(1, statements.size());
+        assertContains(statements, "\\.status\\s*=\\s*\\?");
+        assertContains(statements, "\\.appointment_on\\s*>=\\s*\\?");
+        assertContains(statements, "\\.appointment_on\\s*<=\\s*\\?");
+        assertContains(statements, "\\.user_id\\s*=\\s*\\?");
+        assertContains(statements, "exists\\s*\\(\\s*select");
+        assertContains(statements, "\\.service_type_id\\s*=\\s*\\?");
+        assertContains(statements, "\\.make\\s*=\\s*\\?");
+        assertContains(statements, "\\.model\\s*=\\s*\\?");
+        assertContains(statements, "\\.\"?year\"?\\s*=\\s*\\?");
+        assertContains(statements, "order by .*appointment_on");
+
+        // the pending Hondas up to June 10th are on the 3rd, 5th and 9th, and all have the service
+        assertEquals(List.of(3, 5, 9), appointments.stream()
+            .map(appointment -> appointment.getAppointmentOn().getDayOfMonth()).toList());
+        assertTrue(appointments.stream().allMatch(appointment -> appointment.getUser().getEmail().equals(USER_EMAIL)));
+    }
+
+    /**
+     * The page, its order and its count are all computed by the database.
+     */
+    @Test
+    public void pageInSql() {
+        final Map<String, Object> params = Map.of(AppointmentFilter.MAKE, "Ford", "page", "0", "size", "2");
+        final List<String> statements = new ArrayList<>();
+        final Page<Appointment> page = StatementCapture.capture(
+            statements, () -> appointmentService.getByFilter(
+                new AppointmentFilter(params), PageRequest.of(1, 2, Sort.by(Sort.Direction.DESC, "appointmentOn"))));
+        LOGGER.debug("pageInSql(), statements: {}", statements);
+
+        assertContains(statements, "order by .*appointment_on desc");
+        assertContains(statements, "(offset|fetch first|limit)");
+        assertContains(statements, "count\\(");
+        assertEquals(5, page.getTotalElements());
+        assertEquals(List.of(6, 4), page.getContent().stream()
+            .map(appointment -> appointment.getAppointmentOn().getDayOfMonth()).toList());
+    }
+
+    /**
+     * Users other than admins never see the appointments of others, whatever they filter.
+     */
+    @Test
+    public void othersAppointmentsHidden() {
+        final List<Appointment> appointments = appointmentService.getByFilter(
+            new AppointmentFilter(Map.of(AppointmentFilter.USER_ID, otherUserId.toString())));
+        assertTrue(appointments.isEmpty());
+    }
+
+    /**
+     * Unknown keys, malformed values and unsupported sorts are rejected.
+     */
+    @Test
+    public void invalidFilters() {
+        assertThrows(InvalidRequestException.class, () -> new AppointmentFilter(Map.of("colour", "red")));
+        assertThrows(InvalidRequestException.class, () -> new AppointmentFilter(Map.of(AppointmentFilter.STATUS, "x")));
+        assertThrows(InvalidRequestException.class,
+                     () -> new AppointmentFilter(Map.of(AppointmentFilter.FROM, "2021-06-31")));
+        assertThrows(InvalidRequestException.class,
+                     () -> new AppointmentFilter(Map.of(AppointmentFilter.FROM, "2021-06-10",
+                                                        AppointmentFilter.TO, "2021-06-01")));
+        assertThrows(InvalidRequestException.class,
+                     () -> appointmentService.getByFilter(new AppointmentFilter(Map.of()),
+                                                          PageRequest.of(0, 2, Sort.by("user.password"))));
+    }
+}
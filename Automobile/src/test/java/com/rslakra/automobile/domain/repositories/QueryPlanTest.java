@@ -0,0 +1,221 @@
+package com.rslakra.automobile.domain.repositories;
+
+import com.rslakra.automobile.StatementCapture;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static com.rslakra.automobile.SeedData.AUDIT_COLUMNS;
+import static com.rslakra.automobile.SeedData.auditValues;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Seeds a large dataset and verifies with H2's <code>EXPLAIN</code> that the query shapes of the repositories are
+ * served by an index instead of a table scan. The repository queries are checked with the SQL they actually run,
+ * while the join table and the user lookup are checked with hand-written SQL. The seeded rows are dated in the past,
+ * so they stay out of the availability index, and are removed afterwards.
+ *
+ * @author Rohtash Lakra
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QueryPlanTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryPlanTest.class);
+
+    private static final String SEEDED_BY = "query-plan-test";
+    private static final int USERS = 200;
+    private static final int SERVICE_TYPES = 20;
+    private static final int ROWS = 50_000;
+    private static final String AUDIT_VALUES = auditValues(SEEDED_BY);
+    private static final LocalDate FROM_DATE = LocalDate.of(2010, 1, 1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @BeforeAll
+    public void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, email, password, first_name, last_name, status, role, "
+                            + AUDIT_COLUMNS + ") SELECT NEXT VALUE FOR hibernate_sequence, 'plan' || x || "
+                            + "'@example.com', 'password', 'Plan', 'User' || x, 'ACTIVE', 'USER', " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(1, " + USERS + ")");
+        jdbcTemplate.update("INSERT INTO service_types (id, name, status, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE "
+                            + "FOR hibernate_sequence, 'Plan Service ' || x, 'ACTIVE', " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(1, " + SERVICE_TYPES + ")");
+        jdbcTemplate.update("INSERT INTO schedules (id, schedule_date, start_time, end_time, available, "
+                            + "max_appointments, current_appointments, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE "
+                            + "FOR hibernate_sequence, DATEADD(DAY, x / 7, DATE '2000-01-03'), "
+                            + "DATEADD(HOUR, MOD(x, 7), TIME '09:00:00'), DATEADD(HOUR, MOD(x, 7) + 1, "
+                            + "TIME '09:00:00'), MOD(x, 3) > 0, 2, 0, " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(0, " + (ROWS - 1) + ")");
+        jdbcTemplate.update("INSERT INTO appointments (id, user_id, make, model, \"year\", status, appointment_on, "
+                            + "start_time, end_time, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE FOR "
+                            + "hibernate_sequence, u.id, 'Make', 'Model', 2020, 'PENDING', "
+                            + "DATEADD(DAY, r.x / 20, TIMESTAMP '2000-01-03 00:00:00'), "
+                            + "DATEADD(HOUR, MOD(r.x, 7), TIME '09:00:00'), DATEADD(HOUR, MOD(r.x, 7) + 1, "
+                            + "TIME '09:00:00'), " + AUDIT_VALUES + " FROM SYSTEM_RANGE(0, " + (ROWS - 1) + ") r "
+                            + "JOIN users u ON u.email = 'plan' || (MOD(r.x, " + USERS + ") + 1) || '@example.com'");
+        jdbcTemplate.update("INSERT INTO appointment_services (appointment_id, service_type_id) SELECT a.id, s.id "
+                            + "FROM appointments a JOIN service_types s ON s.name = 'Plan Service ' || "
+                            + "(MOD(a.id, " + SERVICE_TYPES + ") + 1) WHERE a.created_by = '" + SEEDED_BY + "'");
+        // refresh the selectivity statistics the planner works with
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM appointment_services WHERE appointment_id IN (SELECT id FROM appointments "
+                            + "WHERE created_by = ?)", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM appointments WHERE created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM schedules WHERE created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM service_types WHERE created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM users WHERE created_by = ?", SEEDED_BY);
+    }
+
+    /**
+     * @param sql
+     * @return
+     */
+    private String explain(String sql) {
+        final String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+        LOGGER.debug("explain({}), plan: {}", sql, plan);
+        assertFalse(plan.contains("tableScan"), plan);
+        return plan;
+    }
+
+    /**
+     * Runs the query, and explains the statement it prepared on the given table with the given parameters, bound in
+     * the order they appear in the statement.
+     *
+     * @param table
+     * @param query
+     * @param parameters
+     * @return
+     */
+    private String explainQuery(String table, Supplier<?> query, Object... parameters) {
+        final List<String> statements = new ArrayList<>();
+        StatementCapture.capture(statements, query);
+        final String sql = statements.stream()
+            .filter(statement -> statement.toLowerCase(Locale.ROOT).contains(" from " + table + " "))
+            .findFirst().orElseThrow(() -> new AssertionError("No " + table + " statement in " + statements));
+        final String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, parameters);
+        LOGGER.debug("explainQuery({}), plan: {}", sql, plan);
+        assertFalse(plan.contains("tableScan"), plan);
+        return plan;
+    }
+
+    /**
+     * ScheduleRepository.findAvailableFromDate
+     */
+    @Test
+    public void findAvailableFromDate() {
+        final String plan = explainQuery("schedules", () -> scheduleRepository.findAvailableFromDate(FROM_DATE),
+                                         FROM_DATE);
+        assertTrue(plan.contains("IDX_SCHEDULES_DATE_"), plan);
+    }
+
+    /**
+     * ScheduleRepository.findAllFromDate
+     */
+    @Test
+    public void findAllFromDate() {
+        final String plan = explainQuery("schedules", () -> scheduleRepository.findAllFromDate(FROM_DATE), FROM_DATE);
+        assertTrue(plan.contains("IDX_SCHEDULES_DATE_START_ID"), plan);
+    }
+
+    /**
+     * ScheduleRepository.findPageAfter
+     */
+    @Test
+    public void findPageAfter() {
+        final LocalDate toDate = FROM_DATE.plusMonths(1);
+        final LocalTime afterTime = LocalTime.of(10, 0);
+        // the keyset parameters in the order of the statement, then the row limit of the first page
+        final String plan = explainQuery("schedules", () -> scheduleRepository.findPageAfter(
+                                             FROM_DATE, afterTime, 0L, toDate, PageRequest.of(0, 51)),
+                                         FROM_DATE, toDate, FROM_DATE, afterTime, afterTime, 0L, 51);
+        assertTrue(plan.contains("IDX_SCHEDULES_DATE_START_ID"), plan);
+    }
+
+    /**
+     * AppointmentRepository.findByUserOrderByAppointmentOnAscStartTimeAsc
+     */
+    @Test
+    public void findByUserOrderByAppointmentOnAscStartTimeAsc() {
+        final AutoUser user = userRepository.findByEmail("plan7@example.com").orElseThrow();
+        final String plan = explainQuery("appointments",
+            () -> appointmentRepository.findByUserOrderByAppointmentOnAscStartTimeAsc(user), user.getId());
+        assertTrue(plan.contains("IDX_APPOINTMENTS_USER_DATE_START"), plan);
+    }
+
+    /**
+     * AppointmentRepository.findSummariesByUser and findServiceNamesByUser
+     */
+    @Test
+    public void findSummariesByUser() {
+        final AutoUser user = userRepository.findByEmail("plan7@example.com").orElseThrow();
+        String plan = explainQuery("appointments", () -> appointmentRepository.findSummariesByUser(user), user.getId());
+        assertTrue(plan.contains("IDX_APPOINTMENTS_USER_DATE_START"), plan);
+
+        plan = explainQuery("appointments", () -> appointmentRepository.findServiceNamesByUser(user), user.getId());
+        assertTrue(plan.contains("IDX_APPOINTMENTS_USER_DATE_START"), plan);
+    }
+
+    /**
+     * AppointmentRepository.findAllByOrderByAppointmentOnAscStartTimeAsc
+     */
+    @Test
+    public void findAllByOrderByAppointmentOnAscStartTimeAsc() {
+        final String plan = explainQuery("appointments",
+                                         () -> appointmentRepository.findAllByOrderByAppointmentOnAscStartTimeAsc());
+        assertTrue(plan.contains("IDX_APPOINTMENTS_DATE_START"), plan);
+        assertTrue(plan.contains("index sorted"), plan);
+    }
+
+    /**
+     * The services of an appointment and the appointments of a service, through the join table.
+     */
+    @Test
+    public void appointmentServices() {
+        String plan = explain("SELECT st.* FROM appointment_services aps JOIN service_types st ON st.id = "
+                              + "aps.service_type_id WHERE aps.appointment_id = 1");
+        assertTrue(plan.contains("APPOINTMENT_ID = "), plan);
+
+        plan = explain("SELECT aps.appointment_id FROM appointment_services aps WHERE aps.service_type_id = 1");
+        assertTrue(plan.contains("IDX_APPOINTMENT_SERVICES_SERVICE_TYPE"), plan);
+    }
+
+    /**
+     * UserRepository.findByEmail
+     */
+    @Test
+    public void findByEmail() {
+        final String plan = explain("SELECT u.* FROM users u WHERE u.email = 'plan7@example.com'");
+        assertTrue(plan.contains("UK_USER_EMAIL"), plan);
+    }
+}
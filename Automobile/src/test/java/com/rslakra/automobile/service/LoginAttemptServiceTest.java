@@ -0,0 +1,115 @@
+package com.rslakra.automobile.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rohtash Lakra
+ */
+public class LoginAttemptServiceTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int MAX_TRACKED = 100;
+
+    private MockHttpServletRequest servletRequest;
+    private LoginAttemptService loginAttemptService;
+
+    @BeforeEach
+    public void setUp() {
+        servletRequest = new MockHttpServletRequest();
+        servletRequest.setRemoteAddr("10.0.0.1");
+        loginAttemptService = new LoginAttemptService(MAX_ATTEMPTS, 900, MAX_TRACKED);
+        ReflectionTestUtils.setField(loginAttemptService, "servletRequest", servletRequest);
+    }
+
+    /**
+     * @param remoteAddr
+     */
+    private void from(String remoteAddr) {
+        servletRequest.setRemoteAddr(remoteAddr);
+    }
+
+    /**
+     * The failures of a client block all its logins, while its usernames stay open to the other clients.
+     */
+    @Test
+    public void blocksClientIP() {
+        for (int i = 1; i <= MAX_ATTEMPTS; i++) {
+            assertFalse(loginAttemptService.isBlocked());
+            loginAttemptService.loginFailed("user" + i + "@example.com");
+        }
+        assertTrue(loginAttemptService.isBlocked());
+        assertTrue(loginAttemptService.isBlocked("other@example.com"));
+
+        // logging in elsewhere doesn't clear the client's failures
+        loginAttemptService.loginSucceeded("user1@example.com");
+        assertTrue(loginAttemptService.isBlocked("user1@example.com"));
+
+        from("10.0.0.2");
+        assertFalse(loginAttemptService.isBlocked("user1@example.com"));
+    }
+
+    /**
+     * The failures of a username from many clients block it everywhere, until it logs in.
+     */
+    @Test
+    public void blocksUsername() {
+        for (int i = 1; i <= MAX_ATTEMPTS; i++) {
+            from("10.0.1." + i);
+            loginAttemptService.loginFailed("Target@Example.com");
+        }
+        from("10.0.2.1");
+        assertFalse(loginAttemptService.isBlocked());
+        assertTrue(loginAttemptService.isBlocked("target@example.com"));
+        assertFalse(loginAttemptService.isBlocked("other@example.com"));
+
+        loginAttemptService.loginSucceeded("target@example.com");
+        assertFalse(loginAttemptService.isBlocked("target@example.com"));
+    }
+
+    /**
+     * Spraying new keys at a full map neither drops the live counters of others nor blocks the keys that never failed.
+     */
+    @Test
+    public void activeCounterSurvivesKeySpraying() {
+        for (int i = 1; i < MAX_ATTEMPTS; i++) {
+            loginAttemptService.loginFailed("target@example.com");
+        }
+        for (int i = 0; i < MAX_TRACKED * 10; i++) {
+            from("10.1." + (i / 250) + "." + (i % 250));
+            loginAttemptService.loginFailed("spray" + i + "@example.com");
+        }
+        final Map<?, ?> counters = (Map<?, ?>) ReflectionTestUtils.getField(loginAttemptService, "counters");
+        assertTrue(counters.size() <= MAX_TRACKED, "Tracked: " + counters.size());
+        from("10.9.9.9");
+        assertFalse(loginAttemptService.isBlocked("fresh@example.com"));
+
+        from("10.0.0.1");
+        assertFalse(loginAttemptService.isBlocked());
+        loginAttemptService.loginFailed("target@example.com");
+        assertTrue(loginAttemptService.isBlocked());
+        assertTrue(loginAttemptService.isBlocked("target@example.com"));
+    }
+
+    /**
+     * The proxy's forwarded header names the client.
+     */
+    @Test
+    public void forwardedClientIP() {
+        servletRequest.addHeader("X-Forwarded-For", "192.168.1.10, 10.0.0.1");
+        for (int i = 0; i < MAX_ATTEMPTS; i++) {
+            loginAttemptService.loginFailed(null);
+        }
+        assertTrue(loginAttemptService.isBlocked());
+
+        servletRequest.removeHeader("X-Forwarded-For");
+        assertFalse(loginAttemptService.isBlocked());
+    }
+}
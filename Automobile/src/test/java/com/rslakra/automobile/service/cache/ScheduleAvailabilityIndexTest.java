@@ -0,0 +1,78 @@
+package com.rslakra.automobile.service.cache;
+
+import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.domain.repositories.ScheduleRepository;
+import com.rslakra.automobile.service.event.ScheduleChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that the index loses no change committed while it's rebuilt, and keeps no day that has passed.
+ *
+ * @author Rohtash Lakra
+ */
+public class ScheduleAvailabilityIndexTest {
+
+    /**
+     * @param id
+     * @param scheduleDate
+     * @param currentAppointments
+     * @param version
+     * @return
+     */
+    private static Schedule newSchedule(long id, LocalDate scheduleDate, int currentAppointments, long version) {
+        final Schedule schedule = new Schedule(scheduleDate, LocalTime.of(9, 0), LocalTime.of(10, 0));
+        schedule.setId(id);
+        schedule.setMaxAppointments(1);
+        schedule.setCurrentAppointments(currentAppointments);
+        schedule.setAvailable(true);
+        schedule.setVersion(version);
+        return schedule;
+    }
+
+    /**
+     * A booking committed after the rebuild read the table is applied to the rebuilt index, and a stale change of a
+     * deleted schedule doesn't bring it back.
+     */
+    @Test
+    public void changesDuringRebuildApplied() {
+        final LocalDate tomorrow = LocalDate.now().plusDays(1);
+        final ScheduleRepository scheduleRepository = mock(ScheduleRepository.class);
+        final ScheduleAvailabilityIndex availabilityIndex = new ScheduleAvailabilityIndex(scheduleRepository);
+        when(scheduleRepository.findAllFromDate(any())).thenAnswer(invocation -> {
+            // committed and published after the read, while the rebuild holds the index
+            availabilityIndex.onScheduleChanged(ScheduleChangedEvent.saved(newSchedule(1L, tomorrow, 1, 2L)));
+            return List.of(newSchedule(1L, tomorrow, 0, 1L), newSchedule(2L, tomorrow, 0, 1L));
+        });
+        availabilityIndex.rebuild();
+        assertEquals(List.of(2L), availabilityIndex.getAvailableFrom(tomorrow).stream().map(Schedule::getId).toList());
+
+        availabilityIndex.onScheduleChanged(ScheduleChangedEvent.deleted(newSchedule(2L, tomorrow, 0, 2L)));
+        availabilityIndex.onScheduleChanged(ScheduleChangedEvent.saved(newSchedule(2L, tomorrow, 0, 1L)));
+        assertTrue(availabilityIndex.getAvailableFrom(tomorrow).isEmpty());
+    }
+
+    /**
+     * The changes of the days that have passed aren't kept.
+     */
+    @Test
+    public void pastDaysNotKept() {
+        final LocalDate yesterday = LocalDate.now().minusDays(1);
+        final ScheduleRepository scheduleRepository = mock(ScheduleRepository.class);
+        when(scheduleRepository.findAllFromDate(any())).thenReturn(List.of());
+        final ScheduleAvailabilityIndex availabilityIndex = new ScheduleAvailabilityIndex(scheduleRepository);
+        availabilityIndex.rebuild();
+
+        availabilityIndex.onScheduleChanged(ScheduleChangedEvent.saved(newSchedule(3L, yesterday, 0, 1L)));
+        assertTrue(availabilityIndex.getAvailableFrom(yesterday).isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package com.rslakra.automobile.service.cache;
+
+import com.rslakra.automobile.QueryBudget;
+import com.rslakra.automobile.domain.entities.ServiceType;
+import com.rslakra.automobile.service.ServiceTypeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rohtash Lakra
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ServiceTypeCatalogTest {
+
+    private static final String NAME_PREFIX = "Catalog Test ";
+
+    @Autowired
+    private ServiceTypeService serviceTypeService;
+
+    @Autowired
+    private ServiceTypeCatalog serviceTypeCatalog;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private QueryBudget queryBudget;
+
+    @BeforeAll
+    public void setUp() {
+        queryBudget = new QueryBudget(entityManagerFactory);
+    }
+
+    @AfterAll
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM service_types WHERE name LIKE ?", NAME_PREFIX + "%");
+        serviceTypeCatalog.invalidate();
+    }
+
+    /**
+     * @param result
+     * @return
+     */
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "serviceTypes").tag("result", result).counter().count();
+    }
+
+    /**
+     * @param name
+     * @return
+     */
+    private ServiceType newServiceType(String name) {
+        final ServiceType serviceType = new ServiceType();
+        serviceType.setName(NAME_PREFIX + name);
+        return serviceType;
+    }
+
+    /**
+     * Once loaded, the catalog and the by-id lookups are served without any statement.
+     */
+    @Test
+    public void steadyStateWithoutQueries() {
+        final ServiceType serviceType = serviceTypeService.create(newServiceType("Steady"));
+        queryBudget.assertAtMost(1, serviceTypeService::getAll);
+
+        final double hits = gets("hit");
+        final double misses = gets("miss");
+        queryBudget.assertAtMost(0, () -> {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(serviceTypeService.getAll().stream()
+                               .anyMatch(type -> type.getId().equals(serviceType.getId())));
+                assertEquals(serviceType.getName(), serviceTypeService.getById(serviceType.getId()).getName());
+            }
+            return null;
+        });
+        assertEquals(hits + 20, gets("hit"));
+        assertEquals(misses, gets("miss"));
+    }
+
+    /**
+     * Creating, updating and deleting a service type drops the catalog, so the next reads see the change.
+     */
+    @Test
+    public void writesInvalidate() {
+        final double evictions = meterRegistry.get("cache.evictions").tag("cache", "serviceTypes").counter().count();
+        final ServiceType created = serviceTypeService.create(newServiceType("Created"));
+        assertTrue(serviceTypeService.getAll().stream().anyMatch(type -> type.getId().equals(created.getId())));
+
+        final ServiceType changed = newServiceType("Updated");
+        changed.setId(created.getId());
+        changed.setVersion(created.getVersion());
+        serviceTypeService.update(changed);
+        assertEquals(NAME_PREFIX + "Updated", serviceTypeService.getById(created.getId()).getName());
+
+        serviceTypeService.delete(created.getId());
+        assertFalse(serviceTypeService.getAll().stream().anyMatch(type -> type.getId().equals(created.getId())));
+        assertTrue(meterRegistry.get("cache.evictions").tag("cache", "serviceTypes").counter().count()
+                   >= evictions + 3);
+    }
+}
@@ -0,0 +1,162 @@
+package com.rslakra.automobile.service.cache;
+
+import com.rslakra.appsuite.spring.exception.NoRecordFoundException;
+import com.rslakra.automobile.QueryBudget;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.service.AuthService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static com.rslakra.automobile.SeedData.AUDIT_COLUMNS;
+import static com.rslakra.automobile.SeedData.auditValues;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rohtash Lakra
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UserDetailsCacheTest {
+
+    private static final String SEEDED_BY = "user-details-cache-test";
+    private static final String AUDIT_VALUES = auditValues(SEEDED_BY);
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private QueryBudget queryBudget;
+
+    @BeforeAll
+    public void setUp() {
+        queryBudget = new QueryBudget(entityManagerFactory);
+    }
+
+    @AfterAll
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM users WHERE created_by = ?", SEEDED_BY);
+    }
+
+    /**
+     * @param email
+     * @return
+     */
+    private Long insertUser(String email) {
+        jdbcTemplate.update("INSERT INTO users (id, email, password, first_name, last_name, status, role, "
+                            + AUDIT_COLUMNS + ") VALUES (NEXT VALUE FOR hibernate_sequence, ?, 'password', "
+                            + "'Cached', 'User', 'ACTIVE', 'USER', " + AUDIT_VALUES + ")", email);
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE email = ?", Long.class, email);
+    }
+
+    /**
+     * @param result
+     * @return
+     */
+    private double gets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "userDetails").tag("result", result).counter().count();
+    }
+
+    /**
+     * @param email
+     * @return
+     */
+    private static AutoUser newUser(String email) {
+        final AutoUser autoUser = new AutoUser();
+        autoUser.setEmail(email);
+        autoUser.setFirstName("Cached");
+        return autoUser;
+    }
+
+    /**
+     * Once cached, the logins of a user are served without any statement, each with a copy of its own.
+     */
+    @Test
+    public void cachedLogins() {
+        final String email = "cached-login@example.com";
+        insertUser(email);
+        final AutoUser first = (AutoUser) userDetailsService.loadUserByUsername(email);
+        first.setFirstName("Changed");
+
+        final double hits = gets("hit");
+        final List<AutoUser> autoUsers = queryBudget.assertAtMost(0, () -> {
+            final List<AutoUser> loaded = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                loaded.add((AutoUser) userDetailsService.loadUserByUsername(email));
+            }
+            return loaded;
+        });
+        assertEquals(hits + 10, gets("hit"));
+        assertNotSame(autoUsers.get(0), autoUsers.get(1));
+        assertTrue(autoUsers.stream().allMatch(autoUser -> "Cached".equals(autoUser.getFirstName())));
+        assertEquals(first.getId(), autoUsers.get(0).getId());
+    }
+
+    /**
+     * Unknown users aren't cached, and deleted ones are dropped.
+     */
+    @Test
+    public void writesInvalidate() {
+        final String email = "cached-delete@example.com";
+        assertThrows(NoRecordFoundException.class, () -> userDetailsService.loadUserByUsername(email));
+        final Long id = insertUser(email);
+        assertEquals(id, ((AutoUser) userDetailsService.loadUserByUsername(email)).getId());
+
+        authService.delete(id);
+        assertThrows(NoRecordFoundException.class, () -> userDetailsService.loadUserByUsername(email));
+    }
+
+    /**
+     * The least recently used user makes room for a new one, and expired users are read again.
+     */
+    @Test
+    public void boundedAndExpiring() {
+        final List<String> loads = new ArrayList<>();
+        final UserDetailsCache cache = new UserDetailsCache(new SimpleMeterRegistry(), 2, 300);
+        for (String email : new String[]{"a@example.com", "b@example.com", "a@example.com", "c@example.com",
+            "a@example.com", "b@example.com"}) {
+            cache.get(email, username -> {
+                loads.add(username);
+                return Optional.of(newUser(username));
+            });
+        }
+        assertEquals(List.of("a@example.com", "b@example.com", "c@example.com", "b@example.com"), loads);
+        assertEquals(2, cache.size());
+
+        final UserDetailsCache expiring = new UserDetailsCache(new SimpleMeterRegistry(), 2, 0);
+        loads.clear();
+        for (int i = 0; i < 3; i++) {
+            expiring.get("a@example.com", username -> {
+                loads.add(username);
+                return Optional.of(newUser(username));
+            });
+        }
+        assertEquals(3, loads.size());
+    }
+}
@@ -0,0 +1,120 @@
+package com.rslakra.automobile.service.file;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.repositories.UserRepository;
+import com.rslakra.automobile.dto.AppointmentRecord;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.rslakra.automobile.SeedData.AUDIT_COLUMNS;
+import static com.rslakra.automobile.SeedData.auditValues;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rohtash Lakra
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AppointmentExporterTest {
+
+    private static final String SEEDED_BY = "appointment-exporter-test";
+    private static final String USER_EMAIL = "export-user@example.com";
+    private static final int APPOINTMENTS = 30;
+    private static final String AUDIT_VALUES = auditValues(SEEDED_BY);
+
+    @Autowired
+    private AppointmentExporter appointmentExporter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeAll
+    public void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, email, password, first_name, last_name, status, role, "
+                            + AUDIT_COLUMNS + ") VALUES (NEXT VALUE FOR hibernate_sequence, ?, 'password', "
+                            + "'Export', 'User', 'ACTIVE', 'USER', " + AUDIT_VALUES + ")", USER_EMAIL);
+        jdbcTemplate.update("INSERT INTO service_types (id, name, status, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE "
+                            + "FOR hibernate_sequence, 'Export Service ' || x, 'ACTIVE', " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(1, 2)");
+        // a comma in the model needs quoting in CSV
+        jdbcTemplate.update("INSERT INTO appointments (id, user_id, make, model, \"year\", status, appointment_on, "
+                            + "start_time, end_time, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE FOR "
+                            + "hibernate_sequence, u.id, 'Make', 'Model, ' || x, 2020, 'PENDING', "
+                            + "DATEADD(DAY, x, CURRENT_DATE), TIME '09:00:00', TIME '10:00:00', " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(1, " + APPOINTMENTS + ") JOIN users u ON u.email = ?", USER_EMAIL);
+        jdbcTemplate.update("INSERT INTO appointment_services (appointment_id, service_type_id) SELECT a.id, s.id "
+                            + "FROM appointments a JOIN service_types s ON s.created_by = a.created_by "
+                            + "WHERE a.created_by = ?", SEEDED_BY);
+    }
+
+    @AfterAll
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM appointment_services WHERE appointment_id IN (SELECT id FROM appointments "
+                            + "WHERE created_by = ?)", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM appointments WHERE created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM service_types WHERE created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM users WHERE created_by = ?", SEEDED_BY);
+    }
+
+    /**
+     * @param fileFormat
+     * @return the lines of the export
+     * @throws Exception
+     */
+    private List<String> export(FileFormat fileFormat) throws Exception {
+        final AutoUser autoUser = userRepository.findByEmail(USER_EMAIL).orElseThrow();
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        assertEquals(APPOINTMENTS, appointmentExporter.export(autoUser, fileFormat, outputStream));
+        return outputStream.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+
+    /**
+     * Writes a line per appointment, with all its services.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void exportCsv() throws Exception {
+        final List<String> lines = export(FileFormat.CSV);
+        assertEquals(APPOINTMENTS + 1, lines.size());
+        assertEquals(AppointmentCsv.HEADER, lines.get(0));
+        for (String line : lines.subList(1, lines.size())) {
+            assertTrue(line.contains("," + USER_EMAIL + ",Make,\"Model, "), line);
+            assertTrue(line.endsWith(",Export Service 1|Export Service 2"), line);
+        }
+    }
+
+    /**
+     * Writes a JSON object per appointment and line.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void exportNdjson() throws Exception {
+        final List<String> lines = export(FileFormat.NDJSON);
+        assertEquals(APPOINTMENTS, lines.size());
+        for (String line : lines) {
+            final AppointmentRecord appointmentRecord = objectMapper.readValue(line, AppointmentRecord.class);
+            assertEquals(USER_EMAIL, appointmentRecord.getUserEmail());
+            assertEquals(List.of("Export Service 1", "Export Service 2"), appointmentRecord.getServices().stream()
+                .sorted().toList());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.rslakra.automobile.service.file;
+
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.repositories.UserRepository;
+import com.rslakra.automobile.dto.ImportReport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static com.rslakra.automobile.SeedData.AUDIT_COLUMNS;
+import static com.rslakra.automobile.SeedData.auditValues;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rohtash Lakra
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AppointmentImporterTest {
+
+    private static final String SEEDED_BY = "appointment-importer-test";
+    private static final String USER_EMAIL = "import-user@example.com";
+    private static final String OTHER_EMAIL = "import-other@example.com";
+    private static final int ROWS = 25;
+    private static final String AUDIT_VALUES = auditValues(SEEDED_BY);
+
+    @Autowired
+    private AppointmentImporter appointmentImporter;
+
+    @Autowired
+    private AppointmentExporter appointmentExporter;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public void seed() {
+        for (String email : new String[]{USER_EMAIL, OTHER_EMAIL}) {
+            jdbcTemplate.update("INSERT INTO users (id, email, password, first_name, last_name, status, role, "
+                                + AUDIT_COLUMNS + ") VALUES (NEXT VALUE FOR hibernate_sequence, ?, 'password', "
+                                + "'Import', 'User', 'ACTIVE', 'USER', " + AUDIT_VALUES + ")", email);
+        }
+        jdbcTemplate.update("INSERT INTO service_types (id, name, status, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE "
+                            + "FOR hibernate_sequence, 'Import Service ' || x, 'ACTIVE', " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(1, 2)");
+    }
+
+    @AfterAll
+    public void cleanUp() {
+        final String userIds = "SELECT id FROM users WHERE created_by = ?";
+        jdbcTemplate.update("DELETE FROM appointment_services WHERE appointment_id IN (SELECT id FROM appointments "
+                            + "WHERE user_id IN (" + userIds + "))", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM appointments WHERE user_id IN (" + userIds + ")", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM service_types WHERE created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM users WHERE created_by = ?", SEEDED_BY);
+    }
+
+    /**
+     * @return
+     */
+    private int countAppointments() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM appointments a JOIN users u ON u.id = a.user_id "
+                                           + "WHERE u.email = ?", Integer.class, USER_EMAIL);
+    }
+
+    /**
+     * Imports the valid rows in chunks, and reports the line of every invalid one, keeping only the first errors.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void importCsv() throws Exception {
+        final StringBuilder csv = new StringBuilder(AppointmentCsv.HEADER).append("\r\n");
+        for (int i = 1; i <= ROWS; i++) {
+            csv.append(i).append(',').append(USER_EMAIL.toUpperCase()).append(",Make,\"Model, ").append(i)
+                .append("\",2020,completed,2020-01-").append(String.format("%02d", i))
+                .append(",09:00,10:00,import service 1|Import Service 2\r\n");
+        }
+        // lines 27 to 33
+        csv.append(",unknown@example.com,Make,Model,2020,,2020-02-01,,,\n")
+            .append(",").append(USER_EMAIL).append(",Make,Model,2020,,2020-02-01,,,Unknown Service\n")
+            .append(",").append(USER_EMAIL).append(",Make,Model,2020,,2020-02-30,,,\n")
+            .append(",").append(USER_EMAIL).append(",Make,Model,year,,2020-02-01,,,\n")
+            .append(",").append(USER_EMAIL).append(",Make,Model,2020,WAITLISTED,2020-02-01,,,\n")
+            .append(",").append(OTHER_EMAIL).append(",Make,Model,2020,,2020-02-01,,,\n")
+            .append(",").append(USER_EMAIL).append(",,Model,2020,,2020-02-01,,,\n");
+
+        final AutoUser autoUser = userRepository.findByEmail(USER_EMAIL).orElseThrow();
+        final int before = countAppointments();
+        final ImportReport importReport = appointmentImporter.importFile(
+            autoUser, FileFormat.CSV, new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(ROWS + 7, importReport.getRows());
+        assertEquals(ROWS, importReport.getImported());
+        assertEquals(7, importReport.getFailed());
+        assertEquals(5, importReport.getErrors().size());
+        assertTrue(importReport.isTruncated());
+        assertEquals(ROWS + 2, importReport.getErrors().get(0).getRow());
+        assertEquals(ROWS + 6, importReport.getErrors().get(4).getRow());
+        assertEquals(before + ROWS, countAppointments());
+        assertEquals(ROWS * 2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM appointment_services s JOIN appointments a ON a.id = s.appointment_id WHERE "
+            + "a.model LIKE 'Model, %' AND a.status = 'COMPLETED'", Integer.class));
+    }
+
+    /**
+     * Reports the NDJSON lines that aren't objects, or have no list of services, as rejected rows.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void importMalformedNdjson() throws Exception {
+        final String row = "{\"userEmail\":\"" + USER_EMAIL + "\",\"make\":\"Make\",\"model\":\"Json\","
+                           + "\"year\":2022,\"appointmentOn\":\"2022-04-01\"";
+        final String ndjson = "null\n" + row + ",\"services\":null}\n" + row + ",\"services\":[]}\n";
+
+        final AutoUser autoUser = userRepository.findByEmail(USER_EMAIL).orElseThrow();
+        final int before = countAppointments();
+        final ImportReport importReport = appointmentImporter.importFile(
+            autoUser, FileFormat.NDJSON, new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(3, importReport.getRows());
+        assertEquals(1, importReport.getImported());
+        assertEquals(2, importReport.getFailed());
+        assertEquals(1, importReport.getErrors().get(0).getRow());
+        assertEquals(2, importReport.getErrors().get(1).getRow());
+        assertEquals(before + 1, countAppointments());
+    }
+
+    /**
+     * Imports an export of the user's appointments again, as copies of them.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void importExportedNdjson() throws Exception {
+        final AutoUser autoUser = userRepository.findByEmail(USER_EMAIL).orElseThrow();
+        final StringBuilder csv = new StringBuilder(AppointmentCsv.HEADER).append('\n');
+        for (int i = 1; i <= 3; i++) {
+            csv.append(',').append(USER_EMAIL).append(",Make,Copy,2021,CONFIRMED,2021-03-0").append(i)
+                .append(",,,Import Service 1\n");
+        }
+        assertEquals(3, appointmentImporter.importFile(
+            autoUser, FileFormat.CSV, new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)))
+            .getImported());
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final long exported = appointmentExporter.export(autoUser, FileFormat.NDJSON, outputStream);
+
+        final ImportReport importReport = appointmentImporter.importFile(
+            autoUser, FileFormat.NDJSON, new ByteArrayInputStream(outputStream.toByteArray()));
+        assertEquals(exported, importReport.getRows());
+        assertEquals(exported, importReport.getImported());
+        assertEquals(0, importReport.getFailed());
+        assertEquals(exported * 2, countAppointments());
+    }
+}
@@ -0,0 +1,387 @@
+package com.rslakra.automobile.service.impl;
+
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
+import com.rslakra.appsuite.spring.exception.NoRecordFoundException;
+import com.rslakra.automobile.QueryBudget;
+import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.domain.entities.ServiceType;
+import com.rslakra.automobile.domain.entities.Vehicle;
+import com.rslakra.automobile.domain.repositories.UserRepository;
+import com.rslakra.automobile.dto.AppointmentSummary;
+import com.rslakra.automobile.dto.BatchReport;
+import com.rslakra.automobile.service.AppointmentService;
+import com.rslakra.automobile.service.ScheduleService;
+import com.rslakra.automobile.service.ServiceTypeService;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.rslakra.automobile.SeedData.AUDIT_COLUMNS;
+import static com.rslakra.automobile.SeedData.auditValues;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rohtash Lakra
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AppointmentServiceImplTest {
+
+    private static final String SEEDED_BY = "appointment-service-test";
+    private static final String USER_EMAIL = "listing-user@example.com";
+    private static final String ADMIN_EMAIL = "listing-admin@example.com";
+    private static final int APPOINTMENTS = 40;
+    // a listing costs the same few statements, whatever the number of appointments
+    private static final int MAX_STATEMENTS = 4;
+    // spans more than one chunk of the test settings
+    private static final int BATCH_APPOINTMENTS = 25;
+    private static final String AUDIT_VALUES = auditValues(SEEDED_BY);
+
+    @Value("${appointments.batch.maxSize:1000}")
+    private int maxBatchSize;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private ServiceTypeService serviceTypeService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private QueryBudget queryBudget;
+
+    @BeforeAll
+    public void seed() {
+        queryBudget = new QueryBudget(entityManagerFactory);
+        jdbcTemplate.update("INSERT INTO users (id, email, password, first_name, last_name, status, role, "
+                            + AUDIT_COLUMNS + ") VALUES (NEXT VALUE FOR hibernate_sequence, ?, 'password', "
+                            + "'Listing', 'User', 'ACTIVE', 'USER', " + AUDIT_VALUES + "), (NEXT VALUE FOR "
+                            + "hibernate_sequence, ?, 'password', 'Listing', 'Admin', 'ACTIVE', 'ADMIN', "
+                            + AUDIT_VALUES + ")", USER_EMAIL, ADMIN_EMAIL);
+        jdbcTemplate.update("INSERT INTO service_types (id, name, status, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE "
+                            + "FOR hibernate_sequence, 'Listing Service ' || x, 'ACTIVE', " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(1, 3)");
+        jdbcTemplate.update("INSERT INTO appointments (id, user_id, make, model, \"year\", status, appointment_on, "
+                            + "start_time, end_time, " + AUDIT_COLUMNS + ") SELECT NEXT VALUE FOR "
+                            + "hibernate_sequence, u.id, 'Make', 'Model', 2020, 'PENDING', "
+                            + "DATEADD(DAY, x, CURRENT_DATE), TIME '09:00:00', TIME '10:00:00', " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(1, " + APPOINTMENTS + ") JOIN users u ON u.email = ?", USER_EMAIL);
+        // two services per appointment
+        jdbcTemplate.update("INSERT INTO appointment_services (appointment_id, service_type_id) SELECT a.id, s.id "
+                            + "FROM appointments a JOIN service_types s ON s.created_by = a.created_by "
+                            + "WHERE a.created_by = ? AND s.name <> 'Listing Service ' || (MOD(a.id, 3) + 1)",
+                            SEEDED_BY);
+    }
+
+    @AfterAll
+    public void cleanUp() {
+        // the batch tests create appointments as the seeded users
+        jdbcTemplate.update("DELETE FROM appointment_services WHERE appointment_id IN (SELECT a.id FROM appointments "
+                            + "a JOIN users u ON u.id = a.user_id WHERE u.created_by = ?)", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM appointments WHERE user_id IN (SELECT id FROM users WHERE created_by = ?)",
+                            SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM service_types WHERE created_by = ?", SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM users WHERE created_by = ?", SEEDED_BY);
+    }
+
+    @AfterEach
+    public void logout() {
+        SecurityContextHolder.clearContext();
+    }
+
+    /**
+     * @param email
+     */
+    private void login(String email) {
+        final AutoUser autoUser = userRepository.findByEmail(email).orElseThrow();
+        ContextUtils.authenticate(autoUser, null, autoUser.getAuthorities());
+    }
+
+    /**
+     * Reads the associations the views render, outside of any session, so a lazy association the listing didn't fetch
+     * fails the test.
+     *
+     * @param appointments
+     */
+    private void assertRenderable(List<Appointment> appointments) {
+        appointments.forEach(appointment -> {
+            assertFalse(appointment.getUser().getEmail().isEmpty());
+            appointment.getServices().forEach(service -> assertFalse(service.getName().isEmpty()));
+        });
+    }
+
+    /**
+     * Lists the appointments of a user.
+     */
+    @Test
+    public void getAppointmentsForUser() {
+        login(USER_EMAIL);
+        final List<Appointment> appointments = queryBudget.assertAtMost(MAX_STATEMENTS,
+                                                                        appointmentService::getAppointmentsForCurrentUser);
+        assertEquals(APPOINTMENTS, appointments.size());
+        assertTrue(appointments.stream().allMatch(appointment -> appointment.getServices().size() == 2));
+        assertRenderable(appointments);
+    }
+
+    /**
+     * Lists the appointments of all the users.
+     */
+    @Test
+    public void getAppointmentsForAdmin() {
+        login(ADMIN_EMAIL);
+        final List<Appointment> appointments = queryBudget.assertAtMost(MAX_STATEMENTS,
+                                                                        appointmentService::getAppointmentsForCurrentUser);
+        assertTrue(appointments.size() >= APPOINTMENTS);
+        assertRenderable(appointments);
+
+        assertRenderable(queryBudget.assertAtMost(MAX_STATEMENTS, appointmentService::getAll));
+    }
+
+    /**
+     * Reads a page of appointments.
+     */
+    @Test
+    public void getByFilterPaged() {
+        final Page<Appointment> page = queryBudget.assertAtMost(
+            MAX_STATEMENTS, () -> appointmentService.getByFilter(null, PageRequest.of(0, APPOINTMENTS / 2)));
+        assertEquals(APPOINTMENTS / 2, page.getNumberOfElements());
+        assertRenderable(page.getContent());
+    }
+
+    /**
+     * Lists the summaries of a user's appointments with two statements.
+     */
+    @Test
+    public void getAppointmentSummariesForUser() {
+        login(USER_EMAIL);
+        final List<AppointmentSummary> summaries = queryBudget.assertAtMost(
+            2, appointmentService::getAppointmentSummariesForCurrentUser);
+        final List<Appointment> appointments = appointmentService.getAppointmentsForCurrentUser();
+        assertEquals(appointments.size(), summaries.size());
+        for (int i = 0; i < summaries.size(); i++) {
+            final AppointmentSummary summary = summaries.get(i);
+            final Appointment appointment = appointments.get(i);
+            assertEquals(appointment.getId(), summary.getId());
+            assertEquals(appointment.getAppointmentOn(), summary.getAppointmentOn());
+            assertEquals(USER_EMAIL, summary.getUserEmail());
+            assertEquals(appointment.getServices().stream().map(ServiceType::getName).sorted().toList(),
+                         summary.getServices());
+        }
+    }
+
+    /**
+     * @param make
+     * @param serviceTypeIds
+     * @return
+     */
+    private static Appointment newAppointment(String make, Long... serviceTypeIds) {
+        final Vehicle vehicle = new Vehicle();
+        vehicle.setMake(make);
+        vehicle.setModel("Transit");
+        vehicle.setYear(Short.valueOf("2022"));
+        final Appointment appointment = new Appointment();
+        appointment.setVehicle(vehicle);
+        appointment.setAppointmentOn(LocalDate.now().plusDays(3));
+        for (Long serviceTypeId : serviceTypeIds) {
+            final ServiceType serviceType = new ServiceType();
+            serviceType.setId(serviceTypeId);
+            appointment.addService(serviceType);
+        }
+        return appointment;
+    }
+
+    /**
+     * Creates the valid appointments of a batch with their services, and reports the invalid ones.
+     */
+    @Test
+    public void createAll() {
+        login(ADMIN_EMAIL);
+        final List<Long> serviceTypeIds = jdbcTemplate.queryForList(
+            "SELECT id FROM service_types WHERE created_by = ? ORDER BY id", Long.class, SEEDED_BY);
+        final List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i < BATCH_APPOINTMENTS; i++) {
+            appointments.add(newAppointment("Fleet", serviceTypeIds.get(i % serviceTypeIds.size()),
+                                            serviceTypeIds.get((i + 1) % serviceTypeIds.size())));
+        }
+        appointments.add(3, newAppointment(null, serviceTypeIds.get(0)));
+        appointments.add(7, newAppointment("Fleet", -1L));
+
+        final BatchReport batchReport = appointmentService.createAll(appointments);
+        assertEquals(BATCH_APPOINTMENTS, batchReport.getSucceeded());
+        assertEquals(2, batchReport.getFailed());
+        assertEquals(appointments.size(), batchReport.getItems().size());
+        assertFalse(batchReport.getItems().get(3).isSucceeded());
+        assertFalse(batchReport.getItems().get(7).isSucceeded());
+        assertNull(batchReport.getItems().get(7).getId());
+
+        final AutoUser admin = userRepository.findByEmail(ADMIN_EMAIL).orElseThrow();
+        final Long firstId = batchReport.getItems().get(0).getId();
+        assertEquals(AppointmentStatus.PENDING, appointmentService.getById(firstId).getStatus());
+        assertEquals(admin.getId(), appointmentService.getById(firstId).getUser().getId());
+        assertEquals(BATCH_APPOINTMENTS, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM appointments WHERE user_id = ? AND make = 'Fleet'", Integer.class, admin.getId()));
+        assertEquals(BATCH_APPOINTMENTS * 2, jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM appointment_services s JOIN appointments a ON a.id = s.appointment_id "
+            + "WHERE a.user_id = ? AND a.make = 'Fleet'", Integer.class, admin.getId()));
+    }
+
+    /**
+     * Updates a batch with version checks and deletes it, releasing the schedule capacity the appointments held.
+     */
+    @Test
+    public void updateAndDeleteAll() {
+        login(ADMIN_EMAIL);
+        final List<Long> serviceTypeIds = jdbcTemplate.queryForList(
+            "SELECT id FROM service_types WHERE created_by = ? ORDER BY id", Long.class, SEEDED_BY);
+        final List<Long> ids = appointmentService.create(List.of(newAppointment("Cleanup", serviceTypeIds.get(0)),
+                                                                 newAppointment("Cleanup", serviceTypeIds.get(1)),
+                                                                 newAppointment("Cleanup")))
+            .stream().map(Appointment::getId).toList();
+        final Schedule schedule = new Schedule(LocalDate.now().plusDays(4), LocalTime.of(11, 0), LocalTime.of(12, 0));
+        schedule.setMaxAppointments(2);
+        final Long scheduleId = scheduleService.create(schedule).getId();
+        scheduleService.bookSchedule(scheduleId);
+        jdbcTemplate.update("UPDATE appointments SET schedule_id = ? WHERE id = ?", scheduleId, ids.get(0));
+
+        final List<Appointment> appointments = ids.stream().map(appointmentService::getById).toList();
+        appointments.get(0).setStatus(AppointmentStatus.CANCELLED);
+        appointments.get(1).setVersion(appointments.get(1).getVersion() + 1);
+        appointments.get(2).getVehicle().setModel("Sprinter");
+        appointments.get(2).setServices(new ArrayList<>(appointmentService.getById(ids.get(1)).getServices()));
+        BatchReport batchReport = appointmentService.updateAll(appointments);
+        assertEquals(2, batchReport.getSucceeded());
+        assertFalse(batchReport.getItems().get(1).isSucceeded());
+        assertEquals(AppointmentStatus.CANCELLED, appointmentService.getById(ids.get(0)).getStatus());
+        assertEquals(1, appointmentService.getById(ids.get(0)).getVersion());
+        assertEquals(0, appointmentService.getById(ids.get(1)).getVersion());
+        final Appointment updated = appointmentService.getById(ids.get(2));
+        assertEquals("Sprinter", updated.getVehicle().getModel());
+        assertEquals(List.of(serviceTypeIds.get(1)), updated.getServices().stream().map(ServiceType::getId).toList());
+        // cancelling released the capacity
+        assertEquals(0, scheduleService.getById(scheduleId).getCurrentAppointments());
+
+        scheduleService.bookSchedule(scheduleId);
+        jdbcTemplate.update("UPDATE appointments SET schedule_id = ? WHERE id = ?", scheduleId, ids.get(1));
+        final List<Long> deleteIds = new ArrayList<>(ids);
+        deleteIds.add(-1L);
+        batchReport = appointmentService.deleteAll(deleteIds);
+        assertEquals(ids.size(), batchReport.getSucceeded());
+        assertFalse(batchReport.getItems().get(ids.size()).isSucceeded());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM appointments WHERE make = 'Cleanup'",
+                                                    Integer.class));
+        assertEquals(0, scheduleService.getById(scheduleId).getCurrentAppointments());
+    }
+
+    /**
+     * Users other than admins can't update or delete the appointments of someone else, which look missing to them.
+     */
+    @Test
+    public void changeAppointmentsOfOthers() {
+        login(ADMIN_EMAIL);
+        final Long id = appointmentService.create(List.of(newAppointment("Foreign"))).get(0).getId();
+        final Appointment appointment = appointmentService.getById(id);
+
+        login(USER_EMAIL);
+        appointment.getVehicle().setModel("Sprinter");
+        assertFalse(appointmentService.updateAll(List.of(appointment)).getItems().get(0).isSucceeded());
+        assertFalse(appointmentService.deleteAll(List.of(id)).getItems().get(0).isSucceeded());
+        assertThrows(NoRecordFoundException.class, () -> appointmentService.delete(id));
+        appointment.setServices(new ArrayList<>());
+        assertThrows(NoRecordFoundException.class, () -> appointmentService.update(appointment));
+        assertEquals("Transit", appointmentService.getById(id).getVehicle().getModel());
+
+        // only the editable fields are taken from the body
+        login(ADMIN_EMAIL);
+        appointment.setUser(null);
+        appointmentService.update(appointment);
+        final Appointment updated = appointmentService.getById(id);
+        assertEquals("Sprinter", updated.getVehicle().getModel());
+        assertEquals(userRepository.findByEmail(ADMIN_EMAIL).orElseThrow().getId(), updated.getUser().getId());
+        assertEquals(id, appointmentService.delete(id).getId());
+    }
+
+    /**
+     * Resolves the services of a booking from the catalog and locks the schedule once, so booking costs the same few
+     * statements whatever the services: the lock, the booking, the id, the appointment and a row per service.
+     */
+    @Test
+    public void bookWithinBudget() {
+        login(ADMIN_EMAIL);
+        final List<Long> serviceTypeIds = jdbcTemplate.queryForList(
+            "SELECT id FROM service_types WHERE created_by = ? ORDER BY id", Long.class, SEEDED_BY);
+        // warms the catalog, which was loaded before the services were seeded
+        serviceTypeService.getByIds(serviceTypeIds);
+        final Schedule schedule = new Schedule(LocalDate.now().plusDays(5), LocalTime.of(14, 0), LocalTime.of(15, 0));
+        final Long scheduleId = scheduleService.create(schedule).getId();
+
+        final List<Long> requestedIds = new ArrayList<>(serviceTypeIds);
+        requestedIds.add(serviceTypeIds.get(0));
+        final Appointment appointment = queryBudget.assertAtMost(4 + serviceTypeIds.size(), () -> {
+            final Appointment booking = newAppointment("Booked");
+            booking.setServices(serviceTypeService.getByIds(requestedIds));
+            return appointmentService.book(booking, scheduleId);
+        });
+        assertEquals(LocalTime.of(14, 0), appointment.getStartTime());
+        assertEquals(serviceTypeIds, jdbcTemplate.queryForList(
+            "SELECT service_type_id FROM appointment_services WHERE appointment_id = ? ORDER BY service_type_id",
+            Long.class, appointment.getId()));
+        assertEquals(1, scheduleService.getById(scheduleId).getCurrentAppointments());
+        assertFalse(scheduleService.getById(scheduleId).isAvailable());
+
+        // the booked schedule is full, and nothing is saved for it
+        assertThrows(InvalidRequestException.class,
+                     () -> appointmentService.book(newAppointment("Overbooked"), scheduleId));
+        assertThrows(NoRecordFoundException.class, () -> serviceTypeService.getByIds(List.of(-1L)));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM appointments WHERE make = 'Overbooked'",
+                                                    Integer.class));
+        assertEquals(1, scheduleService.getById(scheduleId).getCurrentAppointments());
+    }
+
+    /**
+     * Rejects a batch over the maximum size as a whole.
+     */
+    @Test
+    public void createAllOverMaxSize() {
+        login(ADMIN_EMAIL);
+        final List<Appointment> appointments = new ArrayList<>();
+        for (int i = 0; i <= maxBatchSize; i++) {
+            appointments.add(newAppointment("Oversized"));
+        }
+        assertThrows(InvalidRequestException.class, () -> appointmentService.createAll(appointments));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM appointments WHERE make = 'Oversized'",
+                                                    Integer.class));
+    }
+}
@@ -0,0 +1,257 @@
+package com.rslakra.automobile.service.impl;
+
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
+import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.domain.repositories.ScheduleRepository;
+import com.rslakra.automobile.domain.repositories.batch.ScheduleBatchRepository;
+import com.rslakra.automobile.dto.SchedulePage;
+import com.rslakra.automobile.service.ScheduleService;
+import com.rslakra.automobile.service.cache.ScheduleAvailabilityIndex;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rohtash Lakra
+ */
+@SpringBootTest
+public class ScheduleServiceImplTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScheduleServiceImplTest.class);
+
+    private static final int THREADS = 32;
+    private static final int BOOKINGS = 4_000;
+    private static final int CAPACITY = 1_500;
+    // far below what a single conditional update per booking reaches on the in-memory database, so only a regression to
+    // locking or retrying the whole schedule per booking fails it
+    private static final double MIN_BOOKINGS_PER_SECOND = 200.0d;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private ScheduleRepository scheduleRepository;
+
+    @Autowired
+    private ScheduleBatchRepository scheduleBatchRepository;
+
+    @Autowired
+    private ScheduleAvailabilityIndex availabilityIndex;
+
+    /**
+     * @param startTime a slot of its own, as the slots of a day are unique
+     * @param capacity
+     * @return
+     */
+    private Schedule newSchedule(LocalTime startTime, int capacity) {
+        Schedule schedule = new Schedule(LocalDate.now().plusDays(1), startTime, startTime.plusHours(1));
+        schedule.setMaxAppointments(capacity);
+        return scheduleService.create(schedule);
+    }
+
+    /**
+     * Fires thousands of concurrent bookings at a single slot and verifies that exactly <code>CAPACITY</code> of them
+     * succeed, without lost updates or overbooking, and at no less than <code>MIN_BOOKINGS_PER_SECOND</code>.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void bookScheduleConcurrently() throws Exception {
+        final Long scheduleId = newSchedule(LocalTime.of(9, 0), CAPACITY).getId();
+        final AtomicInteger booked = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < BOOKINGS; i++) {
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                try {
+                    scheduleService.bookSchedule(scheduleId);
+                    booked.incrementAndGet();
+                } catch (InvalidRequestException ex) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        final long startTime = System.nanoTime();
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        final long elapsedNanos = System.nanoTime() - startTime;
+        executor.shutdown();
+
+        final double bookingsPerSecond = BOOKINGS / (elapsedNanos / 1_000_000_000.0d);
+        LOGGER.info("bookScheduleConcurrently(), {} bookings with {} threads in {} ms, {} bookings/sec", BOOKINGS,
+                    THREADS, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), String.format("%.0f", bookingsPerSecond));
+
+        Schedule schedule = scheduleService.getById(scheduleId);
+        assertEquals(CAPACITY, booked.get());
+        assertEquals(BOOKINGS - CAPACITY, rejected.get());
+        assertEquals(CAPACITY, schedule.getCurrentAppointments());
+        assertFalse(schedule.isAvailable());
+        assertFalse(schedule.hasAvailability());
+        assertTrue(bookingsPerSecond >= MIN_BOOKINGS_PER_SECOND,
+                   String.format("%.0f bookings/sec, expected at least %.0f", bookingsPerSecond,
+                                 MIN_BOOKINGS_PER_SECOND));
+    }
+
+    /**
+     * Releasing a fully booked schedule makes it available again.
+     */
+    @Test
+    public void releaseSchedule() {
+        final Long scheduleId = newSchedule(LocalTime.of(10, 0), 1).getId();
+        Schedule schedule = scheduleService.bookSchedule(scheduleId);
+        assertFalse(schedule.hasAvailability());
+
+        schedule = scheduleService.releaseSchedule(scheduleId);
+        assertEquals(0, schedule.getCurrentAppointments());
+        assertTrue(schedule.hasAvailability());
+
+        // releasing an empty schedule is a no-op
+        schedule = scheduleService.releaseSchedule(scheduleId);
+        assertEquals(0, schedule.getCurrentAppointments());
+    }
+
+    /**
+     * @param scheduleId
+     * @return
+     */
+    private boolean isIndexedAsAvailable(Long scheduleId) {
+        return scheduleService.getAvailableSchedules().stream().anyMatch(schedule -> schedule.getId().equals(scheduleId));
+    }
+
+    /**
+     * The availability index follows every write path of the service and stays consistent with the table.
+     */
+    @Test
+    public void availabilityIndexTracksChanges() {
+        final Long scheduleId = newSchedule(LocalTime.of(11, 0), 1).getId();
+        assertTrue(isIndexedAsAvailable(scheduleId));
+        assertEquals(0, availabilityIndex.checkConsistency());
+
+        scheduleService.bookSchedule(scheduleId);
+        assertFalse(isIndexedAsAvailable(scheduleId));
+        assertEquals(0, availabilityIndex.checkConsistency());
+
+        scheduleService.releaseSchedule(scheduleId);
+        assertTrue(isIndexedAsAvailable(scheduleId));
+
+        scheduleService.toggleAvailability(scheduleId);
+        assertFalse(isIndexedAsAvailable(scheduleId));
+        assertEquals(0, availabilityIndex.checkConsistency());
+
+        scheduleService.toggleAvailability(scheduleId);
+        assertTrue(isIndexedAsAvailable(scheduleId));
+
+        scheduleService.delete(scheduleId);
+        assertFalse(isIndexedAsAvailable(scheduleId));
+        assertEquals(0, availabilityIndex.checkConsistency());
+    }
+
+    /**
+     * Generation writes every template slot of the range once and the index picks them up.
+     */
+    @Test
+    public void generateDefaultSchedules() {
+        // a full week, starting on a Monday
+        final LocalDate startDate = LocalDate.of(2040, 1, 2);
+        final int generated = scheduleService.generateDefaultSchedules(startDate, startDate.plusDays(6));
+        assertEquals(5 * 7, generated);
+        assertEquals(7, scheduleRepository.findByScheduleDateOrderByStartTime(startDate).size());
+        assertTrue(scheduleRepository.findByScheduleDateOrderByStartTime(startDate.plusDays(5)).isEmpty());
+        assertEquals(0, availabilityIndex.checkConsistency());
+
+        // re-running over an overlapping range only adds the missing days
+        assertEquals(0, scheduleService.generateDefaultSchedules(startDate, startDate.plusDays(6)));
+        assertEquals(7, scheduleService.generateDefaultSchedules(startDate.plusDays(3), startDate.plusDays(7)));
+        assertEquals(7, scheduleRepository.findByScheduleDateOrderByStartTime(startDate).size());
+
+        // a slot a concurrent generation wrote first is skipped, the rest of the batch is still written
+        final List<Schedule> schedules = new ArrayList<>();
+        for (LocalDate scheduleDate : List.of(startDate.plusDays(8), startDate, startDate.plusDays(9))) {
+            final Schedule schedule = new Schedule(scheduleDate, LocalTime.of(9, 0), LocalTime.of(10, 0));
+            schedule.setAvailable(true);
+            schedule.setMaxAppointments(2);
+            schedule.setCurrentAppointments(0);
+            schedules.add(schedule);
+        }
+        assertEquals(2, scheduleBatchRepository.insertAll(schedules));
+        assertEquals(7, scheduleRepository.findByScheduleDateOrderByStartTime(startDate).size());
+        assertEquals(1, scheduleRepository.findByScheduleDateOrderByStartTime(startDate.plusDays(9)).size());
+    }
+
+    /**
+     * @param availableOnly
+     * @param fromDate
+     * @param toDate
+     * @return every schedule of the window, read page by page
+     */
+    private List<Schedule> readAllPages(boolean availableOnly, LocalDate fromDate, LocalDate toDate) {
+        final List<Schedule> schedules = new ArrayList<>();
+        SchedulePage schedulePage = scheduleService.getSchedulePage(availableOnly, fromDate, toDate, null, 10);
+        schedules.addAll(schedulePage.getSchedules());
+        while (schedulePage.hasNext()) {
+            assertEquals(10, schedulePage.getSchedules().size());
+            schedulePage = scheduleService.getSchedulePage(availableOnly, fromDate, toDate,
+                                                           schedulePage.getNextCursor(), 10);
+            schedules.addAll(schedulePage.getSchedules());
+        }
+
+        return schedules;
+    }
+
+    /**
+     * Keyset pages of the table and of the availability index walk the window once, in order.
+     */
+    @Test
+    public void getSchedulePage() {
+        // a full week, starting on a Monday
+        final LocalDate startDate = LocalDate.of(2050, 1, 3);
+        final LocalDate endDate = startDate.plusDays(6);
+        assertEquals(5 * 7, scheduleService.generateDefaultSchedules(startDate, endDate));
+        final Long bookedId = scheduleService.getSchedulesForDate(startDate).get(0).getId();
+        scheduleService.toggleAvailability(bookedId);
+
+        final List<Schedule> allSchedules = readAllPages(false, startDate, endDate);
+        assertEquals(5 * 7, allSchedules.size());
+        for (int i = 1; i < allSchedules.size(); i++) {
+            final Schedule previous = allSchedules.get(i - 1);
+            final Schedule current = allSchedules.get(i);
+            assertTrue(previous.getScheduleDate().isBefore(current.getScheduleDate())
+                       || (previous.getScheduleDate().equals(current.getScheduleDate())
+                           && previous.getStartTime().isBefore(current.getStartTime())));
+        }
+
+        final List<Schedule> availableSchedules = readAllPages(true, startDate, endDate);
+        assertEquals(5 * 7 - 1, availableSchedules.size());
+        assertTrue(availableSchedules.stream().noneMatch(schedule -> schedule.getId().equals(bookedId)));
+
+        // the window bounds the pages
+        final SchedulePage schedulePage = scheduleService.getSchedulePage(false, startDate, startDate, null, 10);
+        assertEquals(7, schedulePage.getSchedules().size());
+        assertNull(schedulePage.getNextCursor());
+    }
+}
@@ -0,0 +1,229 @@
+package com.rslakra.automobile.service.impl;
+
+import com.rslakra.appsuite.spring.exception.InvalidRequestException;
+import com.rslakra.automobile.domain.entities.Appointment;
+import com.rslakra.automobile.domain.entities.AppointmentStatus;
+import com.rslakra.automobile.domain.entities.AutoUser;
+import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.domain.entities.Vehicle;
+import com.rslakra.automobile.domain.repositories.UserRepository;
+import com.rslakra.automobile.service.AppointmentService;
+import com.rslakra.automobile.service.ScheduleService;
+import com.rslakra.automobile.service.WaitlistService;
+import com.rslakra.automobile.service.security.context.ContextUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.rslakra.automobile.SeedData.AUDIT_COLUMNS;
+import static com.rslakra.automobile.SeedData.auditValues;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rohtash Lakra
+ */
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class WaitlistServiceImplTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WaitlistServiceImplTest.class);
+
+    private static final String SEEDED_BY = "waitlist-test";
+    private static final int USERS = 60;
+    private static final int CAPACITY = 5;
+    private static final int THREADS = 16;
+    private static final String AUDIT_VALUES = auditValues(SEEDED_BY);
+
+    @Value("${schedules.waitlist.maxLength:20}")
+    private int maxLength;
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Autowired
+    private AppointmentService appointmentService;
+
+    @Autowired
+    private ScheduleService scheduleService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeAll
+    public void seed() {
+        jdbcTemplate.update("INSERT INTO users (id, email, password, first_name, last_name, status, role, "
+                            + AUDIT_COLUMNS + ") SELECT NEXT VALUE FOR hibernate_sequence, 'waitlist' || x || "
+                            + "'@example.com', 'password', 'Waitlist', 'User' || x, 'ACTIVE', 'USER', " + AUDIT_VALUES
+                            + " FROM SYSTEM_RANGE(1, " + USERS + ")");
+    }
+
+    @AfterAll
+    public void cleanUp() {
+        jdbcTemplate.update("DELETE FROM appointments WHERE user_id IN (SELECT id FROM users WHERE created_by = ?)",
+                            SEEDED_BY);
+        jdbcTemplate.update("DELETE FROM users WHERE created_by = ?", SEEDED_BY);
+    }
+
+    /**
+     * @param startTime a slot of its own, as the slots of a day are unique
+     * @param capacity
+     * @return
+     */
+    private Schedule newSchedule(LocalTime startTime, int capacity) {
+        Schedule schedule = new Schedule(LocalDate.now().plusDays(2), startTime, startTime.plusHours(1));
+        schedule.setMaxAppointments(capacity);
+        return scheduleService.create(schedule);
+    }
+
+    /**
+     * Joins the schedule's waitlist as the n-th seeded user.
+     *
+     * @param user
+     * @param scheduleId
+     * @return
+     */
+    private Appointment join(int user, Long scheduleId) {
+        final AutoUser autoUser = userRepository.findByEmail("waitlist" + user + "@example.com").orElseThrow();
+        ContextUtils.authenticate(autoUser, null, autoUser.getAuthorities());
+        try {
+            final Vehicle vehicle = new Vehicle();
+            vehicle.setMake("Ford");
+            vehicle.setModel("F150");
+            vehicle.setYear(Short.valueOf("2015"));
+            final Appointment appointment = new Appointment();
+            appointment.setVehicle(vehicle);
+            return waitlistService.join(scheduleId, appointment);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * @param scheduleId
+     * @param status
+     * @return
+     */
+    private List<Long> getAppointmentIds(Long scheduleId, AppointmentStatus status) {
+        return jdbcTemplate.queryForList("SELECT id FROM appointments WHERE schedule_id = ? AND status = ? ORDER BY id",
+                                         Long.class, scheduleId, status.name());
+    }
+
+    /**
+     * Books while there's capacity, then waits, and promotes the first waiting appointment on cancellation.
+     */
+    @Test
+    public void joinAndPromote() {
+        final Long scheduleId = newSchedule(LocalTime.of(14, 0), 1).getId();
+        final Appointment booked = join(1, scheduleId);
+        assertEquals(AppointmentStatus.PENDING, booked.getStatus());
+
+        final Appointment first = join(2, scheduleId);
+        final Appointment second = join(3, scheduleId);
+        assertEquals(AppointmentStatus.WAITLISTED, first.getStatus());
+        assertEquals(AppointmentStatus.WAITLISTED, second.getStatus());
+        // joining again doesn't queue twice
+        assertEquals(first.getId(), join(2, scheduleId).getId());
+        assertEquals(2, waitlistService.getWaitlistLength(scheduleId));
+
+        appointmentService.cancel(booked.getId());
+        assertEquals(AppointmentStatus.PENDING, appointmentService.getById(first.getId()).getStatus());
+        assertEquals(AppointmentStatus.WAITLISTED, appointmentService.getById(second.getId()).getStatus());
+        final Schedule schedule = scheduleService.getById(scheduleId);
+        assertEquals(1, schedule.getCurrentAppointments());
+        assertEquals(1, waitlistService.getWaitlistLength(scheduleId));
+
+        // a waiting appointment leaves the queue without releasing any capacity
+        appointmentService.cancel(second.getId());
+        assertEquals(0, waitlistService.getWaitlistLength(scheduleId));
+        assertEquals(1, scheduleService.getById(scheduleId).getCurrentAppointments());
+    }
+
+    /**
+     * Races the cancellation of every booked appointment against many joins, and verifies that no capacity is lost or
+     * overbooked, the waitlist stays bounded and the appointments are promoted in the order they joined.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void concurrentReleasesAndJoins() throws Exception {
+        final Long scheduleId = newSchedule(LocalTime.of(15, 0), CAPACITY).getId();
+        final List<Long> holders = new ArrayList<>();
+        for (int user = 1; user <= CAPACITY; user++) {
+            holders.add(join(user, scheduleId).getId());
+        }
+
+        final AtomicInteger rejected = new AtomicInteger();
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        final List<Future<?>> futures = new ArrayList<>();
+        for (int user = CAPACITY + 1; user <= USERS; user++) {
+            final int joiner = user;
+            futures.add(executor.submit(() -> {
+                startLatch.await();
+                try {
+                    join(joiner, scheduleId);
+                } catch (InvalidRequestException ex) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+            // spread the cancellations among the joins
+            if (joiner % ((USERS - CAPACITY) / CAPACITY) == 0 && !holders.isEmpty()) {
+                final Long holder = holders.remove(0);
+                futures.add(executor.submit(() -> {
+                    startLatch.await();
+                    appointmentService.cancel(holder);
+                    return null;
+                }));
+            }
+        }
+
+        startLatch.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertTrue(holders.isEmpty());
+
+        final List<Long> booked = getAppointmentIds(scheduleId, AppointmentStatus.PENDING);
+        final List<Long> waiting = getAppointmentIds(scheduleId, AppointmentStatus.WAITLISTED);
+        final Map<String, Object> schedule = jdbcTemplate.queryForMap(
+            "SELECT current_appointments, available FROM schedules WHERE id = ?", scheduleId);
+        LOGGER.debug("concurrentReleasesAndJoins(), booked: {}, waiting: {}, rejected: {}, schedule: {}", booked.size(),
+                     waiting.size(), rejected.get(), schedule);
+
+        assertEquals(USERS - CAPACITY, booked.size() + waiting.size() + rejected.get());
+        assertEquals(booked.size(), ((Number) schedule.get("current_appointments")).intValue());
+        assertTrue(booked.size() <= CAPACITY);
+        assertTrue(waiting.size() <= maxLength);
+        // nobody waits while there's capacity left
+        assertTrue(waiting.isEmpty() || booked.size() == CAPACITY);
+        // FIFO: every booked appointment joined before every waiting one
+        assertTrue(waiting.isEmpty() || booked.get(booked.size() - 1) < waiting.get(0));
+    }
+}
@@ -0,0 +1,63 @@
+package com.rslakra.automobile.service.log;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies what the access log writes of a request, and which requests it samples.
+ *
+ * @author Rohtash Lakra
+ */
+public class AccessLogTest {
+
+    /**
+     * The sensitive parameters are redacted, and a value can't break the line into another record.
+     */
+    @Test
+    public void redactedSingleLine() {
+        final Map<String, String[]> parameters = new LinkedHashMap<>();
+        parameters.put("email", new String[]{"user@example.com"});
+        parameters.put("newPassword", new String[]{"secret"});
+        parameters.put("securityAnswer", new String[]{"blue"});
+        parameters.put("note", new String[]{"a\nts=0 status=200"});
+        final String line = new AccessLogRecord(0L, "POST", "/automobile/login", parameters, 302, 1_500_000L,
+                                                "10.0.0.1", null, null).toString();
+
+        assertEquals("ts=1970-01-01T00:00:00Z method=POST uri=/automobile/login status=302 durationMicros=1500 "
+                     + "ip=10.0.0.1 user=- params=\"email=user@example.com&newPassword=*****&securityAnswer=*****"
+                     + "&note=a\\nts=0 status=200\"", line);
+        assertFalse(line.contains("secret") || line.contains("blue"));
+        assertFalse(line.contains("\n"));
+    }
+
+    /**
+     * Only the sampled share of the requests is logged, but the failed ones always are.
+     */
+    @Test
+    public void sampledButFailuresAlways() throws InterruptedException {
+        final AccessLog accessLog = new AccessLog(new SimpleMeterRegistry(), 0.0d, 16);
+        try {
+            assertFalse(accessLog.isSampled(200, false));
+            assertTrue(accessLog.isSampled(500, false));
+            assertTrue(accessLog.isSampled(200, true));
+        } finally {
+            accessLog.shutdown();
+        }
+
+        final AccessLog sampledLog = new AccessLog(new SimpleMeterRegistry(), 0.5d, 16);
+        try {
+            final long sampled = IntStream.range(0, 10_000).filter(i -> sampledLog.isSampled(200, false)).count();
+            assertTrue(sampled > 4_000 && sampled < 6_000, "sampled: " + sampled);
+        } finally {
+            sampledLog.shutdown();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.rslakra.automobile.service.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies the latency percentiles recorded per handler and status.
+ *
+ * @author Rohtash Lakra
+ */
+public class LatencyRecorderTest {
+
+    /**
+     * The handler of the test.
+     *
+     * @return
+     */
+    public String handle() {
+        return "handled";
+    }
+
+    /**
+     * Every request of the same handler method and status goes to the same timer, whose percentiles and max cover its
+     * requests.
+     */
+    @Test
+    public void percentilesPerHandlerAndStatus() throws NoSuchMethodException {
+        final LatencyRecorder latencyRecorder = new LatencyRecorder(new SimpleMeterRegistry(), 60, 3);
+        for (int millis = 1; millis <= 100; millis++) {
+            // a new handler method per request, as the handler mappings resolve them
+            final HandlerMethod handlerMethod = new HandlerMethod(this, getClass().getMethod("handle"));
+            latencyRecorder.record(handlerMethod, 200, TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+        latencyRecorder.record(new HandlerMethod(this, getClass().getMethod("handle")), 404,
+                               TimeUnit.MILLISECONDS.toNanos(5));
+
+        final List<LatencyRecorder.LatencySummary> summaries = latencyRecorder.getSummaries();
+        assertEquals(2, summaries.size());
+        final LatencyRecorder.LatencySummary ok = summaries.get(0);
+        assertEquals("LatencyRecorderTest#handle", ok.handler());
+        assertEquals(200, ok.status());
+        assertEquals(100, ok.count());
+        assertEquals(50, ok.p50(), 3);
+        assertEquals(95, ok.p95(), 5);
+        assertEquals(99, ok.p99(), 5);
+        assertEquals(100, ok.max(), 0.001);
+        assertEquals(404, summaries.get(1).status());
+        assertEquals(1, summaries.get(1).count());
+    }
+}
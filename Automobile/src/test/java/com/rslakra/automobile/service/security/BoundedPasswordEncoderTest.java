@@ -0,0 +1,101 @@
+package com.rslakra.automobile.service.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the passwords are hashed on the hashing threads, and that the hashes fail fast once they are saturated.
+ *
+ * @author Rohtash Lakra
+ */
+public class BoundedPasswordEncoderTest {
+
+    /**
+     * Hashes like the encoder it wraps, and tells the hashes of a lower cost apart.
+     */
+    @Test
+    public void hashesOnTheHashingThreads() {
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final BoundedPasswordEncoder passwordEncoder = new BoundedPasswordEncoder(new BCryptPasswordEncoder(5), 2, 10,
+                                                                                  1000, meterRegistry);
+        try {
+            final String encodedPassword = passwordEncoder.encode("password");
+            assertTrue(passwordEncoder.matches("password", encodedPassword));
+            assertFalse(passwordEncoder.matches("wrong", encodedPassword));
+            assertFalse(passwordEncoder.upgradeEncoding(encodedPassword));
+            assertTrue(passwordEncoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("password")));
+            assertEquals(2, meterRegistry.get("passwords.hashing").tag("operation", "matches").timer().count());
+        } finally {
+            passwordEncoder.shutdown();
+        }
+    }
+
+    /**
+     * With the only hashing thread busy, a hash waits in the queue until it times out, and fails at once when the queue
+     * is full.
+     */
+    @Test
+    public void saturatedHashingFailsFast() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final PasswordEncoder blockingEncoder = new PasswordEncoder() {
+
+            @Override
+            public String encode(CharSequence rawPassword) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return rawPassword.toString().equals(encodedPassword);
+            }
+        };
+        final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        final BoundedPasswordEncoder passwordEncoder = new BoundedPasswordEncoder(blockingEncoder, 1, 1, 100,
+                                                                                  meterRegistry);
+        try {
+            final CompletableFuture<String> busy = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("busy"));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            final PasswordHashingRejectedException timedOut = assertThrows(
+                PasswordHashingRejectedException.class, () -> passwordEncoder.matches("password", "password"));
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, timedOut.getStatusCode());
+            // the timed out hash left the queue
+            assertEquals(0, meterRegistry.get("passwords.hashing.queue").gauge().value());
+
+            final CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(
+                () -> passwordEncoder.matches("password", "password"));
+            while (meterRegistry.get("passwords.hashing.queue").gauge().value() < 1) {
+                Thread.onSpinWait();
+            }
+            assertThrows(PasswordHashingRejectedException.class, () -> passwordEncoder.encode("full"));
+            assertEquals(2, meterRegistry.get("passwords.hashing.rejected").counter().count());
+
+            release.countDown();
+            assertEquals("busy", busy.get(5, TimeUnit.SECONDS));
+            // hashed or timed out, depending on how long it waited
+            queued.handle((matches, ex) -> matches).get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            passwordEncoder.shutdown();
+        }
+    }
+}
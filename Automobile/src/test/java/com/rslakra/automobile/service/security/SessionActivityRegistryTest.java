@@ -0,0 +1,94 @@
+package com.rslakra.automobile.service.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpSessionEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpSession;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the idle sessions are logged out by the sweeps, and only them. The sweeps are run by the test, with
+ * the time it passes.
+ *
+ * @author Rohtash Lakra
+ */
+public class SessionActivityRegistryTest {
+
+    private SessionActivityRegistry registry;
+    private long startNanos;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new SessionActivityRegistry(new SimpleMeterRegistry(), 300, 5);
+        // the background sweeps would use the real time
+        registry.shutdown();
+        startNanos = System.nanoTime();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    /**
+     * @param seconds
+     * @return the time the given seconds after the start
+     */
+    private long after(long seconds) {
+        return startNanos + TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /**
+     * A session seen within the idle time survives the sweeps, and one that isn't is invalidated within a tick.
+     */
+    @Test
+    public void idleSessionsExpire() {
+        final MockHttpSession active = new MockHttpSession();
+        final MockHttpSession idle = new MockHttpSession();
+        assertTrue(registry.touch(active, after(0)));
+        assertTrue(registry.touch(idle, after(0)));
+        registry.sweep(after(0));
+
+        assertTrue(registry.touch(active, after(200)));
+        registry.sweep(after(299));
+        assertFalse(idle.isInvalid());
+        registry.sweep(after(306));
+        assertTrue(idle.isInvalid());
+        assertFalse(active.isInvalid());
+        assertEquals(1, registry.size());
+
+        // idle too long, but not swept yet
+        assertFalse(registry.touch(active, after(500)));
+        registry.sweep(after(506));
+        assertTrue(active.isInvalid());
+        assertEquals(0, registry.size());
+    }
+
+    /**
+     * The sessions destroyed otherwise are forgotten, and the changed ids are followed.
+     */
+    @Test
+    public void sessionEvents() {
+        final MockHttpSession session = new MockHttpSession();
+        registry.touch(session, after(0));
+        registry.sweep(after(0));
+        final String oldSessionId = session.getId();
+        session.changeSessionId();
+        registry.sessionIdChanged(new HttpSessionEvent(session), oldSessionId);
+        assertEquals(1, registry.size());
+        assertTrue(registry.touch(session, after(100)));
+        assertEquals(1, registry.size());
+
+        registry.sessionDestroyed(new HttpSessionEvent(session));
+        assertEquals(0, registry.size());
+        registry.sweep(after(1000));
+        assertFalse(session.isInvalid());
+    }
+}
@@ -0,0 +1,265 @@
+package com.rslakra.automobile.service.stream;
+
+import com.rslakra.automobile.domain.entities.Schedule;
+import com.rslakra.automobile.dto.ScheduleDelta;
+import com.rslakra.automobile.service.event.ScheduleChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Rohtash Lakra
+ */
+public class ScheduleEventStreamTest {
+
+    private static final int MAX_CLIENTS = 3;
+    private static final int BUFFER_SIZE = 4;
+    private static final long SEND_TIMEOUT_MILLIS = 200;
+
+    private ScheduleEventStream eventStream;
+
+    @BeforeEach
+    public void setUp() {
+        eventStream = new ScheduleEventStream(60_000, MAX_CLIENTS, BUFFER_SIZE, SEND_TIMEOUT_MILLIS, 60);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        eventStream.shutdown();
+    }
+
+    /**
+     * @param id
+     * @param currentAppointments
+     * @param version
+     * @return
+     */
+    private static ScheduleChangedEvent changed(long id, int currentAppointments, long version) {
+        final Schedule schedule = new Schedule(LocalDate.now().plusDays(1), LocalTime.of(9, 0), LocalTime.of(10, 0));
+        schedule.setId(id);
+        schedule.setMaxAppointments(2);
+        schedule.setCurrentAppointments(currentAppointments);
+        schedule.setAvailable(currentAppointments < 2);
+        schedule.setVersion(version);
+        return ScheduleChangedEvent.saved(schedule);
+    }
+
+    /**
+     * @param condition
+     * @throws InterruptedException
+     */
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    /**
+     * Pushes the changed slots; a buffered delta is never replaced by an older one.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void pushesDeltas() throws Exception {
+        final CapturingEmitter emitter = new CapturingEmitter(null);
+        eventStream.register(emitter);
+        eventStream.onScheduleChanged(changed(1L, 0, 1));
+        eventStream.onScheduleChanged(changed(2L, 1, 1));
+        eventStream.onScheduleChanged(changed(1L, 2, 3));
+        // a stale change delivered late
+        eventStream.onScheduleChanged(changed(1L, 1, 2));
+
+        await(() -> emitter.newestDelta(1L) != null && emitter.newestDelta(1L).getVersion() == 3
+                     && emitter.newestDelta(2L) != null);
+        final ScheduleDelta delta = emitter.newestDelta(1L);
+        assertEquals(0, delta.getRemaining());
+        assertFalse(delta.isAvailable());
+        assertEquals(1, emitter.newestDelta(2L).getRemaining());
+        assertTrue(emitter.newestDelta(2L).isAvailable());
+    }
+
+    /**
+     * A client that stops reading is asked to reload once its buffer is full, without holding back the others.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void slowClientIsAskedToReload() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CapturingEmitter slowEmitter = new CapturingEmitter(release);
+        final CapturingEmitter emitter = new CapturingEmitter(null);
+        eventStream.register(slowEmitter);
+        eventStream.register(emitter);
+
+        eventStream.onScheduleChanged(changed(100L, 0, 1));
+        assertTrue(slowEmitter.sending.await(5, TimeUnit.SECONDS));
+        for (long id = 1; id <= BUFFER_SIZE + 1; id++) {
+            eventStream.onScheduleChanged(changed(id, 1, 1));
+        }
+
+        assertEquals(1, eventStream.getClientCount());
+        await(() -> emitter.newestDelta(BUFFER_SIZE + 1L) != null);
+        release.countDown();
+        await(() -> slowEmitter.completed);
+        assertTrue(slowEmitter.hasEvent(ScheduleEventStream.RELOAD_EVENT));
+        assertFalse(emitter.completed);
+    }
+
+    /**
+     * A client whose send never returns is dropped after the send timeout, while the others keep receiving. The stuck
+     * send holds the emitter's write lock, so completing the emitter can't hold up the timeouts of the others.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void stuckClientTimesOut() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final CapturingEmitter stuckEmitter = new CapturingEmitter(release);
+        final CapturingEmitter emitter = new CapturingEmitter(null);
+        eventStream.register(stuckEmitter);
+        eventStream.register(emitter);
+
+        eventStream.onScheduleChanged(changed(1L, 0, 1));
+        assertTrue(stuckEmitter.sending.await(5, TimeUnit.SECONDS));
+        await(() -> stuckEmitter.interrupted && eventStream.getClientCount() == 1);
+        assertFalse(stuckEmitter.completed);
+
+        eventStream.onScheduleChanged(changed(2L, 0, 1));
+        await(() -> emitter.newestDelta(2L) != null);
+        assertTrue(emitter.newestDelta(1L) != null);
+        assertFalse(emitter.completed);
+
+        // the timer still times out the next stuck client
+        final CapturingEmitter nextStuckEmitter = new CapturingEmitter(release);
+        eventStream.register(nextStuckEmitter);
+        eventStream.onScheduleChanged(changed(3L, 0, 1));
+        assertTrue(nextStuckEmitter.sending.await(5, TimeUnit.SECONDS));
+        await(() -> nextStuckEmitter.interrupted && eventStream.getClientCount() == 1);
+
+        release.countDown();
+        await(() -> stuckEmitter.completed && nextStuckEmitter.completed);
+    }
+
+    /**
+     * Rejects the clients over the limit.
+     */
+    @Test
+    public void rejectsClientsOverLimit() {
+        for (int i = 0; i < MAX_CLIENTS; i++) {
+            eventStream.register(new CapturingEmitter(null));
+        }
+        assertThrows(ResponseStatusException.class, () -> eventStream.register(new CapturingEmitter(null)));
+    }
+
+    /**
+     * Records the events instead of writing them to a response, holding the write lock like a real send does. The
+     * first send blocks until <code>release</code> is counted down, if given, like a write that ignores interrupts.
+     */
+    private static final class CapturingEmitter extends SseEmitter {
+
+        private final List<Set<ResponseBodyEmitter.DataWithMediaType>> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release;
+        private volatile boolean completed;
+        private volatile boolean interrupted;
+
+        /**
+         * @param release
+         */
+        private CapturingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            writeLock.lock();
+            try {
+                if (release != null && sending.getCount() > 0) {
+                    sending.countDown();
+                    awaitRelease();
+                }
+                events.add(builder.build());
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        private void awaitRelease() {
+            while (true) {
+                try {
+                    release.await();
+                    return;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+
+        @Override
+        public void complete() {
+            completeWithError(null);
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            writeLock.lock();
+            try {
+                completed = true;
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        /**
+         * @param name
+         * @return
+         */
+        private boolean hasEvent(String name) {
+            return events.stream().anyMatch(event -> event.stream()
+                .anyMatch(data -> data.getData().toString().contains("event:" + name + "\n")));
+        }
+
+        /**
+         * @param id
+         * @return
+         */
+        private ScheduleDelta newestDelta(Long id) {
+            ScheduleDelta newestDelta = null;
+            for (Set<ResponseBodyEmitter.DataWithMediaType> event : events) {
+                for (ResponseBodyEmitter.DataWithMediaType data : event) {
+                    if (data.getData() instanceof List<?> deltas) {
+                        for (Object delta : deltas) {
+                            final ScheduleDelta scheduleDelta = (ScheduleDelta) delta;
+                            if (id.equals(scheduleDelta.getId())
+                                && (newestDelta == null || newestDelta.getVersion() < scheduleDelta.getVersion())) {
+                                newestDelta = scheduleDelta;
+                            }
+                        }
+                    }
+                }
+            }
+
+            return newestDelta;
+        }
+    }
+}